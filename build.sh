@@ -48,6 +48,10 @@ if [ $BUILD_TESTS -eq 1 ]; then
     # --- Run DerbyConnection test ---
     echo "Testing database connection..."
     java -cp "$CLASSPATH:build/classes" com.signalapp.tests.DerbyTest
+
+    # --- Run scale benchmark ---
+    echo "Benchmarking buildings of up to 10000 floors..."
+    java -cp "$CLASSPATH:build/classes" com.signalapp.tests.ScaleBenchmark
 fi
 
 # --- Deployment ---
@@ -108,6 +108,7 @@ CREATE TABLE resultados_simulacion (
     nivel_senal DOUBLE NOT NULL,
     costo_piso DECIMAL(10,2) NOT NULL,
     estado VARCHAR(20) NOT NULL,
+    montante INTEGER DEFAULT 1 NOT NULL,
     CONSTRAINT fk_resultados_simulaciones 
     FOREIGN KEY (id_simulaciones) 
     REFERENCES simulaciones(id_simulaciones)
@@ -138,6 +139,7 @@ CREATE INDEX idx_derivadores_componente ON derivadores(id_componentes);
 CREATE INDEX idx_distribuidores_componente ON distribuidores(id_componentes);
 CREATE INDEX idx_tomas_componente ON tomas(id_componentes);
 CREATE INDEX idx_simulaciones_config ON simulaciones(id_configuraciones);
+CREATE INDEX idx_simulaciones_historial ON simulaciones(id_configuraciones, fecha_simulacion DESC, id_simulaciones DESC);
 CREATE INDEX idx_esquematicos_simulacion ON esquematicos(id_simulaciones);
 CREATE INDEX idx_esquematicos_piso ON esquematicos(piso);
 CREATE INDEX idx_resultados_simulacion ON resultados_simulacion(id_simulaciones);
@@ -1,11 +1,17 @@
 package com.signalapp.dao;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Base Data Access Object class that provides common database operations
@@ -13,21 +19,33 @@ import java.util.List;
  * @param <T> The entity type this DAO handles
  */
 public abstract class BaseDAO<T> {
-    protected Connection connection;
+    /** Default number of rows sent to the database in each batch */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    /** Default number of rows fetched from the database at a time by a cursor */
+    public static final int DEFAULT_FETCH_SIZE = 100;
+
+    private static final Map<Class<?>, Sql> SQL = new ConcurrentHashMap<>();
+
+    private int batchSize =
+            Math.max(1, Integer.getInteger("signalapp.dao.batch", DEFAULT_BATCH_SIZE));
+    private int fetchSize =
+            Math.max(0, Integer.getInteger("signalapp.dao.fetch", DEFAULT_FETCH_SIZE));
 
     /**
-     * Constructor that establishes a database connection
+     * Borrows a connection for one operation. The caller must close it, which returns it to the
+     * pool, so every operation runs on a connection of its own. Inside a {@link UnitOfWork} the
+     * connection of the unit of work is used instead, and closing it does nothing.
      * 
-     * @throws RuntimeException if database connection fails
+     * @return A connection to the database
+     * @throws SQLException if no connection can be obtained
      */
-    public BaseDAO() {
-        try {
-            this.connection = DerbyConnection.getConnection();
-            // this.connection = AccessConnection.getConnection();
-        } catch (SQLException e) {
-            e.printStackTrace();
-            throw new RuntimeException("Database connection error", e);
+    protected Connection getConnection() throws SQLException {
+        UnitOfWork work = UnitOfWork.current();
+        if (work != null) {
+            return work.getConnection();
         }
+        return DerbyConnection.getConnection();
+        // return AccessConnection.getConnection();
     }
 
     /**
@@ -45,13 +63,16 @@ public abstract class BaseDAO<T> {
     protected abstract String[] getColumnNames();
 
     /**
-     * Maps a ResultSet row to an entity object
+     * Maps a ResultSet row to an entity object. The columns are read by position, which is
+     * resolved once per query instead of searching each column by name on every row.
      * 
      * @param rs The ResultSet containing the database row
+     * @param columns The position in the ResultSet of each column, in the order of
+     *        {@link #getColumnNames()}
      * @return The mapped entity object
      * @throws SQLException if a database error occurs
      */
-    protected abstract T mapResultSetToEntity(ResultSet rs) throws SQLException;
+    protected abstract T mapResultSetToEntity(ResultSet rs, int[] columns) throws SQLException;
 
     /**
      * Sets the parameters for a PreparedStatement based on entity properties
@@ -63,6 +84,14 @@ public abstract class BaseDAO<T> {
     protected abstract void setPreparedStatementParams(PreparedStatement ps, T entity)
             throws SQLException;
 
+    /**
+     * Sets the ID generated by the database on an entity that was just inserted
+     * 
+     * @param entity The inserted entity
+     * @param id The generated ID
+     */
+    protected abstract void setGeneratedId(T entity, int id);
+
     /**
      * Retrieves all records from the database table
      * 
@@ -70,14 +99,123 @@ public abstract class BaseDAO<T> {
      * @throws SQLException if a database error occurs
      */
     public List<T> findAll() throws SQLException {
-        String sql = "SELECT * FROM " + getTableName();
-        try (PreparedStatement ps = connection.prepareStatement(sql);
-                ResultSet rs = ps.executeQuery()) {
-            List<T> entities = new ArrayList<>();
-            while (rs.next()) {
-                entities.add(mapResultSetToEntity(rs));
+        return toList(openAll());
+    }
+
+    /**
+     * Reads all records from the database table, passing each one to the handler as it comes off
+     * the ResultSet
+     * 
+     * @param handler Receives each entity
+     * @throws SQLException if a database error occurs
+     * @throws IOException if the handler fails
+     */
+    public void forEach(RowHandler<? super T> handler) throws SQLException, IOException {
+        openAll().forEachRemaining(handler);
+    }
+
+    /**
+     * Opens a cursor over all records of the database table
+     * 
+     * @return The cursor, which must be closed
+     * @throws SQLException if a database error occurs
+     */
+    public Cursor<T> openAll() throws SQLException {
+        return open(sql().selectAll);
+    }
+
+    /**
+     * Runs a query, passing each row to the handler as it comes off the ResultSet
+     * 
+     * @param sql The query, returning whole rows of the table
+     * @param handler Receives each entity
+     * @param params The values of the query parameters, in order
+     * @throws SQLException if a database error occurs
+     * @throws IOException if the handler fails
+     */
+    protected void forEach(String sql, RowHandler<? super T> handler, Object... params)
+            throws SQLException, IOException {
+        open(sql, params).forEachRemaining(handler);
+    }
+
+    /**
+     * Runs a query and opens a cursor over its rows
+     * 
+     * @param sql The query, returning whole rows of the table
+     * @param params The values of the query parameters, in order
+     * @return The cursor, which must be closed
+     * @throws SQLException if a database error occurs
+     */
+    protected Cursor<T> open(String sql, Object... params) throws SQLException {
+        return open(sql, getColumnNames(), this::mapResultSetToEntity, params);
+    }
+
+    /**
+     * Runs a query and opens a cursor over its rows, fetched from the database
+     * {@link #getFetchSize()} at a time. The cursor keeps the connection until it is closed.
+     * 
+     * The position of each named column is looked up in the ResultSet metadata the first time the
+     * query runs and reused afterwards, so a query must always be opened with the same names.
+     * 
+     * @param sql The query
+     * @param names The columns the mapper reads, in the order of the positions passed to it
+     * @param mapper Maps each row
+     * @param params The values of the query parameters, in order
+     * @return The cursor, which must be closed
+     * @throws SQLException if a database error occurs or a column is not in the result
+     */
+    protected <R> Cursor<R> open(String sql, String[] names, Cursor.Mapper<? extends R> mapper,
+            Object... params) throws SQLException {
+        Connection conn = getConnection();
+        PreparedStatement ps = null;
+        try {
+            ps = conn.prepareStatement(sql);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
             }
-            return entities;
+            ResultSet rs = ps.executeQuery();
+            return new Cursor<>(conn, ps, rs, mapper, columns(sql, names, rs));
+        } catch (SQLException | RuntimeException e) {
+            try {
+                if (ps != null) {
+                    ps.close();
+                }
+                conn.close();
+            } catch (SQLException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the first row of a cursor and closes it
+     * 
+     * @param cursor The cursor to read
+     * @return The first row, or null if there is none
+     * @throws SQLException if a database error occurs
+     */
+    protected static <R> R first(Cursor<R> cursor) throws SQLException {
+        try (Cursor<R> rows = cursor) {
+            return rows.next() ? rows.get() : null;
+        }
+    }
+
+    /**
+     * Reads all the rows of a cursor into a list and closes it
+     * 
+     * @param cursor The cursor to read
+     * @return The rows, in order
+     * @throws SQLException if a database error occurs
+     */
+    protected static <R> List<R> toList(Cursor<R> cursor) throws SQLException {
+        try (Cursor<R> rows = cursor) {
+            List<R> list = new ArrayList<>();
+            while (rows.next()) {
+                list.add(rows.get());
+            }
+            return list;
         }
     }
 
@@ -89,52 +227,244 @@ public abstract class BaseDAO<T> {
      * @throws SQLException if a database error occurs
      */
     public T findById(int id) throws SQLException {
-        String sql = "SELECT * FROM " + getTableName() + " WHERE id_" + getTableName().toLowerCase()
-                + " = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setInt(1, id);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToEntity(rs);
+        return first(open(sql().selectById, id));
+    }
+
+    /**
+     * Inserts a new record into the database Note: Derby uses GENERATED ALWAYS AS IDENTITY for
+     * auto-incrementing IDs, which is read back from the insert itself and set on the entity
+     * 
+     * @param entity The entity to insert
+     * @return The generated ID
+     * @throws SQLException if a database error occurs
+     */
+    public int insert(T entity) throws SQLException {
+        int id;
+        try (Connection conn = getConnection()) {
+            id = insert(conn, entity);
+        }
+        TableVersions.touch(getTableName());
+        return id;
+    }
+
+    /**
+     * Inserts a new record on a connection given by the caller and sets the generated ID on the
+     * entity. The caller owns the transaction and must touch the table in {@link TableVersions}
+     * once it is committed.
+     * 
+     * @param conn The connection to insert with
+     * @param entity The entity to insert
+     * @return The generated ID
+     * @throws SQLException if a database error occurs or no ID is generated
+     */
+    protected int insert(Connection conn, T entity) throws SQLException {
+        try (PreparedStatement ps =
+                conn.prepareStatement(getInsertSql(), Statement.RETURN_GENERATED_KEYS)) {
+            setPreparedStatementParams(ps, entity);
+            ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException(
+                            "No se pudo obtener el ID generado en " + getTableName());
                 }
-                return null;
+                int id = keys.getInt(1);
+                setGeneratedId(entity, id);
+                return id;
             }
         }
     }
 
     /**
-     * Inserts a new record into the database Note: Derby uses GENERATED ALWAYS AS IDENTITY for
-     * auto-incrementing IDs
+     * Gets the INSERT statement for the table, with one parameter per column except the ID, in
+     * the order used by {@link #setPreparedStatementParams(PreparedStatement, Object)}
      * 
-     * @param entity The entity to insert
+     * @return The INSERT statement
+     */
+    protected String getInsertSql() {
+        return sql().insert;
+    }
+
+    /**
+     * Inserts several records with one prepared statement executed as a batch, on a connection
+     * given by the caller. The caller owns the transaction and must touch the table in
+     * {@link TableVersions} once it is committed.
+     * 
+     * @param conn The connection to insert with
+     * @param entities The entities to insert
+     * @throws SQLException if a database error occurs
+     */
+    protected void insertBatch(Connection conn, List<? extends T> entities) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(getInsertSql())) {
+            int pending = 0;
+            for (T entity : entities) {
+                setPreparedStatementParams(ps, entity);
+                ps.addBatch();
+                pending = flush(ps, pending + 1);
+            }
+            if (pending > 0) {
+                ps.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Inserts several records in a single transaction, with one prepared statement executed in
+     * batches of {@link #getBatchSize()} rows. If any record fails none is saved. The generated
+     * IDs are not read back; use {@link #insert(Object)} when they are needed.
+     * 
+     * @param entities The entities to insert
      * @throws SQLException if a database error occurs
      */
-    public void insert(T entity) throws SQLException {
-        // Get all column names except the ID column (which is GENERATED ALWAYS AS
-        // IDENTITY)
-        String[] columns = getColumnNames();
-        String[] insertColumns = new String[columns.length - 1];
-        for (int i = 1; i < columns.length; i++) {
-            insertColumns[i - 1] = columns[i];
+    public void insertAll(List<? extends T> entities) throws SQLException {
+        if (entities.isEmpty()) {
+            return;
         }
-        String columnsStr = String.join(", ", insertColumns);
+        inTransaction(conn -> {
+            insertBatch(conn, entities);
+            return null;
+        });
+        TableVersions.touch(getTableName());
+    }
+
+    /**
+     * Updates several records in a single transaction, with one prepared statement executed in
+     * batches of {@link #getBatchSize()} rows. If any record fails none is updated.
+     * 
+     * @param entities The entities with updated values, by the ID of the record to update
+     * @throws SQLException if a database error occurs
+     */
+    public void updateAll(Map<Integer, ? extends T> entities) throws SQLException {
+        if (entities.isEmpty()) {
+            return;
+        }
+        Sql sql = sql();
+        inTransaction(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql.update)) {
+                int pending = 0;
+                for (Map.Entry<Integer, ? extends T> entry : entities.entrySet()) {
+                    setPreparedStatementParams(ps, entry.getValue());
+                    ps.setInt(sql.idParameter, entry.getKey());
+                    ps.addBatch();
+                    pending = flush(ps, pending + 1);
+                }
+                if (pending > 0) {
+                    ps.executeBatch();
+                }
+            }
+            return null;
+        });
+        TableVersions.touch(getTableName());
+    }
 
-        // Build placeholder string like "?, ?, ?, ?"
-        StringBuilder placeholdersBuilder = new StringBuilder();
-        for (int i = 0; i < insertColumns.length; i++) {
-            if (i > 0) {
-                placeholdersBuilder.append(", ");
+    /**
+     * Deletes several records in a single transaction, with one prepared statement executed in
+     * batches of {@link #getBatchSize()} rows. If any record fails none is deleted.
+     * 
+     * @param ids The IDs of the records to delete
+     * @throws SQLException if a database error occurs
+     */
+    public void deleteAll(Collection<Integer> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        inTransaction(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql().delete)) {
+                int pending = 0;
+                for (int id : ids) {
+                    ps.setInt(1, id);
+                    ps.addBatch();
+                    pending = flush(ps, pending + 1);
+                }
+                if (pending > 0) {
+                    ps.executeBatch();
+                }
             }
-            placeholdersBuilder.append("?");
+            return null;
+        });
+        TableVersions.touch(getTableName());
+    }
+
+    /**
+     * Gets the number of rows sent to the database in each batch by the *All methods
+     * 
+     * @return The batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the number of rows sent to the database in each batch by the *All methods. The default
+     * is read from the system property signalapp.dao.batch.
+     * 
+     * @param batchSize The batch size, at least 1
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("El tamaño del lote debe ser al menos 1");
         }
-        String placeholders = placeholdersBuilder.toString();
+        this.batchSize = batchSize;
+    }
 
-        String sql = "INSERT INTO " + getTableName() + " (" + columnsStr + ") VALUES ("
-                + placeholders + ")";
+    /**
+     * Gets the number of rows fetched from the database at a time by the cursors of this DAO
+     * 
+     * @return The fetch size, 0 to let the driver choose
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
 
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            setPreparedStatementParams(ps, entity);
-            ps.executeUpdate();
+    /**
+     * Sets the number of rows fetched from the database at a time by the cursors of this DAO. The
+     * default is read from the system property signalapp.dao.fetch.
+     * 
+     * @param fetchSize The fetch size, 0 to let the driver choose
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("El tamaño de lectura no puede ser negativo");
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Executes the batch once it holds {@link #getBatchSize()} rows
+     * 
+     * @return The rows left in the batch
+     */
+    private int flush(PreparedStatement ps, int pending) throws SQLException {
+        if (pending < batchSize) {
+            return pending;
+        }
+        ps.executeBatch();
+        return 0;
+    }
+
+    /**
+     * Runs some statements on one connection in a single transaction, rolled back if any fails.
+     * Inside a {@link UnitOfWork} they run on its connection and are committed with it. The
+     * caller must touch the tables written in {@link TableVersions} afterwards.
+     * 
+     * @param work The statements to run
+     * @return The value returned by the statements
+     * @throws SQLException if a database error occurs
+     */
+    protected <R> R inTransaction(Work<R> work) throws SQLException {
+        boolean own = UnitOfWork.current() == null;
+        try (Connection conn = getConnection()) {
+            if (!own) {
+                return work.run(conn);
+            }
+            conn.setAutoCommit(false);
+            try {
+                R result = work.run(conn);
+                conn.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
         }
     }
 
@@ -146,22 +476,14 @@ public abstract class BaseDAO<T> {
      * @throws SQLException if a database error occurs
      */
     public void update(T entity, int id) throws SQLException {
-        // Get all column names except the ID column
-        String[] columns = getColumnNames();
-        String[] updateColumns = new String[columns.length - 1];
-        for (int i = 1; i < columns.length; i++) {
-            updateColumns[i - 1] = columns[i];
-        }
-
-        String setClause = String.join(" = ?, ", updateColumns) + " = ?";
-        String sql = "UPDATE " + getTableName() + " SET " + setClause + " WHERE id_"
-                + getTableName().toLowerCase() + " = ?";
-
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        Sql sql = sql();
+        try (Connection conn = getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql.update)) {
             setPreparedStatementParams(ps, entity);
-            ps.setInt(updateColumns.length + 1, id);
+            ps.setInt(sql.idParameter, id);
             ps.executeUpdate();
         }
+        TableVersions.touch(getTableName());
     }
 
     /**
@@ -171,11 +493,101 @@ public abstract class BaseDAO<T> {
      * @throws SQLException if a database error occurs
      */
     public void delete(int id) throws SQLException {
-        String sql = "DELETE FROM " + getTableName() + " WHERE id_" + getTableName().toLowerCase()
-                + " = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql().delete)) {
             ps.setInt(1, id);
             ps.executeUpdate();
         }
+        TableVersions.touch(getTableName());
+    }
+
+    /**
+     * Statements run in a transaction by {@link #inTransaction(Work)}
+     * 
+     * @param <R> The type of the value they return
+     */
+    protected interface Work<R> {
+        R run(Connection conn) throws SQLException;
+    }
+
+    /**
+     * Gets the position in a query's result of each named column, resolved from the metadata on
+     * the first run of the query
+     */
+    private int[] columns(String sql, String[] names, ResultSet rs) throws SQLException {
+        Map<String, int[]> positions = sql().positions;
+        int[] columns = positions.get(sql);
+        if (columns == null) {
+            ResultSetMetaData metaData = rs.getMetaData();
+            columns = new int[names.length];
+            for (int i = 0; i < names.length; i++) {
+                // Backwards, so the first column with the name is kept
+                for (int column = metaData.getColumnCount(); column > 0; column--) {
+                    if (metaData.getColumnLabel(column).equalsIgnoreCase(names[i])) {
+                        columns[i] = column;
+                    }
+                }
+                if (columns[i] == 0) {
+                    throw new SQLException("La columna " + names[i] + " no está en el resultado");
+                }
+            }
+            positions.put(sql, columns);
+        }
+        return columns;
+    }
+
+    /**
+     * Gets the statements of this DAO, built on first use and shared by all its instances
+     */
+    private Sql sql() {
+        Sql sql = SQL.get(getClass());
+        if (sql == null) {
+            sql = new Sql(getTableName(), getColumnNames());
+            SQL.putIfAbsent(getClass(), sql);
+        }
+        return sql;
+    }
+
+    /**
+     * The generic statements of a table. The same text is used every time, so the statement
+     * caches of the pooled connections find them.
+     */
+    private static final class Sql {
+        final String selectAll;
+        final String selectById;
+        final String insert;
+        final String update;
+        final String delete;
+        /** Position of the ID parameter in the UPDATE statement */
+        final int idParameter;
+        /** Position of the mapped columns in the result of each query, by SQL text */
+        final Map<String, int[]> positions = new ConcurrentHashMap<>();
+
+        Sql(String table, String[] columns) {
+            // All columns except the ID column (which is GENERATED ALWAYS AS IDENTITY)
+            String[] dataColumns = new String[columns.length - 1];
+            for (int i = 1; i < columns.length; i++) {
+                dataColumns[i - 1] = columns[i];
+            }
+            String idCondition = " WHERE id_" + table.toLowerCase() + " = ?";
+
+            // Build placeholder string like "?, ?, ?, ?"
+            StringBuilder placeholders = new StringBuilder();
+            for (int i = 0; i < dataColumns.length; i++) {
+                if (i > 0) {
+                    placeholders.append(", ");
+                }
+                placeholders.append("?");
+            }
+
+            selectAll = "SELECT * FROM " + table;
+            selectById = selectAll + idCondition;
+            insert = "INSERT INTO " + table + " (" + String.join(", ", dataColumns) + ") VALUES ("
+                    + placeholders + ")";
+            update = "UPDATE " + table + " SET " + String.join(" = ?, ", dataColumns) + " = ?"
+                    + idCondition;
+            delete = "DELETE FROM " + table + idCondition;
+            idParameter = dataColumns.length + 1;
+        }
     }
 }
@@ -0,0 +1,72 @@
+package com.signalapp.dao;
+
+import com.signalapp.models.Coaxial;
+
+/**
+ * Precomputed attenuation of a coaxial cable across the band. Cable attenuation grows with the
+ * logarithm of the frequency, so the datasheet values at 470 MHz and 694 MHz are interpolated on a
+ * logarithmic scale. The interpolation is done once per MHz of the band when the table is built,
+ * so looking up a frequency inside the band is an array access. Frequencies outside the band
+ * fall back to the interpolation.
+ *
+ * Tables are built by {@link ComponentCatalog} when the catalog is loaded and are immutable.
+ */
+public final class CoaxialAttenuationTable {
+    /** Reference frequencies of the coaxial attenuation data (MHz) */
+    public static final int LOW_MHZ = 470;
+    public static final int HIGH_MHZ = 694;
+
+    private static final double LOG_LOW = Math.log10(LOW_MHZ);
+    private static final double LOG_HIGH = Math.log10(HIGH_MHZ);
+
+    private final double atenuacion470;
+    private final double atenuacion694;
+    private final double[] table;
+
+    /**
+     * Builds the table of a cable
+     *
+     * @param coaxial The coaxial row with the datasheet attenuation values
+     */
+    public CoaxialAttenuationTable(Coaxial coaxial) {
+        this.atenuacion470 = coaxial.getAtenuacion_470mhz();
+        this.atenuacion694 = coaxial.getAtenuacion_694mhz();
+        this.table = new double[HIGH_MHZ - LOW_MHZ + 1];
+        for (int frequency = LOW_MHZ; frequency <= HIGH_MHZ; frequency++) {
+            table[frequency - LOW_MHZ] = compute(frequency);
+        }
+    }
+
+    /**
+     * Gets the attenuation of the cable at a frequency
+     *
+     * @param frequency The frequency (MHz)
+     * @return The attenuation (dB/100m)
+     */
+    public double attenuation(int frequency) {
+        int index = frequency - LOW_MHZ;
+        if (index >= 0 && index < table.length) {
+            return table[index];
+        }
+        return compute(frequency);
+    }
+
+    private double compute(double frequency) {
+        return interpolate(atenuacion470, atenuacion694, frequency);
+    }
+
+    /**
+     * Interpolates the attenuation of a cable at a frequency from its datasheet values
+     *
+     * @param atenuacion470 Attenuation at 470 MHz (dB/100m)
+     * @param atenuacion694 Attenuation at 694 MHz (dB/100m)
+     * @param frequency The frequency (MHz)
+     * @return The attenuation at the given frequency (dB/100m)
+     */
+    public static double interpolate(double atenuacion470, double atenuacion694,
+            double frequency) {
+        double logf = Math.log10(frequency);
+        return atenuacion470
+                + ((atenuacion694 - atenuacion470) * (logf - LOG_LOW)) / (LOG_HIGH - LOG_LOW);
+    }
+}
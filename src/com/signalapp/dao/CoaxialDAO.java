@@ -31,9 +31,9 @@ public class CoaxialDAO extends BaseDAO<Coaxial> {
      * Maps a database row to a Coaxial entity
      */
     @Override
-    protected Coaxial mapResultSetToEntity(ResultSet rs) throws SQLException {
-        return new Coaxial(rs.getInt("id_coaxiales"), rs.getInt("id_componentes"),
-                rs.getDouble("atenuacion_470mhz"), rs.getDouble("atenuacion_694mhz"));
+    protected Coaxial mapResultSetToEntity(ResultSet rs, int[] columns) throws SQLException {
+        return new Coaxial(rs.getInt(columns[0]), rs.getInt(columns[1]), rs.getDouble(columns[2]),
+                rs.getDouble(columns[3]));
     }
 
     /**
@@ -47,6 +47,17 @@ public class CoaxialDAO extends BaseDAO<Coaxial> {
         ps.setDouble(3, entity.getAtenuacion_694mhz());
     }
 
+    /**
+     * Sets the ID generated for a new Coaxial
+     * 
+     * @param entity The Coaxial entity that was inserted
+     * @param id The generated ID
+     */
+    @Override
+    protected void setGeneratedId(Coaxial entity, int id) {
+        entity.setId_coaxiales(id);
+    }
+
     /**
      * Finds a coaxial component by its componente ID
      * 
@@ -56,14 +67,6 @@ public class CoaxialDAO extends BaseDAO<Coaxial> {
      */
     public Coaxial findByComponenteId(int componenteId) throws SQLException {
         String sql = "SELECT * FROM " + getTableName() + " WHERE id_componentes = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setInt(1, componenteId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToEntity(rs);
-                }
-                return null;
-            }
-        }
+        return first(open(sql, componenteId));
     }
 }
@@ -0,0 +1,277 @@
+package com.signalapp.dao;
+
+import com.signalapp.models.Coaxial;
+import com.signalapp.models.Componente;
+import com.signalapp.models.Derivador;
+import com.signalapp.models.Distribuidor;
+import com.signalapp.models.Toma;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable in-memory snapshot of the component catalog. Holds every component together with its
+ * type-specific attributes (derivador, distribuidor, toma or coaxial), keyed by model and by
+ * component ID, so calculations can resolve components without touching the database.
+ *
+ * The current snapshot is shared by all threads and replaced atomically by {@link #reload()}
+ * whenever the catalog is modified. The model objects it returns must be treated as read-only.
+ */
+public final class ComponentCatalog {
+    public static final String COAXIAL = "coaxial";
+    public static final String DERIVADOR = "derivador";
+    public static final String DISTRIBUIDOR = "distribuidor";
+    public static final String TOMA = "toma";
+
+    /** Tables the catalog is read from */
+    public static final String[] TABLES =
+            {"componentes", "coaxiales", "derivadores", "distribuidores", "tomas"};
+
+    private static final AtomicLong VERSIONS = new AtomicLong();
+    private static final Object LOCK = new Object();
+    private static volatile ComponentCatalog current;
+
+    private final long version;
+    private final TableVersions.Stamp stamp;
+    private final Map<String, Componente> componentesByModelo;
+    private final Map<Integer, Componente> componentesById;
+    private final Map<Integer, String> tiposById;
+    private final Map<Integer, Coaxial> coaxiales;
+    private final Map<Integer, CoaxialAttenuationTable> coaxialTables;
+    private final Map<Integer, Derivador> derivadores;
+    private final Map<Integer, Distribuidor> distribuidores;
+    private final Map<Integer, Toma> tomas;
+
+    /**
+     * Private constructor, snapshots are only built by {@link #load()}
+     */
+    private ComponentCatalog(long version, TableVersions.Stamp stamp, List<Componente> componentes,
+            List<Coaxial> coaxialList, List<Derivador> derivadorList,
+            List<Distribuidor> distribuidorList, List<Toma> tomaList) {
+        this.version = version;
+        this.stamp = stamp;
+
+        Map<String, Componente> byModelo = new HashMap<>();
+        Map<Integer, Componente> byId = new LinkedHashMap<>();
+        for (Componente componente : componentes) {
+            byModelo.put(componente.getModelo(), componente);
+            byId.put(componente.getId_componentes(), componente);
+        }
+
+        // The type of a component is given by the type table that references it
+        Map<Integer, String> tipos = new HashMap<>();
+        Map<Integer, Coaxial> coaxialMap = new HashMap<>();
+        Map<Integer, CoaxialAttenuationTable> tableMap = new HashMap<>();
+        for (Coaxial coaxial : coaxialList) {
+            coaxialMap.put(coaxial.getId_componentes(), coaxial);
+            tableMap.put(coaxial.getId_componentes(), new CoaxialAttenuationTable(coaxial));
+            tipos.put(coaxial.getId_componentes(), COAXIAL);
+        }
+        Map<Integer, Derivador> derivadorMap = new HashMap<>();
+        for (Derivador derivador : derivadorList) {
+            derivadorMap.put(derivador.getId_componentes(), derivador);
+            tipos.put(derivador.getId_componentes(), DERIVADOR);
+        }
+        Map<Integer, Distribuidor> distribuidorMap = new HashMap<>();
+        for (Distribuidor distribuidor : distribuidorList) {
+            distribuidorMap.put(distribuidor.getId_componentes(), distribuidor);
+            tipos.put(distribuidor.getId_componentes(), DISTRIBUIDOR);
+        }
+        Map<Integer, Toma> tomaMap = new HashMap<>();
+        for (Toma toma : tomaList) {
+            tomaMap.put(toma.getId_componentes(), toma);
+            tipos.put(toma.getId_componentes(), TOMA);
+        }
+
+        this.componentesByModelo = Collections.unmodifiableMap(byModelo);
+        this.componentesById = Collections.unmodifiableMap(byId);
+        this.tiposById = Collections.unmodifiableMap(tipos);
+        this.coaxiales = Collections.unmodifiableMap(coaxialMap);
+        this.coaxialTables = Collections.unmodifiableMap(tableMap);
+        this.derivadores = Collections.unmodifiableMap(derivadorMap);
+        this.distribuidores = Collections.unmodifiableMap(distribuidorMap);
+        this.tomas = Collections.unmodifiableMap(tomaMap);
+    }
+
+    /**
+     * Gets the current catalog snapshot, loading it from the database on first use
+     *
+     * @return The current catalog snapshot
+     * @throws SQLException if the catalog has to be loaded and a database error occurs
+     */
+    public static ComponentCatalog getInstance() throws SQLException {
+        ComponentCatalog catalog = current;
+        if (catalog == null) {
+            synchronized (LOCK) {
+                catalog = current;
+                if (catalog == null) {
+                    catalog = load();
+                    current = catalog;
+                }
+            }
+        }
+        return catalog;
+    }
+
+    /**
+     * Rebuilds the snapshot from the database and publishes it atomically. Must be called after
+     * every change to the componentes table or any of the type tables.
+     *
+     * @return The new catalog snapshot
+     * @throws SQLException if a database error occurs, in which case the next call to
+     *         {@link #getInstance()} retries the load
+     */
+    public static ComponentCatalog reload() throws SQLException {
+        synchronized (LOCK) {
+            try {
+                current = load();
+                return current;
+            } catch (SQLException e) {
+                current = null;
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Reads all components and type-specific rows from the database
+     */
+    private static ComponentCatalog load() throws SQLException {
+        // Taken before reading, so the snapshot is never newer than the tables it says
+        TableVersions.Stamp stamp = TableVersions.get(TABLES);
+        return new ComponentCatalog(VERSIONS.incrementAndGet(), stamp,
+                new ComponenteDAO().findAll(), new CoaxialDAO().findAll(),
+                new DerivadorDAO().findAll(), new DistribuidorDAO().findAll(),
+                new TomaDAO().findAll());
+    }
+
+    /**
+     * Gets the version of this snapshot. Versions increase every time the catalog is reloaded.
+     *
+     * @return The snapshot version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets a tag that identifies the contents of this snapshot, for clients that keep a copy of
+     * the catalog. It is the {@link TableVersions} tag of the catalog tables when the snapshot was
+     * read, so unlike {@link #getVersion()} it does not repeat after the application is restarted.
+     *
+     * @return The snapshot tag
+     */
+    public String getVersionTag() {
+        return stamp.getTag();
+    }
+
+    /**
+     * Gets the time of the last change to the catalog tables included in this snapshot
+     *
+     * @return The modification time (ms since the epoch)
+     */
+    public long getLastModified() {
+        return stamp.getLastModified();
+    }
+
+    /**
+     * Finds a component by its model name
+     *
+     * @param modelo The model name to search for
+     * @return The Componente if found, null otherwise
+     */
+    public Componente findByModelo(String modelo) {
+        return componentesByModelo.get(modelo);
+    }
+
+    /**
+     * Finds a component by its ID
+     *
+     * @param idComponente The component ID
+     * @return The Componente if found, null otherwise
+     */
+    public Componente findById(int idComponente) {
+        return componentesById.get(idComponente);
+    }
+
+    /**
+     * Gets the type of a component ("coaxial", "derivador", "distribuidor" or "toma")
+     *
+     * @param idComponente The component ID
+     * @return The component type, or null if the component has no type-specific row
+     */
+    public String getTipo(int idComponente) {
+        return tiposById.get(idComponente);
+    }
+
+    /**
+     * Gets all components of a given type
+     *
+     * @param tipo The component type ("coaxial", "derivador", "distribuidor" or "toma")
+     * @return List of components of that type, in catalog order
+     */
+    public List<Componente> findByTipo(String tipo) {
+        List<Componente> result = new ArrayList<>();
+        for (Componente componente : componentesById.values()) {
+            if (tipo.equals(tiposById.get(componente.getId_componentes()))) {
+                result.add(componente);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the coaxial attributes of a component
+     *
+     * @param idComponente The component ID
+     * @return The Coaxial row, or null if the component is not a coaxial cable
+     */
+    public Coaxial getCoaxial(int idComponente) {
+        return coaxiales.get(idComponente);
+    }
+
+    /**
+     * Gets the precomputed attenuation table of a coaxial cable
+     *
+     * @param idComponente The component ID
+     * @return The attenuation table, or null if the component is not a coaxial cable
+     */
+    public CoaxialAttenuationTable getCoaxialTable(int idComponente) {
+        return coaxialTables.get(idComponente);
+    }
+
+    /**
+     * Gets the derivador attributes of a component
+     *
+     * @param idComponente The component ID
+     * @return The Derivador row, or null if the component is not a derivador
+     */
+    public Derivador getDerivador(int idComponente) {
+        return derivadores.get(idComponente);
+    }
+
+    /**
+     * Gets the distribuidor attributes of a component
+     *
+     * @param idComponente The component ID
+     * @return The Distribuidor row, or null if the component is not a distribuidor
+     */
+    public Distribuidor getDistribuidor(int idComponente) {
+        return distribuidores.get(idComponente);
+    }
+
+    /**
+     * Gets the toma attributes of a component
+     *
+     * @param idComponente The component ID
+     * @return The Toma row, or null if the component is not a toma
+     */
+    public Toma getToma(int idComponente) {
+        return tomas.get(idComponente);
+    }
+}
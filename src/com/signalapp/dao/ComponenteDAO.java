@@ -1,6 +1,8 @@
 package com.signalapp.dao;
 
 import com.signalapp.models.Componente;
+import java.io.IOException;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -34,13 +36,14 @@ public class ComponenteDAO extends BaseDAO<Componente> {
      * Maps a ResultSet row to a Componente entity
      * 
      * @param rs The ResultSet containing the database row
+     * @param columns The position of each column in the ResultSet
      * @return A new Componente object with data from the ResultSet
      * @throws SQLException if a database error occurs
      */
     @Override
-    protected Componente mapResultSetToEntity(ResultSet rs) throws SQLException {
-        return new Componente(rs.getInt("id_componentes"), rs.getInt("id_tipos_componente"),
-                rs.getString("modelo"), rs.getDouble("costo"));
+    protected Componente mapResultSetToEntity(ResultSet rs, int[] columns) throws SQLException {
+        return new Componente(rs.getInt(columns[0]), rs.getInt(columns[1]),
+                rs.getString(columns[2]), rs.getDouble(columns[3]));
     }
 
     /**
@@ -59,21 +62,35 @@ public class ComponenteDAO extends BaseDAO<Componente> {
     }
 
     /**
-     * Retrieves the ID of a component by its model name
+     * Sets the ID generated for a new Componente
      * 
-     * @param modelo The model name of the component
-     * @return The ID of the component, or -1 if not found
+     * @param entity The Componente entity that was inserted
+     * @param id The generated ID
+     */
+    @Override
+    protected void setGeneratedId(Componente entity, int id) {
+        entity.setId_componentes(id);
+    }
+
+    /**
+     * Reads the model names of the components that have a row in a type table (coaxiales,
+     * derivadores, distribuidores or tomas), in the order of that table, passing each one to the
+     * handler as it comes off the ResultSet
+     * 
+     * @param tablaTipo The name of the type table
+     * @param handler Receives each model name
      * @throws SQLException if a database error occurs
+     * @throws IOException if the handler fails
      */
-    public int getIdByModelo(String modelo) throws SQLException {
-        String sql = "SELECT MAX(id_componentes) FROM " + getTableName() + " WHERE modelo = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, modelo);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt(1);
-                }
-                return -1;
+    public void forEachModeloByTabla(String tablaTipo, RowHandler<? super String> handler)
+            throws SQLException, IOException {
+        String sql = "SELECT c.modelo FROM " + tablaTipo + " t JOIN " + getTableName()
+                + " c ON t.id_componentes = c.id_componentes ORDER BY t.id_" + tablaTipo;
+        try (Connection conn = getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql);
+                ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                handler.handle(rs.getString(1));
             }
         }
     }
@@ -87,15 +104,7 @@ public class ComponenteDAO extends BaseDAO<Componente> {
      */
     public Componente findByModelo(String modelo) throws SQLException {
         String sql = "SELECT * FROM " + getTableName() + " WHERE modelo = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, modelo);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToEntity(rs);
-                }
-                return null;
-            }
-        }
+        return first(open(sql, modelo));
     }
 
     /**
@@ -107,7 +116,8 @@ public class ComponenteDAO extends BaseDAO<Componente> {
      */
     public boolean existsByModelo(String modelo) throws SQLException {
         String sql = "SELECT COUNT(*) FROM " + getTableName() + " WHERE modelo = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, modelo);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
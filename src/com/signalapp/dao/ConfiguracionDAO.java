@@ -1,6 +1,7 @@
 package com.signalapp.dao;
 
 import com.signalapp.models.Configuracion;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -37,15 +38,16 @@ public class ConfiguracionDAO extends BaseDAO<Configuracion> {
      * Maps a ResultSet row to a Configuracion entity
      * 
      * @param rs The ResultSet containing the database row
+     * @param columns The position of each column in the ResultSet
      * @return A new Configuracion object with data from the ResultSet
      * @throws SQLException if a database error occurs
      */
     @Override
-    protected Configuracion mapResultSetToEntity(ResultSet rs) throws SQLException {
-        return new Configuracion(rs.getInt("id_configuraciones"), rs.getString("nombre"),
-                rs.getDouble("nivel_cabecera"), rs.getInt("num_pisos"), rs.getDouble("costo_total"),
-                rs.getString("fecha_creacion"), rs.getString("usuario_creacion"),
-                rs.getString("fecha_modificacion"), rs.getString("usuario_modificacion"));
+    protected Configuracion mapResultSetToEntity(ResultSet rs, int[] columns) throws SQLException {
+        return new Configuracion(rs.getInt(columns[0]), rs.getString(columns[1]),
+                rs.getDouble(columns[2]), rs.getInt(columns[3]), rs.getDouble(columns[4]),
+                rs.getString(columns[5]), rs.getString(columns[6]), rs.getString(columns[7]),
+                rs.getString(columns[8]));
     }
 
     /**
@@ -69,23 +71,14 @@ public class ConfiguracionDAO extends BaseDAO<Configuracion> {
     }
 
     /**
-     * Retrieves the ID of a configuration by its name
+     * Sets the ID generated for a new Configuracion
      * 
-     * @param nombre The name of the configuration
-     * @return The ID of the configuration, or -1 if not found
-     * @throws SQLException if a database error occurs
+     * @param entity The Configuracion entity that was inserted
+     * @param id The generated ID
      */
-    public int getIdByNombre(String nombre) throws SQLException {
-        String sql = "SELECT MAX(id_configuraciones) FROM " + getTableName() + " WHERE nombre = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, nombre);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt(1);
-                }
-                return -1;
-            }
-        }
+    @Override
+    protected void setGeneratedId(Configuracion entity, int id) {
+        entity.setId_configuraciones(id);
     }
 
     /**
@@ -97,7 +90,8 @@ public class ConfiguracionDAO extends BaseDAO<Configuracion> {
      */
     public boolean existsByName(String nombre) throws SQLException {
         String sql = "SELECT COUNT(*) FROM " + getTableName() + " WHERE nombre = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, nombre);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
@@ -0,0 +1,360 @@
+package com.signalapp.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of database connections. Each connection borrowed belongs to the caller until it
+ * closes it, which hands it back to the pool, so requests running at the same time never share a
+ * connection or a transaction. At most {@link #getMaxSize()} connections are open; when all are
+ * borrowed, callers wait up to {@link #getTimeoutMillis()} for one to come back.
+ *
+ * Idle connections are checked in the background every {@link #getValidationMillis()} and
+ * replaced if they no longer work, so borrowing does not have to check them. Each connection keeps
+ * its prepared statements in a {@link StatementCache} across borrows.
+ *
+ * The sizes and times are read from the system properties signalapp.pool.size,
+ * signalapp.pool.timeout, signalapp.pool.validation (ms) and signalapp.pool.statements.
+ */
+public final class ConnectionPool {
+    /** Default maximum number of open connections */
+    public static final int DEFAULT_MAX_SIZE = 20;
+    /** Default time to wait for a free connection (ms) */
+    public static final long DEFAULT_TIMEOUT_MILLIS = 30 * 1000L;
+    /** Default interval between checks of the idle connections (ms) */
+    public static final long DEFAULT_VALIDATION_MILLIS = 30 * 1000L;
+    /** Default number of prepared statements kept open per connection */
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+
+    private final String url;
+    private final int maxSize;
+    private final long timeoutMillis;
+    private final long validationMillis;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<Pooled> idle = new LinkedBlockingDeque<>();
+    private final ScheduledExecutorService validator;
+    private volatile boolean closed;
+
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+
+    /**
+     * Creates a pool of connections to a database. No connection is opened until one is borrowed.
+     *
+     * @param url The JDBC URL of the database
+     */
+    public ConnectionPool(String url) {
+        this.url = url;
+        this.maxSize = Math.max(1, Integer.getInteger("signalapp.pool.size", DEFAULT_MAX_SIZE));
+        this.timeoutMillis = Long.getLong("signalapp.pool.timeout", DEFAULT_TIMEOUT_MILLIS);
+        this.validationMillis = Math.max(1000L,
+                Long.getLong("signalapp.pool.validation", DEFAULT_VALIDATION_MILLIS));
+        this.statementCacheSize = Math.max(0,
+                Integer.getInteger("signalapp.pool.statements", DEFAULT_STATEMENT_CACHE_SIZE));
+        this.permits = new Semaphore(maxSize, true);
+
+        validator = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "signal-pool-validator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        validator.scheduleWithFixedDelay(this::validateIdle, validationMillis, validationMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting if all of them are in use. The connection is in autocommit
+     * mode; closing it returns it to the pool.
+     *
+     * @return A connection for the caller alone
+     * @throws SQLException if no connection is freed in time or a new one cannot be opened
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("El pool de conexiones está cerrado");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLException("No hay conexiones libres tras esperar " + timeoutMillis
+                        + " ms (máximo " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido esperando una conexión", e);
+        }
+        long waited = System.nanoTime() - start;
+        borrows.incrementAndGet();
+        waitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+        try {
+            Pooled pooled = idle.pollFirst();
+            if (pooled == null) {
+                pooled = new Pooled(DriverManager.getConnection(url));
+                opened.incrementAndGet();
+            }
+            return wrap(pooled);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes the idle connections and stops the background checks. Borrowed connections are
+     * closed when they are returned.
+     */
+    public void close() {
+        closed = true;
+        validator.shutdownNow();
+        Pooled pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    /**
+     * Takes a returned connection back. Connections left in a transaction are rolled back first;
+     * connections that fail to reset are discarded.
+     */
+    private void giveBack(Pooled pooled) {
+        Connection physical = pooled.physical;
+        try {
+            if (closed || physical.isClosed()) {
+                discard(pooled);
+                return;
+            }
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            physical.clearWarnings();
+            // Reused before the connections that have been idle longer
+            idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Checks the idle connections, discarding the ones that no longer work. Runs in the
+     * background.
+     */
+    private void validateIdle() {
+        // One at a time, the least recently used first, so the others stay available
+        for (int i = idle.size(); i > 0; i--) {
+            Pooled pooled = idle.pollLast();
+            if (pooled == null) {
+                return;
+            }
+            boolean valid;
+            try {
+                valid = pooled.physical.isValid(5);
+            } catch (SQLException e) {
+                valid = false;
+            }
+            if (valid && !closed) {
+                idle.offerFirst(pooled);
+            } else {
+                discard(pooled);
+            }
+        }
+    }
+
+    private void discard(Pooled pooled) {
+        discarded.incrementAndGet();
+        pooled.statements.clear();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            // Already unusable
+        }
+    }
+
+    /**
+     * Wraps a connection so that closing it returns it to the pool and statements prepared from
+     * the SQL text, with or without generated keys, come from its cache. Once closed, the wrapper
+     * refuses any other call.
+     */
+    private Connection wrap(Pooled pooled) {
+        Connection physical = pooled.physical;
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean returned;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!returned) {
+                            returned = true;
+                            giveBack(pooled);
+                        }
+                        return null;
+                    case "isClosed":
+                        return returned || physical.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "Pooled " + physical;
+                    default:
+                        if (returned) {
+                            throw new SQLException("La conexión ya se devolvió al pool");
+                        }
+                        if (method.getName().equals("prepareStatement")) {
+                            if (args.length == 1) {
+                                return pooled.statements.prepare((String) args[0],
+                                        Statement.NO_GENERATED_KEYS);
+                            }
+                            if (args.length == 2 && args[1] instanceof Integer) {
+                                return pooled.statements.prepare((String) args[0],
+                                        (Integer) args[1]);
+                            }
+                        }
+                        try {
+                            return method.invoke(physical, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, handler);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public long getValidationMillis() {
+        return validationMillis;
+    }
+
+    /**
+     * Gets the number of connections borrowed and not yet returned
+     *
+     * @return The connections in use
+     */
+    public int getActive() {
+        return maxSize - permits.availablePermits();
+    }
+
+    /**
+     * Gets the number of open connections waiting to be borrowed
+     *
+     * @return The idle connections
+     */
+    public int getIdle() {
+        return idle.size();
+    }
+
+    /**
+     * Gets the number of callers waiting for a connection
+     *
+     * @return The callers waiting
+     */
+    public int getWaiting() {
+        return permits.getQueueLength();
+    }
+
+    public long getOpened() {
+        return opened.get();
+    }
+
+    public long getDiscarded() {
+        return discarded.get();
+    }
+
+    public long getBorrows() {
+        return borrows.get();
+    }
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    /**
+     * Gets the total time callers have waited for a connection
+     *
+     * @return The time waited (ms)
+     */
+    public double getTotalWaitMillis() {
+        return waitNanos.get() / 1e6;
+    }
+
+    /**
+     * Gets the longest time a caller has waited for a connection
+     *
+     * @return The time waited (ms)
+     */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1e6;
+    }
+
+    /**
+     * Gets the number of statements prepared again from a connection's cache
+     *
+     * @return The cache hits
+     */
+    public long getStatementHits() {
+        return statementHits.get();
+    }
+
+    /**
+     * Gets the number of statements that had to be parsed and compiled
+     *
+     * @return The cache misses
+     */
+    public long getStatementMisses() {
+        return statementMisses.get();
+    }
+
+    /**
+     * A connection of the pool with the statements prepared on it
+     */
+    private final class Pooled {
+        final Connection physical;
+        final StatementCache statements;
+
+        Pooled(Connection physical) {
+            this.physical = physical;
+            this.statements = new StatementCache(physical, statementCacheSize, statementHits,
+                    statementMisses);
+        }
+    }
+}
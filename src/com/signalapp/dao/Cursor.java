@@ -0,0 +1,123 @@
+package com.signalapp.dao;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * An open query whose rows are mapped one at a time as the caller moves through them, so any
+ * number of rows can be read in constant memory. The cursor holds its connection until it is
+ * closed:
+ *
+ * <pre>
+ * try (Cursor&lt;Simulacion&gt; cursor = simulacionDAO.openByConfiguracion(id)) {
+ *     while (cursor.next()) {
+ *         Simulacion simulacion = cursor.get();
+ *         ...
+ *     }
+ * }
+ * </pre>
+ *
+ * @param <T> The type of each row
+ */
+public final class Cursor<T> implements AutoCloseable {
+    private final Connection connection;
+    private final PreparedStatement statement;
+    private final ResultSet resultSet;
+    private final Mapper<? extends T> mapper;
+    private final int[] columns;
+    private T current;
+    private boolean closed;
+
+    Cursor(Connection connection, PreparedStatement statement, ResultSet resultSet,
+            Mapper<? extends T> mapper, int[] columns) {
+        this.connection = connection;
+        this.statement = statement;
+        this.resultSet = resultSet;
+        this.mapper = mapper;
+        this.columns = columns;
+    }
+
+    /**
+     * Moves to the next row and maps it
+     *
+     * @return true if there is a row, false once all have been read
+     * @throws SQLException if a database error occurs
+     */
+    public boolean next() throws SQLException {
+        if (closed) {
+            throw new SQLException("El cursor ya está cerrado");
+        }
+        if (!resultSet.next()) {
+            current = null;
+            return false;
+        }
+        current = mapper.map(resultSet, columns);
+        return true;
+    }
+
+    /**
+     * Gets the current row
+     *
+     * @return The row the cursor is on
+     * @throws SQLException if the cursor is not on a row
+     */
+    public T get() throws SQLException {
+        if (current == null) {
+            throw new SQLException("El cursor no está en ninguna fila");
+        }
+        return current;
+    }
+
+    /**
+     * Passes each remaining row to the handler and closes the cursor
+     *
+     * @param handler Receives each row
+     * @throws SQLException if a database error occurs
+     * @throws IOException if the handler fails
+     */
+    public void forEachRemaining(RowHandler<? super T> handler) throws SQLException, IOException {
+        try {
+            while (next()) {
+                handler.handle(current);
+            }
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Closes the query and returns the connection
+     *
+     * @throws SQLException if a database error occurs
+     */
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        current = null;
+        try {
+            resultSet.close();
+        } finally {
+            try {
+                statement.close();
+            } finally {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Maps the row a ResultSet is on, reading the columns by position
+     *
+     * @param <T> The type of the row
+     */
+    @FunctionalInterface
+    interface Mapper<T> {
+        T map(ResultSet rs, int[] columns) throws SQLException;
+    }
+}
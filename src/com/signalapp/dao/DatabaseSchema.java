@@ -0,0 +1,73 @@
+package com.signalapp.dao;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Brings databases created with older versions of crear_tablas_derby.sql up to date. Every change
+ * checks the metadata first, so running it on a current database does nothing.
+ */
+public final class DatabaseSchema {
+    /** Index the pages of the simulation history are read from */
+    static final String HISTORY_INDEX = "IDX_SIMULACIONES_HISTORIAL";
+
+    private static volatile boolean updated;
+
+    private DatabaseSchema() {}
+
+    /**
+     * Applies the missing schema changes, once per application run
+     *
+     * @param conn The connection to update
+     * @throws SQLException if a database error occurs
+     */
+    public static void update(Connection conn) throws SQLException {
+        if (updated) {
+            return;
+        }
+        synchronized (DatabaseSchema.class) {
+            if (updated) {
+                return;
+            }
+            // Results of multi-riser buildings store the riser of each floor
+            if (!columnExists(conn, "RESULTADOS_SIMULACION", "MONTANTE")) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.executeUpdate("ALTER TABLE resultados_simulacion"
+                            + " ADD COLUMN montante INTEGER DEFAULT 1 NOT NULL");
+                }
+            }
+            // Pages of the simulation history are read as a range of this index
+            if (!indexExists(conn, "SIMULACIONES", HISTORY_INDEX)) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.executeUpdate("CREATE INDEX idx_simulaciones_historial ON simulaciones"
+                            + " (id_configuraciones, fecha_simulacion DESC, id_simulaciones DESC)");
+                }
+            }
+            updated = true;
+        }
+    }
+
+    private static boolean columnExists(Connection conn, String table, String column)
+            throws SQLException {
+        DatabaseMetaData metaData = conn.getMetaData();
+        try (ResultSet rs = metaData.getColumns(null, null, table, column)) {
+            return rs.next();
+        }
+    }
+
+    private static boolean indexExists(Connection conn, String table, String index)
+            throws SQLException {
+        DatabaseMetaData metaData = conn.getMetaData();
+        try (ResultSet rs = metaData.getIndexInfo(null, null, table, false, false)) {
+            while (rs.next()) {
+                if (index.equals(rs.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -1,12 +1,11 @@
 package com.signalapp.dao;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 /**
- * Singleton class that manages the connection to the Derby database Provides methods to get and
- * close database connections
+ * Manages the connections to the Derby database. Connections are borrowed from a
+ * {@link ConnectionPool} and returned to it when closed.
  */
 public class DerbyConnection {
     static String root = "";
@@ -26,76 +25,67 @@ public class DerbyConnection {
     }
 
     private static final String DB_URL = "jdbc:derby:" + root + "database/DistribucionDeSenal";
-    private static Connection connection;
-    private static DerbyConnection instance;
+    private static volatile ConnectionPool pool;
     private static final Object LOCK = new Object();
 
     /**
-     * Private constructor to prevent instantiation Initializes the database connection
-     * 
-     * @throws SQLException if a database error occurs
+     * Private constructor to prevent instantiation
      */
-    private DerbyConnection() throws SQLException {
-        initializeConnection();
-    }
+    private DerbyConnection() {}
 
     /**
-     * Initializes the database connection using the Derby driver
+     * Gets the connection pool, creating it on first use. Creating it loads the Derby driver and
+     * brings the schema up to date. Once created, the pool is returned without locking.
      * 
+     * @return The connection pool
      * @throws SQLException if a database error occurs
      */
-    private void initializeConnection() throws SQLException {
-        try {
-            Class.forName("org.apache.derby.jdbc.EmbeddedDriver");
-            connection = DriverManager.getConnection(DB_URL);
-        } catch (ClassNotFoundException e) {
-            throw new SQLException("Failed to load Derby driver", e);
+    public static ConnectionPool getPool() throws SQLException {
+        ConnectionPool current = pool;
+        if (current != null) {
+            return current;
+        }
+        synchronized (LOCK) {
+            if (pool == null) {
+                try {
+                    Class.forName("org.apache.derby.jdbc.EmbeddedDriver");
+                } catch (ClassNotFoundException e) {
+                    throw new SQLException("Failed to load Derby driver", e);
+                }
+                ConnectionPool created = new ConnectionPool(DB_URL);
+                try (Connection conn = created.borrow()) {
+                    DatabaseSchema.update(conn);
+                } catch (SQLException e) {
+                    created.close();
+                    throw e;
+                }
+                pool = created;
+            }
+            return pool;
         }
     }
 
     /**
-     * Gets a connection to the database Creates a new connection if one doesn't exist or if the
-     * existing one is closed
+     * Borrows a connection to the database from the pool. The connection belongs to the caller
+     * until it closes it, which returns it to the pool.
      * 
      * @return A Connection object to the database
-     * @throws SQLException if a database error occurs
+     * @throws SQLException if a database error occurs or no connection is freed in time
      */
     public static Connection getConnection() throws SQLException {
-        synchronized (LOCK) {
-            if (instance == null) {
-                instance = new DerbyConnection();
-            }
-
-            // Validate connection and reconnect if necessary
-            if (connection == null || connection.isClosed()) {
-                instance.initializeConnection();
-            }
-
-            try {
-                // Test the connection with a simple validation query
-                if (!connection.isValid(5)) { // 5 second timeout
-                    instance.initializeConnection();
-                }
-            } catch (SQLException e) {
-                // If validation fails, try to reconnect
-                instance.initializeConnection();
-            }
-
-            return connection;
-        }
+        return getPool().borrow();
     }
 
     /**
-     * Closes the database connection
+     * Closes the connection pool
      * 
      * @throws SQLException if a database error occurs
      */
     public static void close() throws SQLException {
         synchronized (LOCK) {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                connection = null;
-                instance = null;
+            if (pool != null) {
+                pool.close();
+                pool = null;
             }
         }
     }
@@ -36,15 +36,15 @@ public class DerivadorDAO extends BaseDAO<Derivador> {
      * Maps a ResultSet row to a Derivador entity
      * 
      * @param rs The ResultSet containing the database row
+     * @param columns The position of each column in the ResultSet
      * @return A new Derivador object with data from the ResultSet
      * @throws SQLException if a database error occurs
      */
     @Override
-    protected Derivador mapResultSetToEntity(ResultSet rs) throws SQLException {
-        return new Derivador(rs.getInt("id_derivadores"), rs.getInt("id_componentes"),
-                rs.getDouble("atenuacion_derivacion"), rs.getDouble("atenuacion_paso"),
-                rs.getDouble("directividad"), rs.getDouble("desacoplo"),
-                rs.getDouble("perdidas_retorno"));
+    protected Derivador mapResultSetToEntity(ResultSet rs, int[] columns) throws SQLException {
+        return new Derivador(rs.getInt(columns[0]), rs.getInt(columns[1]), rs.getDouble(columns[2]),
+                rs.getDouble(columns[3]), rs.getDouble(columns[4]), rs.getDouble(columns[5]),
+                rs.getDouble(columns[6]));
     }
 
     /**
@@ -65,6 +65,17 @@ public class DerivadorDAO extends BaseDAO<Derivador> {
         ps.setDouble(6, entity.getPerdidas_retorno());
     }
 
+    /**
+     * Sets the ID generated for a new Derivador
+     * 
+     * @param entity The Derivador entity that was inserted
+     * @param id The generated ID
+     */
+    @Override
+    protected void setGeneratedId(Derivador entity, int id) {
+        entity.setId_derivadores(id);
+    }
+
     /**
      * Finds a derivador component by its componente ID
      * 
@@ -74,14 +85,6 @@ public class DerivadorDAO extends BaseDAO<Derivador> {
      */
     public Derivador findByComponenteId(int componenteId) throws SQLException {
         String sql = "SELECT * FROM " + getTableName() + " WHERE id_componentes = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setInt(1, componenteId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToEntity(rs);
-                }
-                return null;
-            }
-        }
+        return first(open(sql, componenteId));
     }
 }
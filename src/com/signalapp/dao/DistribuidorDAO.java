@@ -36,14 +36,14 @@ public class DistribuidorDAO extends BaseDAO<Distribuidor> {
      * Maps a ResultSet row to a Distribuidor entity
      * 
      * @param rs The ResultSet containing the database row
+     * @param columns The position of each column in the ResultSet
      * @return A new Distribuidor object with data from the ResultSet
      * @throws SQLException if a database error occurs
      */
     @Override
-    protected Distribuidor mapResultSetToEntity(ResultSet rs) throws SQLException {
-        return new Distribuidor(rs.getInt("id_distribuidores"), rs.getInt("id_componentes"),
-                rs.getInt("numero_salidas"), rs.getDouble("atenuacion_distribucion"),
-                rs.getDouble("desacoplo"), rs.getDouble("perdidas_retorno"));
+    protected Distribuidor mapResultSetToEntity(ResultSet rs, int[] columns) throws SQLException {
+        return new Distribuidor(rs.getInt(columns[0]), rs.getInt(columns[1]), rs.getInt(columns[2]),
+                rs.getDouble(columns[3]), rs.getDouble(columns[4]), rs.getDouble(columns[5]));
     }
 
     /**
@@ -63,6 +63,17 @@ public class DistribuidorDAO extends BaseDAO<Distribuidor> {
         ps.setDouble(5, entity.getPerdidas_retorno());
     }
 
+    /**
+     * Sets the ID generated for a new Distribuidor
+     * 
+     * @param entity The Distribuidor entity that was inserted
+     * @param id The generated ID
+     */
+    @Override
+    protected void setGeneratedId(Distribuidor entity, int id) {
+        entity.setId_distribuidores(id);
+    }
+
     /**
      * Finds a distribuidor component by its componente ID
      * 
@@ -72,14 +83,6 @@ public class DistribuidorDAO extends BaseDAO<Distribuidor> {
      */
     public Distribuidor findByComponenteId(int componenteId) throws SQLException {
         String sql = "SELECT * FROM " + getTableName() + " WHERE id_componentes = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setInt(1, componenteId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToEntity(rs);
-                }
-                return null;
-            }
-        }
+        return first(open(sql, componenteId));
     }
 }
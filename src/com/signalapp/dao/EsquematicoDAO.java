@@ -1,6 +1,8 @@
 package com.signalapp.dao;
 
 import com.signalapp.models.Esquematico;
+import java.io.IOException;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -22,11 +24,10 @@ public class EsquematicoDAO extends BaseDAO<Esquematico> {
     }
 
     @Override
-    protected Esquematico mapResultSetToEntity(ResultSet rs) throws SQLException {
-        return new Esquematico(rs.getInt("id_esquematicos"), rs.getInt("id_simulaciones"),
-                rs.getInt("piso"), rs.getString("tipo_componente"),
-                rs.getString("modelo_componente"), rs.getInt("posicion_x"), rs.getInt("posicion_y"),
-                rs.getString("cable_tipo"));
+    protected Esquematico mapResultSetToEntity(ResultSet rs, int[] columns) throws SQLException {
+        return new Esquematico(rs.getInt(columns[0]), rs.getInt(columns[1]), rs.getInt(columns[2]),
+                rs.getString(columns[3]), rs.getString(columns[4]), rs.getInt(columns[5]),
+                rs.getInt(columns[6]), rs.getString(columns[7]));
     }
 
     @Override
@@ -41,6 +42,11 @@ public class EsquematicoDAO extends BaseDAO<Esquematico> {
         ps.setString(7, entity.getCable_tipo());
     }
 
+    @Override
+    protected void setGeneratedId(Esquematico entity, int id) {
+        entity.setId_esquematicos(id);
+    }
+
     /**
      * Retrieves all schematic components for a specific simulation
      * 
@@ -49,17 +55,33 @@ public class EsquematicoDAO extends BaseDAO<Esquematico> {
      * @throws SQLException if a database error occurs
      */
     public java.util.List<Esquematico> getBySimulacion(int idSimulacion) throws SQLException {
-        String sql = "SELECT * FROM " + getTableName() + " WHERE id_simulaciones = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setInt(1, idSimulacion);
-            try (ResultSet rs = ps.executeQuery()) {
-                java.util.List<Esquematico> esquematicos = new java.util.ArrayList<>();
-                while (rs.next()) {
-                    esquematicos.add(mapResultSetToEntity(rs));
-                }
-                return esquematicos;
-            }
-        }
+        return toList(openBySimulacion(idSimulacion));
+    }
+
+    /**
+     * Reads the schematic components of a simulation, passing each one to the handler as it comes
+     * off the ResultSet
+     * 
+     * @param idSimulacion The ID of the simulation
+     * @param handler Receives each schematic component
+     * @throws SQLException if a database error occurs
+     * @throws IOException if the handler fails
+     */
+    public void forEachBySimulacion(int idSimulacion, RowHandler<? super Esquematico> handler)
+            throws SQLException, IOException {
+        openBySimulacion(idSimulacion).forEachRemaining(handler);
+    }
+
+    /**
+     * Opens a cursor over the schematic components of a simulation
+     * 
+     * @param idSimulacion The ID of the simulation
+     * @return The cursor, which must be closed
+     * @throws SQLException if a database error occurs
+     */
+    public Cursor<Esquematico> openBySimulacion(int idSimulacion) throws SQLException {
+        return open("SELECT * FROM " + getTableName() + " WHERE id_simulaciones = ?",
+                idSimulacion);
     }
 
     /**
@@ -73,17 +95,63 @@ public class EsquematicoDAO extends BaseDAO<Esquematico> {
     public java.util.List<Esquematico> getBySimulacionAndPiso(int idSimulacion, int piso)
             throws SQLException {
         String sql = "SELECT * FROM " + getTableName() + " WHERE id_simulaciones = ? AND piso = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        return toList(open(sql, idSimulacion, piso));
+    }
+
+    /**
+     * Replaces all schematic components of a simulation in a single transaction: the stored ones
+     * are deleted and the new ones inserted in one batch. If anything fails nothing is changed.
+     * 
+     * @param idSimulacion The ID of the simulation
+     * @param esquematicos The new schematic components
+     * @return The IDs generated for the new components, in the same order
+     * @throws SQLException if a database error occurs
+     */
+    public int[] replaceBySimulacion(int idSimulacion, java.util.List<Esquematico> esquematicos)
+            throws SQLException {
+        int[] ids = inTransaction(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "DELETE FROM " + getTableName() + " WHERE id_simulaciones = ?")) {
+                ps.setInt(1, idSimulacion);
+                ps.executeUpdate();
+            }
+            return insertBySimulacion(conn, idSimulacion, esquematicos);
+        });
+        TableVersions.touch(getTableName());
+        return ids;
+    }
+
+    /**
+     * Inserts the schematic components of a simulation that has no components yet, in one batch
+     * on the caller's connection and transaction
+     * 
+     * @param conn The connection to insert with
+     * @param idSimulacion The ID of the simulation
+     * @param esquematicos The schematic components
+     * @return The IDs generated for the components, in the same order
+     * @throws SQLException if a database error occurs
+     */
+    int[] insertBySimulacion(Connection conn, int idSimulacion,
+            java.util.List<Esquematico> esquematicos) throws SQLException {
+        for (Esquematico esquematico : esquematicos) {
+            esquematico.setId_simulaciones(idSimulacion);
+        }
+        insertBatch(conn, esquematicos);
+
+        // Derby only returns the last generated key of a batch. The rows of the simulation are
+        // now exactly the inserted ones, and identities grow in insert order.
+        int[] ids = new int[esquematicos.size()];
+        try (PreparedStatement ps = conn.prepareStatement("SELECT id_esquematicos FROM "
+                + getTableName() + " WHERE id_simulaciones = ? ORDER BY id_esquematicos")) {
             ps.setInt(1, idSimulacion);
-            ps.setInt(2, piso);
             try (ResultSet rs = ps.executeQuery()) {
-                java.util.List<Esquematico> esquematicos = new java.util.ArrayList<>();
-                while (rs.next()) {
-                    esquematicos.add(mapResultSetToEntity(rs));
+                for (int i = 0; i < ids.length && rs.next(); i++) {
+                    ids[i] = rs.getInt(1);
+                    esquematicos.get(i).setId_esquematicos(ids[i]);
                 }
-                return esquematicos;
             }
         }
+        return ids;
     }
 
     /**
@@ -94,9 +162,11 @@ public class EsquematicoDAO extends BaseDAO<Esquematico> {
      */
     public void deleteBySimulacion(int idSimulacion) throws SQLException {
         String sql = "DELETE FROM " + getTableName() + " WHERE id_simulaciones = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, idSimulacion);
             ps.executeUpdate();
         }
+        TableVersions.touch(getTableName());
     }
 }
@@ -35,13 +35,14 @@ public class MargenCalidadDAO extends BaseDAO<MargenCalidad> {
      * Maps a ResultSet row to a MargenCalidad entity
      * 
      * @param rs The ResultSet containing the database row
+     * @param columns The position of each column in the ResultSet
      * @return A new MargenCalidad object with data from the ResultSet
      * @throws SQLException if a database error occurs
      */
     @Override
-    protected MargenCalidad mapResultSetToEntity(ResultSet rs) throws SQLException {
-        return new MargenCalidad(rs.getInt("id_margenes_calidad"), rs.getString("tipo_senal"),
-                rs.getDouble("nivel_minimo"), rs.getDouble("nivel_maximo"));
+    protected MargenCalidad mapResultSetToEntity(ResultSet rs, int[] columns) throws SQLException {
+        return new MargenCalidad(rs.getInt(columns[0]), rs.getString(columns[1]),
+                rs.getDouble(columns[2]), rs.getDouble(columns[3]));
     }
 
     /**
@@ -58,4 +59,32 @@ public class MargenCalidadDAO extends BaseDAO<MargenCalidad> {
         ps.setDouble(2, entity.getNivel_minimo());
         ps.setDouble(3, entity.getNivel_maximo());
     }
+
+    /**
+     * Finds the quality margins of a signal type
+     * 
+     * @param tipoSenal The signal type
+     * @return The margins of that signal type
+     * @throws SQLException if a database error occurs or the signal type has no margins
+     */
+    public MargenCalidad findByTipoSenal(String tipoSenal) throws SQLException {
+        String sql = "SELECT * FROM " + getTableName() + " WHERE tipo_senal = ?";
+        MargenCalidad margen = first(open(sql, tipoSenal));
+        if (margen == null) {
+            throw new SQLException(
+                    "No se encontraron márgenes de calidad para el tipo de señal: " + tipoSenal);
+        }
+        return margen;
+    }
+
+    /**
+     * Sets the ID generated for a new MargenCalidad
+     * 
+     * @param entity The MargenCalidad entity that was inserted
+     * @param id The generated ID
+     */
+    @Override
+    protected void setGeneratedId(MargenCalidad entity, int id) {
+        entity.setId_margenes_calidad(id);
+    }
 }
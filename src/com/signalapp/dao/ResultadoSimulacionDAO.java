@@ -1,10 +1,10 @@
 package com.signalapp.dao;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
 import java.util.List;
 
 import com.signalapp.models.ResultadoSimulacion;
@@ -23,18 +23,20 @@ public class ResultadoSimulacionDAO extends BaseDAO<ResultadoSimulacion> {
     @Override
     protected String[] getColumnNames() {
         return new String[] {"id_resultados_simulacion", "id_simulaciones", "piso", "nivel_senal",
-                "costo_piso", "estado"};
+                "costo_piso", "estado", "montante"};
     }
 
     @Override
-    protected ResultadoSimulacion mapResultSetToEntity(ResultSet rs) throws SQLException {
+    protected ResultadoSimulacion mapResultSetToEntity(ResultSet rs, int[] columns)
+            throws SQLException {
         ResultadoSimulacion resultado = new ResultadoSimulacion();
-        resultado.setId_resultados_simulacion(rs.getInt("id_resultados_simulacion"));
-        resultado.setId_simulaciones(rs.getInt("id_simulaciones"));
-        resultado.setPiso(rs.getInt("piso"));
-        resultado.setNivel_senal(rs.getDouble("nivel_senal"));
-        resultado.setCosto_piso(rs.getDouble("costo_piso"));
-        resultado.setEstado(rs.getString("estado"));
+        resultado.setId_resultados_simulacion(rs.getInt(columns[0]));
+        resultado.setId_simulaciones(rs.getInt(columns[1]));
+        resultado.setPiso(rs.getInt(columns[2]));
+        resultado.setNivel_senal(rs.getDouble(columns[3]));
+        resultado.setCosto_piso(rs.getDouble(columns[4]));
+        resultado.setEstado(rs.getString(columns[5]));
+        resultado.setMontante(rs.getInt(columns[6]));
         return resultado;
     }
 
@@ -46,6 +48,12 @@ public class ResultadoSimulacionDAO extends BaseDAO<ResultadoSimulacion> {
         stmt.setDouble(3, entity.getNivel_senal());
         stmt.setDouble(4, entity.getCosto_piso());
         stmt.setString(5, entity.getEstado());
+        stmt.setInt(6, entity.getMontante());
+    }
+
+    @Override
+    protected void setGeneratedId(ResultadoSimulacion entity, int id) {
+        entity.setId_resultados_simulacion(id);
     }
 
     /**
@@ -56,20 +64,49 @@ public class ResultadoSimulacionDAO extends BaseDAO<ResultadoSimulacion> {
      * @throws SQLException If a database error occurs
      */
     public List<ResultadoSimulacion> findBySimulacionId(int idSimulacion) throws SQLException {
-        List<ResultadoSimulacion> resultados = new ArrayList<>();
-        String sql = "SELECT * FROM resultados_simulacion WHERE id_simulaciones = ? ORDER BY piso";
+        return toList(openBySimulacionId(idSimulacion));
+    }
 
-        try (Connection conn = DerbyConnection.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, idSimulacion);
-            ResultSet rs = stmt.executeQuery();
+    /**
+     * Read the results of a simulation, passing each one to the handler as it comes off the
+     * ResultSet, in the same order as {@link #findBySimulacionId(int)}
+     * 
+     * @param idSimulacion The simulation ID
+     * @param handler Receives each result
+     * @throws SQLException If a database error occurs
+     * @throws IOException If the handler fails
+     */
+    public void forEachBySimulacionId(int idSimulacion,
+            RowHandler<? super ResultadoSimulacion> handler) throws SQLException, IOException {
+        openBySimulacionId(idSimulacion).forEachRemaining(handler);
+    }
 
-            while (rs.next()) {
-                resultados.add(mapResultSetToEntity(rs));
-            }
-        }
+    /**
+     * Open a cursor over the results of a simulation, by riser and floor
+     * 
+     * @param idSimulacion The simulation ID
+     * @return The cursor, which must be closed
+     * @throws SQLException If a database error occurs
+     */
+    public Cursor<ResultadoSimulacion> openBySimulacionId(int idSimulacion) throws SQLException {
+        return open("SELECT * FROM resultados_simulacion WHERE id_simulaciones = ?"
+                + " ORDER BY montante, piso", idSimulacion);
+    }
 
-        return resultados;
+    /**
+     * Insert the results of a simulation in a single transaction, with one prepared statement
+     * executed in batches. If any result fails none is saved.
+     * 
+     * @param idSimulacion The simulation ID
+     * @param resultados The results to insert
+     * @throws SQLException If a database error occurs
+     */
+    public void insertBySimulacionId(int idSimulacion, List<ResultadoSimulacion> resultados)
+            throws SQLException {
+        for (ResultadoSimulacion resultado : resultados) {
+            resultado.setId_simulaciones(idSimulacion);
+        }
+        insertAll(resultados);
     }
 
     /**
@@ -81,10 +118,11 @@ public class ResultadoSimulacionDAO extends BaseDAO<ResultadoSimulacion> {
     public void deleteBySimulacionId(int idSimulacion) throws SQLException {
         String sql = "DELETE FROM resultados_simulacion WHERE id_simulaciones = ?";
 
-        try (Connection conn = DerbyConnection.getConnection();
+        try (Connection conn = getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, idSimulacion);
             stmt.executeUpdate();
         }
+        TableVersions.touch(getTableName());
     }
 }
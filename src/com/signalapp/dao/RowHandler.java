@@ -0,0 +1,20 @@
+package com.signalapp.dao;
+
+import java.io.IOException;
+
+/**
+ * Receives the rows of a query one at a time, as they are read from the ResultSet, so they can be
+ * written out without keeping the whole result in memory
+ *
+ * @param <T> The type of each row
+ */
+@FunctionalInterface
+public interface RowHandler<T> {
+    /**
+     * Handles one row
+     *
+     * @param row The mapped row
+     * @throws IOException if the row cannot be written out
+     */
+    void handle(T row) throws IOException;
+}
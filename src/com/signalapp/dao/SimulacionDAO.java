@@ -1,6 +1,9 @@
 package com.signalapp.dao;
 
+import com.signalapp.models.Esquematico;
+import com.signalapp.models.ResultadoSimulacion;
 import com.signalapp.models.Simulacion;
+import java.io.IOException;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -22,10 +25,10 @@ public class SimulacionDAO extends BaseDAO<Simulacion> {
     }
 
     @Override
-    protected Simulacion mapResultSetToEntity(ResultSet rs) throws SQLException {
-        return new Simulacion(rs.getInt("id_simulaciones"), rs.getInt("id_configuraciones"),
-                rs.getInt("frecuencia"), rs.getString("tipo_senal"), rs.getDouble("costo_total"),
-                rs.getString("estado"), rs.getString("fecha_simulacion"));
+    protected Simulacion mapResultSetToEntity(ResultSet rs, int[] columns) throws SQLException {
+        return new Simulacion(rs.getInt(columns[0]), rs.getInt(columns[1]), rs.getInt(columns[2]),
+                rs.getString(columns[3]), rs.getDouble(columns[4]), rs.getString(columns[5]),
+                rs.getString(columns[6]));
     }
 
     @Override
@@ -39,6 +42,48 @@ public class SimulacionDAO extends BaseDAO<Simulacion> {
         ps.setString(6, entity.getFecha_simulacion());
     }
 
+    @Override
+    protected void setGeneratedId(Simulacion entity, int id) {
+        entity.setId_simulaciones(id);
+    }
+
+    /**
+     * Saves a simulation with its results and schematic in a single transaction. The simulation
+     * row is inserted first and its generated ID is used for the results and schematic
+     * components, which are inserted in one batch each. If anything fails nothing is saved.
+     * 
+     * @param simulacion The simulation; its ID is set once inserted
+     * @param resultados The result of each floor
+     * @param esquematicos The schematic components, may be empty
+     * @return The ID of the new simulation
+     * @throws SQLException if a database error occurs
+     */
+    public int insertWithResults(Simulacion simulacion,
+            java.util.List<ResultadoSimulacion> resultados,
+            java.util.List<Esquematico> esquematicos) throws SQLException {
+        ResultadoSimulacionDAO resultadoDAO = new ResultadoSimulacionDAO();
+        EsquematicoDAO esquematicoDAO = new EsquematicoDAO();
+
+        inTransaction(conn -> {
+            insert(conn, simulacion);
+
+            for (ResultadoSimulacion resultado : resultados) {
+                resultado.setId_simulaciones(simulacion.getId_simulaciones());
+            }
+            resultadoDAO.insertBatch(conn, resultados);
+
+            if (!esquematicos.isEmpty()) {
+                esquematicoDAO.insertBySimulacion(conn, simulacion.getId_simulaciones(),
+                        esquematicos);
+            }
+            return null;
+        });
+        TableVersions.touch(getTableName());
+        TableVersions.touch(resultadoDAO.getTableName());
+        TableVersions.touch(esquematicoDAO.getTableName());
+        return simulacion.getId_simulaciones();
+    }
+
     /**
      * Retrieves all simulations for a specific configuration
      * 
@@ -47,44 +92,203 @@ public class SimulacionDAO extends BaseDAO<Simulacion> {
      * @throws SQLException if a database error occurs
      */
     public java.util.List<Simulacion> getByConfiguracion(int idConfiguracion) throws SQLException {
-        String sql = "SELECT s.*, c.nombre as nombre_edificio, c.nivel_cabecera, c.num_pisos "
-                + "FROM " + getTableName() + " s "
-                + "JOIN configuraciones c ON s.id_configuraciones = c.id_configuraciones "
-                + "WHERE s.id_configuraciones = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setInt(1, idConfiguracion);
-            try (ResultSet rs = ps.executeQuery()) {
-                java.util.List<Simulacion> simulaciones = new java.util.ArrayList<>();
-                while (rs.next()) {
-                    Simulacion simulacion = mapResultSetToEntity(rs);
-                    simulacion.setNombre_edificio(rs.getString("nombre_edificio"));
-                    simulacion.setNivel_cabecera(rs.getDouble("nivel_cabecera"));
-                    simulacion.setNum_pisos(rs.getInt("num_pisos"));
-                    simulaciones.add(simulacion);
-                }
-                return simulaciones;
-            }
-        }
+        return toList(openByConfiguracion(idConfiguracion));
+    }
+
+    /**
+     * Reads the simulations of a configuration, passing each one to the handler as it comes off
+     * the ResultSet
+     * 
+     * @param idConfiguracion The ID of the configuration
+     * @param handler Receives each simulation, with the building data of the configuration
+     * @throws SQLException if a database error occurs
+     * @throws IOException if the handler fails
+     */
+    public void forEachByConfiguracion(int idConfiguracion, RowHandler<? super Simulacion> handler)
+            throws SQLException, IOException {
+        openByConfiguracion(idConfiguracion).forEachRemaining(handler);
     }
 
     /**
-     * Retrieves the latest simulation for a specific configuration
+     * Opens a cursor over the simulations of a configuration
      * 
      * @param idConfiguracion The ID of the configuration
-     * @return The latest simulation, or null if none exists
+     * @return The cursor over the simulations, with the building data of the configuration; it
+     *         must be closed
      * @throws SQLException if a database error occurs
      */
-    public Simulacion getLatestByConfiguracion(int idConfiguracion) throws SQLException {
-        String sql = "SELECT * FROM " + getTableName()
-                + " WHERE id_configuraciones = ? ORDER BY fecha_simulacion DESC FETCH FIRST 1 ROW ONLY";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setInt(1, idConfiguracion);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToEntity(rs);
-                }
-                return null;
+    public Cursor<Simulacion> openByConfiguracion(int idConfiguracion) throws SQLException {
+        return open(selectWithConfiguracion() + "WHERE s.id_configuraciones = ?",
+                namesWithConfiguracion(), this::mapWithConfiguracion, idConfiguracion);
+    }
+
+    /**
+     * Opens a cursor over one page of the history of a configuration, newest first: the
+     * simulations that match the query, ordered by date and then by ID, that come after the last
+     * one of the previous page. Each page is read as a range of the index on (id_configuraciones,
+     * fecha_simulacion, id_simulaciones), however long the history is, and the building data is
+     * read once from the configuration instead of being joined to every row.
+     * 
+     * @param idConfiguracion The ID of the configuration
+     * @param query The filters, the position of the page and its size
+     * @return The cursor over the simulations of the page, with the building data of the
+     *         configuration; it must be closed
+     * @throws SQLException if a database error occurs
+     */
+    public Cursor<Simulacion> openHistory(int idConfiguracion, HistoryQuery query)
+            throws SQLException {
+        com.signalapp.models.Configuracion configuracion =
+                new ConfiguracionDAO().findById(idConfiguracion);
+
+        // Derby does not weigh FETCH FIRST when costing the plan, so without the hint it scans
+        // and sorts the whole history of the configuration for every page
+        StringBuilder sql = new StringBuilder("SELECT * FROM " + getTableName()
+                + " s --DERBY-PROPERTIES index=" + DatabaseSchema.HISTORY_INDEX + "\n"
+                + "WHERE s.id_configuraciones = ?");
+        java.util.List<Object> params = new java.util.ArrayList<>();
+        params.add(idConfiguracion);
+
+        if (query.estado != null) {
+            sql.append(" AND s.estado = ?");
+            params.add(query.estado);
+        }
+        if (query.tipoSenal != null) {
+            sql.append(" AND s.tipo_senal = ?");
+            params.add(query.tipoSenal);
+        }
+        if (query.from != null) {
+            sql.append(" AND s.fecha_simulacion >= ?");
+            params.add(query.from);
+        }
+        if (query.to != null) {
+            sql.append(" AND s.fecha_simulacion < ?");
+            params.add(query.to);
+        }
+        if (query.afterFecha != null) {
+            // The first condition bounds the index range, the second skips the rows already read
+            // at the same date
+            sql.append(" AND s.fecha_simulacion <= ?"
+                    + " AND (s.fecha_simulacion < ? OR s.id_simulaciones < ?)");
+            params.add(query.afterFecha);
+            params.add(query.afterFecha);
+            params.add(query.afterId);
+        }
+        sql.append(" ORDER BY s.fecha_simulacion DESC, s.id_simulaciones DESC"
+                + " FETCH FIRST ? ROWS ONLY");
+        params.add(query.limit);
+
+        return open(sql.toString(), getColumnNames(), (rs, columns) -> {
+            Simulacion simulacion = mapResultSetToEntity(rs, columns);
+            if (configuracion != null) {
+                simulacion.setNombre_edificio(configuracion.getNombre());
+                simulacion.setNivel_cabecera(configuracion.getNivel_cabecera());
+                simulacion.setNum_pisos(configuracion.getNum_pisos());
+            }
+            return simulacion;
+        }, params.toArray());
+    }
+
+    private String selectWithConfiguracion() {
+        return "SELECT s.*, c.nombre as nombre_edificio, c.nivel_cabecera, c.num_pisos "
+                + "FROM " + getTableName() + " s "
+                + "JOIN configuraciones c ON s.id_configuraciones = c.id_configuraciones ";
+    }
+
+    /**
+     * Gets the columns read by {@link #mapWithConfiguracion(ResultSet, int[])}: those of the
+     * table, then the building data
+     */
+    private String[] namesWithConfiguracion() {
+        String[] columns = getColumnNames();
+        String[] names = java.util.Arrays.copyOf(columns, columns.length + 3);
+        names[columns.length] = "nombre_edificio";
+        names[columns.length + 1] = "nivel_cabecera";
+        names[columns.length + 2] = "num_pisos";
+        return names;
+    }
+
+    private Simulacion mapWithConfiguracion(ResultSet rs, int[] columns) throws SQLException {
+        Simulacion simulacion = mapResultSetToEntity(rs, columns);
+        int building = columns.length - 3;
+        simulacion.setNombre_edificio(rs.getString(columns[building]));
+        simulacion.setNivel_cabecera(rs.getDouble(columns[building + 1]));
+        simulacion.setNum_pisos(rs.getInt(columns[building + 2]));
+        return simulacion;
+    }
+
+    /**
+     * Filters and position of a page of the history of a configuration. Filters left null are not
+     * applied.
+     */
+    public static final class HistoryQuery {
+        private String estado;
+        private String tipoSenal;
+        private java.sql.Timestamp from;
+        private java.sql.Timestamp to;
+        private java.sql.Timestamp afterFecha;
+        private int afterId;
+        private int limit = 100;
+
+        /**
+         * Keeps only the simulations with a status
+         * 
+         * @param estado The status, e.g. "ok" or "error"
+         * @return This query
+         */
+        public HistoryQuery estado(String estado) {
+            this.estado = estado;
+            return this;
+        }
+
+        /**
+         * Keeps only the simulations of a signal type
+         * 
+         * @param tipoSenal The signal type
+         * @return This query
+         */
+        public HistoryQuery tipoSenal(String tipoSenal) {
+            this.tipoSenal = tipoSenal;
+            return this;
+        }
+
+        /**
+         * Keeps only the simulations run in a period
+         * 
+         * @param from The earliest date, inclusive, or null
+         * @param to The latest date, exclusive, or null
+         * @return This query
+         */
+        public HistoryQuery between(java.sql.Timestamp from, java.sql.Timestamp to) {
+            this.from = from;
+            this.to = to;
+            return this;
+        }
+
+        /**
+         * Starts the page after the last simulation of the previous one
+         * 
+         * @param fecha The date of the last simulation read
+         * @param id The ID of the last simulation read
+         * @return This query
+         */
+        public HistoryQuery after(java.sql.Timestamp fecha, int id) {
+            this.afterFecha = fecha;
+            this.afterId = id;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of simulations read
+         * 
+         * @param limit The page size, at least 1
+         * @return This query
+         */
+        public HistoryQuery limit(int limit) {
+            if (limit < 1) {
+                throw new IllegalArgumentException("El tamaño de la página debe ser al menos 1");
             }
+            this.limit = limit;
+            return this;
         }
     }
 }
@@ -0,0 +1,199 @@
+package com.signalapp.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prepared statements of one pooled connection, kept open between borrows and keyed by their SQL
+ * text, so preparing the same query again skips parsing and compiling it. Closing a statement
+ * handed out by the cache only clears its parameters and gives it back; the least recently used
+ * ones are closed when there are more than the capacity.
+ *
+ * Only used by the thread that borrowed the connection, so it needs no locking.
+ */
+final class StatementCache {
+    private static final String KEYS_PREFIX = "RETURN_GENERATED_KEYS ";
+
+    private final Connection physical;
+    private final int capacity;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Creates the cache of a connection
+     *
+     * @param physical The connection the statements are prepared on
+     * @param capacity The maximum number of statements kept, 0 to keep none
+     * @param hits Counter of statements found in the cache, shared by the pool
+     * @param misses Counter of statements prepared, shared by the pool
+     */
+    StatementCache(Connection physical, int capacity, AtomicLong hits, AtomicLong misses) {
+        this.physical = physical;
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * Gets a prepared statement for a query, reusing the cached one if it is free
+     *
+     * @param sql The SQL text
+     * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS or Statement.NO_GENERATED_KEYS
+     * @return The statement; closing it gives it back to the cache
+     * @throws SQLException if the statement cannot be prepared
+     */
+    PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        if (capacity == 0) {
+            return physical.prepareStatement(sql, autoGeneratedKeys);
+        }
+
+        // Statements that return the generated keys are kept apart
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? KEYS_PREFIX + sql
+                : sql;
+        Entry entry = entries.get(key);
+        if (entry != null && entry.inUse) {
+            // Prepared twice before closing the first one: the second is not cached
+            misses.incrementAndGet();
+            return physical.prepareStatement(sql, autoGeneratedKeys);
+        }
+        if (entry != null && entry.statement.isClosed()) {
+            entries.remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            entry = new Entry(physical.prepareStatement(sql, autoGeneratedKeys));
+            entries.put(key, entry);
+            evict();
+        } else {
+            hits.incrementAndGet();
+        }
+        entry.inUse = true;
+        return wrap(key, entry);
+    }
+
+    /**
+     * Closes every cached statement
+     */
+    void clear() {
+        for (Entry entry : entries.values()) {
+            closeQuietly(entry.statement);
+        }
+        entries.clear();
+    }
+
+    /**
+     * Closes the least recently used statements over the capacity, skipping those in use
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > capacity && iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+            if (!entry.inUse) {
+                iterator.remove();
+                closeQuietly(entry.statement);
+            }
+        }
+    }
+
+    /**
+     * Gives a statement back to the cache, leaving it ready for the next use. Statements that
+     * cannot be reset are dropped.
+     */
+    private void release(String key, Entry entry) {
+        entry.inUse = false;
+        try {
+            if (entry.resultSet != null) {
+                entry.resultSet.close();
+                entry.resultSet = null;
+            }
+            entry.statement.clearParameters();
+            entry.statement.clearBatch();
+        } catch (SQLException e) {
+            entries.remove(key, entry);
+            closeQuietly(entry.statement);
+        }
+        evict();
+    }
+
+    /**
+     * Wraps a cached statement so that closing it gives it back to the cache. Once closed, the
+     * wrapper refuses any other call.
+     */
+    private PreparedStatement wrap(String key, Entry entry) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean closed;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!closed) {
+                            closed = true;
+                            release(key, entry);
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "Cached " + entry.statement;
+                    default:
+                        if (closed) {
+                            throw new SQLException("La sentencia ya está cerrada");
+                        }
+                        Object result;
+                        try {
+                            result = method.invoke(entry.statement, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                        // Closed with the statement, as callers may leave it open
+                        if (result instanceof ResultSet) {
+                            entry.resultSet = (ResultSet) result;
+                        }
+                        return result;
+                }
+            }
+        };
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(), new Class<?>[] {PreparedStatement.class},
+                handler);
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            // Already unusable
+        }
+    }
+
+    /**
+     * A cached statement and whether it is handed out
+     */
+    private static final class Entry {
+        final PreparedStatement statement;
+        boolean inUse;
+        ResultSet resultSet;
+
+        Entry(PreparedStatement statement) {
+            this.statement = statement;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.signalapp.dao;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory version of each database table, so servlets can tell whether a resource changed
+ * without querying the database. Every write through {@link BaseDAO} touches its table, giving it
+ * a new version from a counter shared by all tables and recording the time of the change.
+ *
+ * Tables that have not been written since the application started have version 0 and the start
+ * time as their modification time. The versions are only valid for this run of the application,
+ * so the tags built from them include a prefix that changes on every start.
+ */
+public final class TableVersions {
+    private static final AtomicLong COUNTER = new AtomicLong();
+    private static final long STARTED = System.currentTimeMillis();
+    private static final String RUN = Long.toString(STARTED, 36);
+
+    private static final Map<String, Stamp> STAMPS = new ConcurrentHashMap<>();
+
+    private TableVersions() {}
+
+    /**
+     * Records a change to a table. Must be called once the change is visible to other
+     * connections; inside a {@link UnitOfWork} the change is recorded when it is committed.
+     *
+     * @param table The table name
+     */
+    public static void touch(String table) {
+        UnitOfWork work = UnitOfWork.current();
+        if (work != null) {
+            work.touch(table);
+            return;
+        }
+        STAMPS.put(table.toLowerCase(), new Stamp(COUNTER.incrementAndGet(),
+                System.currentTimeMillis()));
+    }
+
+    /**
+     * Gets the combined version of a set of tables: the latest version and modification time
+     * among them
+     *
+     * @param tables The names of the tables a resource is read from
+     * @return The version of the resource
+     */
+    public static Stamp get(String... tables) {
+        long version = 0;
+        long modified = STARTED;
+        for (String table : tables) {
+            Stamp stamp = STAMPS.get(table.toLowerCase());
+            if (stamp != null) {
+                version = Math.max(version, stamp.version);
+                modified = Math.max(modified, stamp.modified);
+            }
+        }
+        return new Stamp(version, modified);
+    }
+
+    /**
+     * Version of a table or set of tables
+     */
+    public static final class Stamp {
+        private final long version;
+        private final long modified;
+
+        private Stamp(long version, long modified) {
+            this.version = version;
+            this.modified = modified;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Gets the time of the last change
+         *
+         * @return The modification time (ms since the epoch)
+         */
+        public long getLastModified() {
+            return modified;
+        }
+
+        /**
+         * Gets a tag for this version, unique across runs of the application
+         *
+         * @return The tag
+         */
+        public String getTag() {
+            return RUN + "-" + version;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.signalapp.dao;
 
 import com.signalapp.models.TipoComponente;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -36,13 +37,14 @@ public class TiposComponenteDAO extends BaseDAO<TipoComponente> {
      * Maps a database result set row to a TipoComponente entity.
      * 
      * @param rs The ResultSet containing the database row
+     * @param columns The position of each column in the ResultSet
      * @return A new TipoComponente object with data from the row
      * @throws SQLException if there is an error accessing the ResultSet
      */
     @Override
-    protected TipoComponente mapResultSetToEntity(ResultSet rs) throws SQLException {
-        return new TipoComponente(rs.getInt("id_tipos_componente"), rs.getString("nombre"),
-                rs.getString("descripcion"));
+    protected TipoComponente mapResultSetToEntity(ResultSet rs, int[] columns) throws SQLException {
+        return new TipoComponente(rs.getInt(columns[0]), rs.getString(columns[1]),
+                rs.getString(columns[2]));
     }
 
     /**
@@ -59,6 +61,17 @@ public class TiposComponenteDAO extends BaseDAO<TipoComponente> {
         ps.setString(2, entity.getDescripcion());
     }
 
+    /**
+     * Sets the ID generated for a new TipoComponente
+     * 
+     * @param entity The TipoComponente entity that was inserted
+     * @param id The generated ID
+     */
+    @Override
+    protected void setGeneratedId(TipoComponente entity, int id) {
+        entity.setId_tipos_componente(id);
+    }
+
     /**
      * Retrieves the ID of a component type by its name.
      * 
@@ -68,7 +81,8 @@ public class TiposComponenteDAO extends BaseDAO<TipoComponente> {
      */
     public int getIdByNombre(String nombre) throws SQLException {
         String sql = "SELECT id_tipos_componente FROM " + getTableName() + " WHERE nombre = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, nombre);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
@@ -34,13 +34,14 @@ public class TomaDAO extends BaseDAO<Toma> {
      * Maps a ResultSet row to a Toma entity
      * 
      * @param rs The ResultSet containing the database row
+     * @param columns The position of each column in the ResultSet
      * @return A new Toma object with data from the ResultSet
      * @throws SQLException if a database error occurs
      */
     @Override
-    protected Toma mapResultSetToEntity(ResultSet rs) throws SQLException {
-        return new Toma(rs.getInt("id_tomas"), rs.getInt("id_componentes"),
-                rs.getDouble("atenuacion"), rs.getDouble("desacoplo"));
+    protected Toma mapResultSetToEntity(ResultSet rs, int[] columns) throws SQLException {
+        return new Toma(rs.getInt(columns[0]), rs.getInt(columns[1]), rs.getDouble(columns[2]),
+                rs.getDouble(columns[3]));
     }
 
     /**
@@ -58,6 +59,17 @@ public class TomaDAO extends BaseDAO<Toma> {
         ps.setDouble(3, entity.getDesacoplo());
     }
 
+    /**
+     * Sets the ID generated for a new Toma
+     * 
+     * @param entity The Toma entity that was inserted
+     * @param id The generated ID
+     */
+    @Override
+    protected void setGeneratedId(Toma entity, int id) {
+        entity.setId_tomas(id);
+    }
+
     /**
      * Finds a toma component by its componente ID
      * 
@@ -67,14 +79,6 @@ public class TomaDAO extends BaseDAO<Toma> {
      */
     public Toma findByComponenteId(int componenteId) throws SQLException {
         String sql = "SELECT * FROM " + getTableName() + " WHERE id_componentes = ?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setInt(1, componenteId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToEntity(rs);
-                }
-                return null;
-            }
-        }
+        return first(open(sql, componenteId));
     }
 }
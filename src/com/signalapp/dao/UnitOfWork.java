@@ -0,0 +1,156 @@
+package com.signalapp.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A transaction shared by every DAO used on the current thread until it ends. While a unit of work
+ * is open, all DAO operations of the thread run on its one borrowed connection and nothing is
+ * saved until {@link #commit()}, so writes to several tables are saved together with a single
+ * commit, or not at all:
+ *
+ * <pre>
+ * try (UnitOfWork work = UnitOfWork.begin()) {
+ *     int id = new ComponenteDAO().insert(componente);
+ *     ...
+ *     work.commit();
+ * }
+ * </pre>
+ *
+ * Closing it without committing rolls everything back. The tables written are touched in
+ * {@link TableVersions} once the commit succeeds.
+ */
+public final class UnitOfWork implements AutoCloseable {
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+    private final Connection connection;
+    private final Connection shared;
+    private final Set<String> touched = new LinkedHashSet<>();
+    private boolean ended;
+
+    private UnitOfWork(Connection connection) {
+        this.connection = connection;
+        this.shared = share(connection);
+    }
+
+    /**
+     * Opens a unit of work on the current thread, borrowing the connection it runs on
+     *
+     * @return The unit of work, which must be closed
+     * @throws SQLException if the thread already has one open or no connection can be obtained
+     */
+    public static UnitOfWork begin() throws SQLException {
+        if (CURRENT.get() != null) {
+            throw new SQLException("Ya hay una unidad de trabajo abierta en este hilo");
+        }
+        Connection conn = DerbyConnection.getConnection();
+        try {
+            conn.setAutoCommit(false);
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        UnitOfWork work = new UnitOfWork(conn);
+        CURRENT.set(work);
+        return work;
+    }
+
+    /**
+     * Gets the unit of work open on the current thread
+     *
+     * @return The unit of work, or null if there is none
+     */
+    static UnitOfWork current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Gets the connection of the unit of work. Closing it does nothing; the connection is returned
+     * to the pool when the unit of work ends.
+     */
+    Connection getConnection() throws SQLException {
+        if (ended) {
+            throw new SQLException("La unidad de trabajo ya ha terminado");
+        }
+        return shared;
+    }
+
+    /**
+     * Records a table written in the unit of work, to be touched once it is committed
+     */
+    void touch(String table) {
+        touched.add(table);
+    }
+
+    /**
+     * Saves everything done in the unit of work and ends it
+     *
+     * @throws SQLException if the commit fails, in which case nothing is saved
+     */
+    public void commit() throws SQLException {
+        if (ended) {
+            throw new SQLException("La unidad de trabajo ya ha terminado");
+        }
+        try {
+            connection.commit();
+        } finally {
+            end();
+        }
+        for (String table : touched) {
+            TableVersions.touch(table);
+        }
+    }
+
+    /**
+     * Ends the unit of work, rolling back everything done in it if it was not committed
+     *
+     * @throws SQLException if the rollback fails
+     */
+    @Override
+    public void close() throws SQLException {
+        if (!ended) {
+            try {
+                connection.rollback();
+            } finally {
+                end();
+            }
+        }
+    }
+
+    private void end() throws SQLException {
+        ended = true;
+        CURRENT.remove();
+        // Restores autocommit and returns the connection to the pool
+        connection.close();
+    }
+
+    /**
+     * Wraps the connection so that the DAOs can close it after each operation without ending the
+     * unit of work
+     */
+    private static Connection share(Connection connection) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "close":
+                    return null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, handler);
+    }
+}
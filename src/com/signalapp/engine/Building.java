@@ -0,0 +1,63 @@
+package com.signalapp.engine;
+
+/**
+ * A building with one or more independent risers fed from the same headend. When there is more
+ * than one riser, the headend signal is split between them by a distribuidor, whose attenuation is
+ * lost by every riser and whose cost is paid once. Every riser is a {@link Scenario} with the same
+ * number of floors whose headend level is the level after the splitter.
+ */
+public class Building {
+    private final double nivelCabecera;
+    private final Scenario[] risers;
+    private final String splitterModel;
+    private final double splitterAttenuation;
+    private final double splitterCost;
+
+    /**
+     * Constructor with all fields.
+     *
+     * @param nivelCabecera The signal level at the headend (dBµV).
+     * @param risers The risers, index 0 is riser 1.
+     * @param splitterModel The model of the headend distribuidor, or null if there is none.
+     * @param splitterAttenuation The attenuation of the headend distribuidor (dB).
+     * @param splitterCost The cost of the headend distribuidores.
+     */
+    public Building(double nivelCabecera, Scenario[] risers, String splitterModel,
+            double splitterAttenuation, double splitterCost) {
+        this.nivelCabecera = nivelCabecera;
+        this.risers = risers;
+        this.splitterModel = splitterModel;
+        this.splitterAttenuation = splitterAttenuation;
+        this.splitterCost = splitterCost;
+    }
+
+    public double getNivelCabecera() {
+        return nivelCabecera;
+    }
+
+    public int getNumRisers() {
+        return risers.length;
+    }
+
+    /**
+     * Gets the scenario of a riser
+     *
+     * @param riser The riser number
+     * @return The scenario of the riser
+     */
+    public Scenario getRiser(int riser) {
+        return risers[riser - 1];
+    }
+
+    public String getSplitterModel() {
+        return splitterModel;
+    }
+
+    public double getSplitterAttenuation() {
+        return splitterAttenuation;
+    }
+
+    public double getSplitterCost() {
+        return splitterCost;
+    }
+}
@@ -0,0 +1,33 @@
+package com.signalapp.engine;
+
+/**
+ * Output of {@link SignalEngine} for a {@link Building}: the result of every riser and the total
+ * cost of the building, headend splitter included.
+ */
+public class BuildingResult {
+    private final SignalResult[] risers;
+    private final double totalCost;
+
+    BuildingResult(SignalResult[] risers, double totalCost) {
+        this.risers = risers;
+        this.totalCost = totalCost;
+    }
+
+    public int getNumRisers() {
+        return risers.length;
+    }
+
+    /**
+     * Gets the result of a riser
+     *
+     * @param riser The riser number
+     * @return The per-floor levels and costs of the riser
+     */
+    public SignalResult getRiser(int riser) {
+        return risers[riser - 1];
+    }
+
+    public double getTotalCost() {
+        return totalCost;
+    }
+}
@@ -0,0 +1,160 @@
+package com.signalapp.engine;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of calculation responses, keyed by the SHA-256 hash of the normalised request.
+ * Entries are discarded least recently used first when there are more than {@link #MAX_ENTRIES}
+ * or they take more than {@link #MAX_BYTES}, and expire {@link #TTL_MILLIS} after being stored.
+ *
+ * Keys must include the catalog version, so a catalog reload makes the old entries unreachable
+ * and they age out on their own.
+ */
+public final class CalculationCache {
+    /** Maximum number of responses kept */
+    public static final int MAX_ENTRIES = 256;
+    /** Maximum total size of the responses kept (bytes) */
+    public static final long MAX_BYTES = 32L * 1024 * 1024;
+    /** Time a response stays valid after being stored (ms) */
+    public static final long TTL_MILLIS = 10 * 60 * 1000L;
+
+    private static final CalculationCache INSTANCE = new CalculationCache();
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    private CalculationCache() {}
+
+    /**
+     * Gets the cache shared by the calculation servlets
+     *
+     * @return The shared cache
+     */
+    public static CalculationCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Hashes a normalised request into a cache key
+     *
+     * @param canonical The normalised request
+     * @return The SHA-256 hash in hexadecimal
+     */
+    public static String key(String canonical) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(canonical.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16))
+                        .append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Gets a stored response
+     *
+     * @param key The request key
+     * @return The response bytes, or null if missing or expired
+     */
+    public synchronized byte[] get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expires <= System.currentTimeMillis()) {
+            remove(key);
+            expirations++;
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.body;
+    }
+
+    /**
+     * Stores a response, discarding the least recently used ones if the cache is full. Responses
+     * larger than the whole cache are not stored.
+     *
+     * @param key The request key
+     * @param body The response bytes
+     */
+    public synchronized void put(String key, byte[] body) {
+        if (body.length > MAX_BYTES) {
+            return;
+        }
+        remove(key);
+        entries.put(key, new Entry(body, System.currentTimeMillis() + TTL_MILLIS));
+        bytes += body.length;
+
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > MAX_ENTRIES || bytes > MAX_BYTES) {
+            bytes -= eldest.next().getValue().body.length;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Discards every stored response. The counters are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    private void remove(String key) {
+        Entry old = entries.remove(key);
+        if (old != null) {
+            bytes -= old.body.length;
+        }
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getExpirations() {
+        return expirations;
+    }
+
+    private static final class Entry {
+        final byte[] body;
+        final long expires;
+
+        Entry(byte[] body, long expires) {
+            this.body = body;
+            this.expires = expires;
+        }
+    }
+}
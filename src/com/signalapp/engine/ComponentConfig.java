@@ -0,0 +1,71 @@
+package com.signalapp.engine;
+
+/**
+ * A component placed on a floor of the building, as sent by the simulator: the component type
+ * ("derivador", "distribuidor", "toma" or "coaxial"), its model name, the floor number and the
+ * riser it hangs from.
+ */
+public class ComponentConfig {
+    private final String type;
+    private final String model;
+    private final int floor;
+    private final int riser;
+
+    /**
+     * Constructor for a component on the first riser.
+     *
+     * @param type The component type.
+     * @param model The component model name.
+     * @param floor The floor number (1 is the lowest floor).
+     */
+    public ComponentConfig(String type, String model, int floor) {
+        this(type, model, floor, 1);
+    }
+
+    /**
+     * Constructor with all fields.
+     *
+     * @param type The component type.
+     * @param model The component model name.
+     * @param floor The floor number (1 is the lowest floor).
+     * @param riser The riser number (1 is the first riser).
+     */
+    public ComponentConfig(String type, String model, int floor, int riser) {
+        this.type = type;
+        this.model = model;
+        this.floor = floor;
+        this.riser = riser;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public int getFloor() {
+        return floor;
+    }
+
+    public int getRiser() {
+        return riser;
+    }
+
+    /**
+     * Checks whether this component is of the given type, ignoring case
+     *
+     * @param componentType The type to compare with
+     * @return true if the types match
+     */
+    public boolean isType(String componentType) {
+        return type.equalsIgnoreCase(componentType);
+    }
+
+    @Override
+    public String toString() {
+        return "ComponentConfig{" + "type='" + type + '\'' + ", model='" + model + '\''
+                + ", floor=" + floor + ", riser=" + riser + '}';
+    }
+}
@@ -0,0 +1,301 @@
+package com.signalapp.engine;
+
+import com.signalapp.dao.ComponentCatalog;
+import com.signalapp.models.Componente;
+import com.signalapp.models.Derivador;
+import com.signalapp.models.Distribuidor;
+import com.signalapp.models.Toma;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the cheapest assignment of catalog components for a building where the level at the tomas
+ * of every floor stays inside the quality margins.
+ *
+ * The search is a dynamic program over the floors, from the headend down. The only thing a floor
+ * passes to the floors below is the trunk level left after its derivador and riser cable, so the
+ * state of each stage is that trunk level (merged at {@link #LEVEL_RESOLUTION} dB, keeping the
+ * cheapest way of reaching it). On every floor each state is expanded with every derivador and the
+ * cheapest distribuidor/toma pair that puts the floor inside the margins. The search runs once per
+ * candidate cable and the cheapest design wins.
+ */
+public final class CostOptimizer {
+    /** Trunk levels closer than this are merged into a single state (dB) */
+    public static final double LEVEL_RESOLUTION = 0.01;
+
+    /** Maximum number of distribuidores allowed on a floor */
+    private static final int MAX_DISTRIBUIDORES = 2;
+
+    private CostOptimizer() {}
+
+    /**
+     * Searches the cheapest design
+     *
+     * @param catalog The component catalog snapshot
+     * @param nivelCabecera The signal level at the headend (dBµV)
+     * @param frequency The signal frequency (MHz)
+     * @param nivelMinimo The minimum level allowed at the tomas (dBµV)
+     * @param nivelMaximo The maximum level allowed at the tomas (dBµV)
+     * @param tomasPerFloor Number of tomas on each floor, index 0 is floor 1. Floors with no tomas
+     *        get no components.
+     * @param cableModel The cable to use, or null/empty to try every cable in the catalog
+     * @return The cheapest design, or null if no combination meets the margins
+     * @throws SQLException if the selected cable is not found in the catalog
+     */
+    public static OptimizedDesign optimize(ComponentCatalog catalog, double nivelCabecera,
+            int frequency, double nivelMinimo, double nivelMaximo, int[] tomasPerFloor,
+            String cableModel) throws SQLException {
+        List<Componente> cables = new ArrayList<>();
+        if (cableModel != null && !cableModel.isEmpty()) {
+            Componente cable = catalog.findByModelo(cableModel);
+            if (cable == null || catalog.getCoaxialTable(cable.getId_componentes()) == null) {
+                throw new SQLException("No se encontró el componente: " + cableModel);
+            }
+            cables.add(cable);
+        } else {
+            cables.addAll(catalog.findByTipo(ComponentCatalog.COAXIAL));
+        }
+
+        Search search = new Search(catalog, tomasPerFloor, nivelMinimo, nivelMaximo);
+
+        OptimizedDesign best = null;
+        for (Componente cable : cables) {
+            double attenuation =
+                    catalog.getCoaxialTable(cable.getId_componentes()).attenuation(frequency);
+
+            OptimizedDesign design = search.run(nivelCabecera, cable, attenuation);
+            if (design != null
+                    && (best == null || design.getTotalCost() < best.getTotalCost())) {
+                best = design;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The catalog options of a search, flattened into primitive arrays
+     */
+    private static final class Search {
+        final int[] tomasPerFloor;
+        final double nivelMinimo;
+        final double nivelMaximo;
+
+        // Derivadores
+        final String[] derivadorModels;
+        final double[] derivacion;
+        final double[] paso;
+        final double[] derivadorCost;
+
+        // Valid distribuidor/toma pairs, by number of tomas on the floor
+        final Map<Integer, Pairs> pairsByTomas = new HashMap<>();
+
+        Search(ComponentCatalog catalog, int[] tomasPerFloor, double nivelMinimo,
+                double nivelMaximo) {
+            this.tomasPerFloor = tomasPerFloor;
+            this.nivelMinimo = nivelMinimo;
+            this.nivelMaximo = nivelMaximo;
+
+            List<Componente> derivadores = catalog.findByTipo(ComponentCatalog.DERIVADOR);
+            derivadorModels = new String[derivadores.size()];
+            derivacion = new double[derivadores.size()];
+            paso = new double[derivadores.size()];
+            derivadorCost = new double[derivadores.size()];
+            for (int d = 0; d < derivadores.size(); d++) {
+                Componente componente = derivadores.get(d);
+                Derivador derivador = catalog.getDerivador(componente.getId_componentes());
+                derivadorModels[d] = componente.getModelo();
+                derivacion[d] = derivador.getAtenuacion_derivacion();
+                paso[d] = derivador.getAtenuacion_paso();
+                derivadorCost[d] = componente.getCosto();
+            }
+
+            for (int tomas : tomasPerFloor) {
+                if (tomas > 0 && !pairsByTomas.containsKey(tomas)) {
+                    pairsByTomas.put(tomas, new Pairs(catalog, tomas));
+                }
+            }
+        }
+
+        /**
+         * Runs the dynamic program for one cable
+         */
+        OptimizedDesign run(double nivelCabecera, Componente cable, double cableAttenuation) {
+            int numPisos = tomasPerFloor.length;
+            double inFloorLoss = (cableAttenuation / 100.0) * SignalEngine.IN_FLOOR_CABLE_METERS;
+            double riserLoss = (cableAttenuation / 100.0) * SignalEngine.RISER_CABLE_METERS;
+            double inFloorCableCost = cable.getCosto() * SignalEngine.IN_FLOOR_CABLE_METERS;
+
+            Map<Long, State> states = new HashMap<>();
+            states.put(key(nivelCabecera), new State(nivelCabecera, 0.0, null, -1, -1));
+
+            // Process floors from top to bottom
+            for (int i = numPisos - 1; i >= 0 && !states.isEmpty(); i--) {
+                Map<Long, State> next = new HashMap<>();
+                Pairs pairs = pairsByTomas.get(tomasPerFloor[i]);
+
+                for (State state : states.values()) {
+                    if (pairs == null) {
+                        // Floor without components, the signal just goes down the riser
+                        merge(next, new State(state.trunk - riserLoss, state.cost, state, -1, -1));
+                        continue;
+                    }
+
+                    for (int d = 0; d < derivadorModels.length; d++) {
+                        double tap = state.trunk - derivacion[d] - inFloorLoss;
+                        int pair = pairs.cheapestWithin(tap, nivelMinimo, nivelMaximo);
+                        if (pair < 0) {
+                            continue;
+                        }
+                        double cost = state.cost + derivadorCost[d] + inFloorCableCost
+                                + pairs.distribuidorTotalCost[pair] + pairs.tomaTotalCost[pair];
+                        merge(next, new State(state.trunk - paso[d] - riserLoss, cost, state, d,
+                                pair));
+                    }
+                }
+                states = next;
+            }
+
+            State best = null;
+            for (State state : states.values()) {
+                if (best == null || state.cost < best.cost) {
+                    best = state;
+                }
+            }
+            return best == null ? null : buildDesign(best, cable.getModelo());
+        }
+
+        /**
+         * Walks the winning path back up to the headend and builds the component list
+         */
+        private OptimizedDesign buildDesign(State last, String cableModel) {
+            List<ComponentConfig> components = new ArrayList<>();
+            State state = last;
+            for (int floor = 1; floor <= tomasPerFloor.length; floor++, state = state.parent) {
+                if (state.derivador < 0) {
+                    continue;
+                }
+                Pairs pairs = pairsByTomas.get(tomasPerFloor[floor - 1]);
+                components.add(new ComponentConfig(ComponentCatalog.DERIVADOR,
+                        derivadorModels[state.derivador], floor));
+                for (int n = 0; n < pairs.distribuidorCount[state.pair]; n++) {
+                    components.add(new ComponentConfig(ComponentCatalog.DISTRIBUIDOR,
+                            pairs.distribuidorModel[state.pair], floor));
+                }
+                for (int n = 0; n < tomasPerFloor[floor - 1]; n++) {
+                    components.add(new ComponentConfig(ComponentCatalog.TOMA,
+                            pairs.tomaModel[state.pair], floor));
+                }
+            }
+            Collections.sort(components, (a, b) -> Integer.compare(a.getFloor(), b.getFloor()));
+            return new OptimizedDesign(cableModel, components, last.cost);
+        }
+
+        private static long key(double trunk) {
+            return Math.round(trunk / LEVEL_RESOLUTION);
+        }
+
+        private static void merge(Map<Long, State> states, State candidate) {
+            State existing = states.get(key(candidate.trunk));
+            if (existing == null || candidate.cost < existing.cost) {
+                states.put(key(candidate.trunk), candidate);
+            }
+        }
+    }
+
+    /**
+     * Every valid distribuidor/toma combination for a given number of tomas on a floor
+     */
+    private static final class Pairs {
+        final String[] distribuidorModel;
+        final int[] distribuidorCount;
+        final double[] distribucion;
+        final double[] distribuidorTotalCost;
+        final String[] tomaModel;
+        final double[] tomaAttenuation;
+        final double[] tomaTotalCost;
+        final int size;
+
+        Pairs(ComponentCatalog catalog, int tomas) {
+            List<Componente> distribuidores = catalog.findByTipo(ComponentCatalog.DISTRIBUIDOR);
+            List<Componente> tomaList = catalog.findByTipo(ComponentCatalog.TOMA);
+            int capacity = distribuidores.size() * tomaList.size();
+            distribuidorModel = new String[capacity];
+            distribuidorCount = new int[capacity];
+            distribucion = new double[capacity];
+            distribuidorTotalCost = new double[capacity];
+            tomaModel = new String[capacity];
+            tomaAttenuation = new double[capacity];
+            tomaTotalCost = new double[capacity];
+
+            int n = 0;
+            for (Componente distribuidorComponente : distribuidores) {
+                Distribuidor distribuidor =
+                        catalog.getDistribuidor(distribuidorComponente.getId_componentes());
+                int salidas = distribuidor.getNumero_salidas();
+                if (salidas <= 0) {
+                    continue;
+                }
+                // Enough distribuidores to feed every toma on the floor
+                int count = (tomas + salidas - 1) / salidas;
+                if (count > MAX_DISTRIBUIDORES) {
+                    continue;
+                }
+                for (Componente tomaComponente : tomaList) {
+                    Toma toma = catalog.getToma(tomaComponente.getId_componentes());
+                    distribuidorModel[n] = distribuidorComponente.getModelo();
+                    distribuidorCount[n] = count;
+                    distribucion[n] = distribuidor.getAtenuacion_distribucion();
+                    distribuidorTotalCost[n] = count * distribuidorComponente.getCosto();
+                    tomaModel[n] = tomaComponente.getModelo();
+                    tomaAttenuation[n] = toma.getAtenuacion();
+                    tomaTotalCost[n] = tomas * tomaComponente.getCosto();
+                    n++;
+                }
+            }
+            size = n;
+        }
+
+        /**
+         * Finds the cheapest pair that leaves the floor level inside the margins
+         *
+         * @param tap The level after the derivador and the in-floor cable (dBµV)
+         * @return The index of the pair, or -1 if none fits
+         */
+        int cheapestWithin(double tap, double nivelMinimo, double nivelMaximo) {
+            int best = -1;
+            double bestCost = Double.MAX_VALUE;
+            for (int p = 0; p < size; p++) {
+                double level = tap - distribucion[p] - tomaAttenuation[p];
+                double cost = distribuidorTotalCost[p] + tomaTotalCost[p];
+                if (level >= nivelMinimo && level <= nivelMaximo && cost < bestCost) {
+                    best = p;
+                    bestCost = cost;
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * A node of the search: the trunk level below a floor and the cheapest way found to reach it
+     */
+    private static final class State {
+        final double trunk;
+        final double cost;
+        final State parent;
+        final int derivador;
+        final int pair;
+
+        State(double trunk, double cost, State parent, int derivador, int pair) {
+            this.trunk = trunk;
+            this.cost = cost;
+            this.parent = parent;
+            this.derivador = derivador;
+            this.pair = pair;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.signalapp.engine;
+
+import com.signalapp.dao.ComponentCatalog;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A calculated building that can be edited floor by floor. It keeps the trunk level entering
+ * every floor, so after an edit only the edited floor and the floors below it are evaluated again,
+ * starting from the stored trunk level.
+ *
+ * Instances are not thread-safe; callers editing the same calculation from several threads must
+ * synchronize on it.
+ */
+public class IncrementalCalculation {
+    private long catalogVersion;
+    private final int frequency;
+    private final String cableModel;
+    private final Scenario scenario;
+    private final List<List<ComponentConfig>> componentsByFloor;
+
+    // Per-floor state, index 0 is floor 1
+    private final double[] trunks;
+    private final double[] levels;
+    private final double[] floorCosts;
+    private double totalCost;
+
+    /**
+     * Resolves and calculates a building
+     *
+     * @param catalog The component catalog snapshot
+     * @param numPisos The number of floors
+     * @param nivelCabecera The signal level at the headend (dBµV)
+     * @param components The components of the building
+     * @param frequency The signal frequency (MHz)
+     * @param cableModel The selected cable model, or null/empty for no cable losses
+     * @throws SQLException if a floor is not valid or a component is not found in the catalog
+     */
+    public IncrementalCalculation(ComponentCatalog catalog, int numPisos, double nivelCabecera,
+            List<ComponentConfig> components, int frequency, String cableModel)
+            throws SQLException {
+        ScenarioResolver.validate(components);
+
+        this.catalogVersion = catalog.getVersion();
+        this.frequency = frequency;
+        this.cableModel = cableModel;
+        this.scenario = ScenarioResolver.resolve(catalog, numPisos, nivelCabecera, components,
+                frequency, cableModel);
+
+        this.componentsByFloor = new ArrayList<>(numPisos);
+        Map<Integer, List<ComponentConfig>> grouped = ScenarioResolver.groupByFloor(components);
+        for (int floor = 1; floor <= numPisos; floor++) {
+            List<ComponentConfig> floorComponents = grouped.get(floor);
+            componentsByFloor.add(floorComponents == null ? Collections.emptyList()
+                    : Collections.unmodifiableList(floorComponents));
+        }
+
+        this.trunks = new double[numPisos];
+        this.levels = new double[numPisos];
+        this.floorCosts = new double[numPisos];
+        recalculateFrom(numPisos);
+    }
+
+    /**
+     * Checks whether this calculation was resolved against the given catalog snapshot
+     *
+     * @param catalog The current catalog snapshot
+     * @return true if no component has changed since the calculation was resolved
+     */
+    public boolean isCurrent(ComponentCatalog catalog) {
+        return catalogVersion == catalog.getVersion();
+    }
+
+    /**
+     * Resolves every floor again against a new catalog snapshot and recalculates the building. If
+     * it fails the building is left partly resolved, and the calculation must be discarded.
+     *
+     * @param catalog The current catalog snapshot
+     * @throws SQLException if a component no longer exists in the catalog
+     */
+    public void refresh(ComponentCatalog catalog) throws SQLException {
+        if (cableModel != null && !cableModel.isEmpty()) {
+            ScenarioResolver.setCable(catalog, scenario, cableModel, frequency);
+        }
+        for (int floor = 1; floor <= scenario.numPisos; floor++) {
+            ScenarioResolver.resolveFloor(catalog, scenario, floor,
+                    componentsByFloor.get(floor - 1));
+        }
+        catalogVersion = catalog.getVersion();
+        recalculateFrom(scenario.numPisos);
+    }
+
+    /**
+     * Applies an edit and recalculates the affected floors. Either the whole edit is applied or,
+     * if a floor is not valid, none of it.
+     *
+     * @param catalog The component catalog snapshot
+     * @param nivelCabecera The new headend level, or null to keep the current one
+     * @param floors The new components of each edited floor; an empty list clears the floor
+     * @return The floors whose level, cost or components changed, in ascending order
+     * @throws SQLException if an edited floor is not valid or a component is not found
+     */
+    public int[] apply(ComponentCatalog catalog, Double nivelCabecera,
+            Map<Integer, List<ComponentConfig>> floors) throws SQLException {
+        for (Map.Entry<Integer, List<ComponentConfig>> entry : floors.entrySet()) {
+            int floor = entry.getKey();
+            if (floor < 1 || floor > scenario.numPisos) {
+                throw new SQLException("El piso " + floor + " no existe en el edificio");
+            }
+            if (!entry.getValue().isEmpty()) {
+                ScenarioResolver.requireSingleRiser(entry.getValue());
+                ScenarioResolver.validateFloor(floor, entry.getValue());
+            }
+        }
+
+        int topFloor = 0;
+        List<Integer> resolved = new ArrayList<>();
+        try {
+            for (Map.Entry<Integer, List<ComponentConfig>> entry : floors.entrySet()) {
+                resolved.add(entry.getKey());
+                ScenarioResolver.resolveFloor(catalog, scenario, entry.getKey(),
+                        entry.getValue());
+                topFloor = Math.max(topFloor, entry.getKey());
+            }
+        } catch (SQLException e) {
+            // Put back the floors resolved so far
+            for (int floor : resolved) {
+                ScenarioResolver.resolveFloor(catalog, scenario, floor,
+                        componentsByFloor.get(floor - 1));
+            }
+            throw e;
+        }
+
+        TreeSet<Integer> changed = new TreeSet<>();
+        for (Map.Entry<Integer, List<ComponentConfig>> entry : floors.entrySet()) {
+            componentsByFloor.set(entry.getKey() - 1,
+                    Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+            changed.add(entry.getKey());
+        }
+        if (nivelCabecera != null && nivelCabecera != scenario.nivelCabecera) {
+            scenario.setNivelCabecera(nivelCabecera);
+            topFloor = scenario.numPisos;
+        }
+        if (topFloor == 0) {
+            return new int[0];
+        }
+
+        double[] oldLevels = Arrays.copyOf(levels, topFloor);
+        double[] oldCosts = Arrays.copyOf(floorCosts, topFloor);
+        recalculateFrom(topFloor);
+        for (int i = 0; i < topFloor; i++) {
+            if (levels[i] != oldLevels[i] || floorCosts[i] != oldCosts[i]) {
+                changed.add(i + 1);
+            }
+        }
+
+        int[] result = new int[changed.size()];
+        int n = 0;
+        for (int floor : changed) {
+            result[n++] = floor;
+        }
+        return result;
+    }
+
+    /**
+     * Evaluates the floors from the given one down and updates the total cost
+     */
+    private void recalculateFrom(int floor) {
+        if (floor < 1) {
+            return;
+        }
+        if (floor == scenario.numPisos) {
+            trunks[floor - 1] = scenario.nivelCabecera;
+        }
+        SignalEngine.evaluateFrom(scenario, floor, trunks, levels, floorCosts);
+
+        // Same summation order as a full calculation, from the top floor down
+        double total = 0.0;
+        for (int i = scenario.numPisos - 1; i >= 0; i--) {
+            total += floorCosts[i];
+        }
+        totalCost = total;
+    }
+
+    public Scenario getScenario() {
+        return scenario;
+    }
+
+    public int getNumPisos() {
+        return scenario.numPisos;
+    }
+
+    /**
+     * Gets the signal level at the tomas of a floor
+     *
+     * @param floor The floor number
+     * @return The signal level (dBµV)
+     */
+    public double getLevel(int floor) {
+        return levels[floor - 1];
+    }
+
+    /**
+     * Gets the cost of the components installed on a floor
+     *
+     * @param floor The floor number
+     * @return The floor cost
+     */
+    public double getFloorCost(int floor) {
+        return floorCosts[floor - 1];
+    }
+
+    public double getTotalCost() {
+        return totalCost;
+    }
+}
@@ -0,0 +1,39 @@
+package com.signalapp.engine;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A design found by {@link CostOptimizer}: the selected cable and the components of every floor,
+ * in the same form the simulator sends them to the calculation.
+ */
+public class OptimizedDesign {
+    private final String cableModel;
+    private final List<ComponentConfig> components;
+    private final double totalCost;
+
+    /**
+     * Constructor with all fields.
+     *
+     * @param cableModel The selected cable model.
+     * @param components The components of the building, ordered by floor.
+     * @param totalCost The total cost of the building.
+     */
+    public OptimizedDesign(String cableModel, List<ComponentConfig> components, double totalCost) {
+        this.cableModel = cableModel;
+        this.components = Collections.unmodifiableList(components);
+        this.totalCost = totalCost;
+    }
+
+    public String getCableModel() {
+        return cableModel;
+    }
+
+    public List<ComponentConfig> getComponents() {
+        return components;
+    }
+
+    public double getTotalCost() {
+        return totalCost;
+    }
+}
@@ -0,0 +1,211 @@
+package com.signalapp.engine;
+
+/**
+ * A fully resolved building scenario: headend level, selected cable and the attenuation and cost
+ * of the components installed on every floor. All component lookups have already been done, so
+ * {@link SignalEngine} can evaluate it without any database or catalog access.
+ *
+ * Floors are numbered from 1 (lowest) to {@link #getNumPisos()} (highest, closest to the headend).
+ * Missing components are represented with zero attenuation and zero cost.
+ */
+public class Scenario {
+    final int numPisos;
+    double nivelCabecera;
+
+    // Selected cable, attenuation in dB/100m at the scenario frequency and cost per meter
+    boolean hasCable;
+    String cableModel;
+    double cableAttenuation;
+    double cableCost;
+
+    // Per-floor parameters, index 0 is floor 1
+    final boolean[] hasComponents;
+    final String[] derivadorModel;
+    final double[] derivacion;
+    final double[] paso;
+    final double[] derivadorCost;
+    final String[] distribuidorModel;
+    final double[] distribucion;
+    final double[] distribuidorCost;
+    final double[] distribuidorTotalCost;
+    final String[] tomaModel;
+    final double[] tomaAttenuation;
+    final double[] tomaCost;
+    final double[] tomaTotalCost;
+
+    /**
+     * Creates an empty scenario with no components on any floor
+     *
+     * @param numPisos The number of floors
+     * @param nivelCabecera The signal level at the headend (dBµV)
+     */
+    public Scenario(int numPisos, double nivelCabecera) {
+        this.numPisos = numPisos;
+        this.nivelCabecera = nivelCabecera;
+        this.hasComponents = new boolean[numPisos];
+        this.derivadorModel = new String[numPisos];
+        this.derivacion = new double[numPisos];
+        this.paso = new double[numPisos];
+        this.derivadorCost = new double[numPisos];
+        this.distribuidorModel = new String[numPisos];
+        this.distribucion = new double[numPisos];
+        this.distribuidorCost = new double[numPisos];
+        this.distribuidorTotalCost = new double[numPisos];
+        this.tomaModel = new String[numPisos];
+        this.tomaAttenuation = new double[numPisos];
+        this.tomaCost = new double[numPisos];
+        this.tomaTotalCost = new double[numPisos];
+    }
+
+    /**
+     * Sets the cable used for the in-floor runs and the riser between floors
+     *
+     * @param model The cable model name
+     * @param attenuation The cable attenuation at the scenario frequency (dB/100m)
+     * @param costPerMeter The cable cost per meter
+     */
+    public void setCable(String model, double attenuation, double costPerMeter) {
+        this.hasCable = true;
+        this.cableModel = model;
+        this.cableAttenuation = attenuation;
+        this.cableCost = costPerMeter;
+    }
+
+    /**
+     * Marks a floor as having components, which adds the in-floor cable run to it
+     *
+     * @param floor The floor number
+     * @param hasComponents true if the floor has at least one component
+     */
+    public void setHasComponents(int floor, boolean hasComponents) {
+        this.hasComponents[floor - 1] = hasComponents;
+    }
+
+    /**
+     * Sets the derivador installed on a floor
+     *
+     * @param floor The floor number
+     * @param model The derivador model name
+     * @param derivacion Tap attenuation towards the floor (dB)
+     * @param paso Pass-through attenuation towards the floors below (dB)
+     * @param cost The derivador cost
+     */
+    public void setDerivador(int floor, String model, double derivacion, double paso,
+            double cost) {
+        int i = floor - 1;
+        this.derivadorModel[i] = model;
+        this.derivacion[i] = derivacion;
+        this.paso[i] = paso;
+        this.derivadorCost[i] = cost;
+    }
+
+    /**
+     * Sets the distribuidores installed on a floor. Only the first one attenuates the signal, but
+     * all of them are paid for.
+     *
+     * @param floor The floor number
+     * @param model The model of the first distribuidor
+     * @param attenuation Distribution attenuation of the first distribuidor (dB)
+     * @param cost The cost of the first distribuidor
+     * @param totalCost The cost of all distribuidores on the floor
+     */
+    public void setDistribuidor(int floor, String model, double attenuation, double cost,
+            double totalCost) {
+        int i = floor - 1;
+        this.distribuidorModel[i] = model;
+        this.distribucion[i] = attenuation;
+        this.distribuidorCost[i] = cost;
+        this.distribuidorTotalCost[i] = totalCost;
+    }
+
+    /**
+     * Sets the tomas installed on a floor. All tomas on a floor share the attenuation of the first
+     * one, but all of them are paid for.
+     *
+     * @param floor The floor number
+     * @param model The model of the first toma
+     * @param attenuation Attenuation of the first toma (dB)
+     * @param cost The cost of the first toma
+     * @param totalCost The cost of all tomas on the floor
+     */
+    public void setToma(int floor, String model, double attenuation, double cost,
+            double totalCost) {
+        int i = floor - 1;
+        this.tomaModel[i] = model;
+        this.tomaAttenuation[i] = attenuation;
+        this.tomaCost[i] = cost;
+        this.tomaTotalCost[i] = totalCost;
+    }
+
+    public int getNumPisos() {
+        return numPisos;
+    }
+
+    public double getNivelCabecera() {
+        return nivelCabecera;
+    }
+
+    public void setNivelCabecera(double nivelCabecera) {
+        this.nivelCabecera = nivelCabecera;
+    }
+
+    public boolean hasCable() {
+        return hasCable;
+    }
+
+    public String getCableModel() {
+        return cableModel;
+    }
+
+    public double getCableAttenuation() {
+        return cableAttenuation;
+    }
+
+    public double getCableCost() {
+        return cableCost;
+    }
+
+    public boolean hasComponents(int floor) {
+        return hasComponents[floor - 1];
+    }
+
+    public String getDerivadorModel(int floor) {
+        return derivadorModel[floor - 1];
+    }
+
+    public double getDerivacion(int floor) {
+        return derivacion[floor - 1];
+    }
+
+    public double getPaso(int floor) {
+        return paso[floor - 1];
+    }
+
+    public double getDerivadorCost(int floor) {
+        return derivadorCost[floor - 1];
+    }
+
+    public String getDistribuidorModel(int floor) {
+        return distribuidorModel[floor - 1];
+    }
+
+    public double getDistribucion(int floor) {
+        return distribucion[floor - 1];
+    }
+
+    public double getDistribuidorCost(int floor) {
+        return distribuidorCost[floor - 1];
+    }
+
+    public String getTomaModel(int floor) {
+        return tomaModel[floor - 1];
+    }
+
+    public double getTomaAttenuation(int floor) {
+        return tomaAttenuation[floor - 1];
+    }
+
+    public double getTomaCost(int floor) {
+        return tomaCost[floor - 1];
+    }
+}
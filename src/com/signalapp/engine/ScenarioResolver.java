@@ -0,0 +1,399 @@
+package com.signalapp.engine;
+
+import com.signalapp.dao.CoaxialAttenuationTable;
+import com.signalapp.dao.ComponentCatalog;
+import com.signalapp.models.Componente;
+import com.signalapp.models.Derivador;
+import com.signalapp.models.Distribuidor;
+import com.signalapp.models.Toma;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Validates the components sent by the simulator and resolves them against the
+ * {@link ComponentCatalog} into a {@link Scenario} that {@link SignalEngine} can evaluate.
+ */
+public final class ScenarioResolver {
+    /** Maximum number of floors of a building, or of each riser of it */
+    public static final int MAX_PISOS = 10000;
+
+    private ScenarioResolver() {}
+
+    /**
+     * Validates the component configuration for logical errors
+     *
+     * @param components The components of the building
+     * @throws SQLException if a floor breaks the component limits or hierarchy
+     */
+    public static void validate(List<ComponentConfig> components) throws SQLException {
+        for (Map.Entry<Integer, List<ComponentConfig>> riser : groupByRiser(components)
+                .entrySet()) {
+            for (Map.Entry<Integer, List<ComponentConfig>> entry : groupByFloor(riser.getValue())
+                    .entrySet()) {
+                try {
+                    validateFloor(entry.getKey(), entry.getValue());
+                } catch (SQLException e) {
+                    if (riser.getKey() == 1) {
+                        throw e;
+                    }
+                    throw new SQLException("Montante " + riser.getKey() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Validates the components of a single floor
+     *
+     * @param floorNum The floor number
+     * @param floorComponents The components on that floor
+     * @throws SQLException if the floor breaks the component limits or hierarchy
+     */
+    public static void validateFloor(int floorNum, List<ComponentConfig> floorComponents)
+            throws SQLException {
+        // Count components by type
+        int derivadores = 0;
+        int distribuidores = 0;
+        int tomas = 0;
+        for (ComponentConfig config : floorComponents) {
+            if (config.isType(ComponentCatalog.DERIVADOR)) {
+                derivadores++;
+            } else if (config.isType(ComponentCatalog.DISTRIBUIDOR)) {
+                distribuidores++;
+            } else if (config.isType(ComponentCatalog.TOMA)) {
+                tomas++;
+            }
+        }
+
+        // Check component limits
+        if (derivadores > 1) {
+            throw new SQLException("No se permite más de un derivador en el piso " + floorNum);
+        }
+        if (distribuidores > 2) {
+            throw new SQLException("No se permite más de un distribuidor en el piso " + floorNum);
+        }
+        if (tomas != 2 && tomas != 4 && tomas != 6 && tomas != 8) {
+            throw new SQLException("El piso " + floorNum + " debe tener 2 o 4 tomas por cada lado");
+        }
+
+        // Check component hierarchy
+        boolean hasDerivador = derivadores > 0;
+        boolean hasDistribuidor = distribuidores > 0;
+        boolean hasTomas = tomas > 0;
+
+        // Validate component relationships
+        if (hasTomas && !hasDistribuidor) {
+            throw new SQLException("El piso " + floorNum
+                    + " tiene tomas pero no tiene distribuidor. Debe añadir un distribuidor antes de añadir tomas.");
+        }
+
+        if (hasDistribuidor && !hasDerivador) {
+            throw new SQLException("El piso " + floorNum
+                    + " tiene distribuidor pero no tiene derivador. Debe añadir un derivador antes de añadir distribuidores.");
+        }
+
+        if (hasDistribuidor && !hasTomas) {
+            throw new SQLException("El piso " + floorNum
+                    + " tiene distribuidor pero no tiene tomas. Debe añadir tomas cuando hay un distribuidor.");
+        }
+
+        if (hasDerivador && !hasDistribuidor && !hasTomas) {
+            throw new SQLException("El piso " + floorNum
+                    + " tiene solo un derivador. Debe añadir al menos un distribuidor o tomas.");
+        }
+    }
+
+    /**
+     * Checks that every component hangs from the first riser, for the calculations that only
+     * support buildings with a single riser
+     *
+     * @param components The components of the building
+     * @throws SQLException if a component belongs to another riser
+     */
+    public static void requireSingleRiser(List<ComponentConfig> components) throws SQLException {
+        for (ComponentConfig config : components) {
+            if (config.getRiser() != 1) {
+                throw new SQLException("El componente " + config.getModel() + " del piso "
+                        + config.getFloor() + " está en el montante " + config.getRiser()
+                        + ", pero este cálculo solo admite un montante");
+            }
+        }
+    }
+
+    /**
+     * Resolves the components of a building with a single riser into a scenario. Buildings with
+     * several risers are resolved with
+     * {@link #resolveBuilding(ComponentCatalog, int, double, List, int, String, int, String)}.
+     *
+     * @param catalog The component catalog snapshot
+     * @param numPisos The number of floors
+     * @param nivelCabecera The signal level at the headend (dBµV)
+     * @param components The components of the building
+     * @param frequency The signal frequency (MHz)
+     * @param cableModel The selected cable model, or null/empty for no cable losses
+     * @return The resolved scenario
+     * @throws SQLException if the number of floors is out of range, a component belongs to
+     *         another riser or is not found in the catalog
+     */
+    public static Scenario resolve(ComponentCatalog catalog, int numPisos, double nivelCabecera,
+            List<ComponentConfig> components, int frequency, String cableModel)
+            throws SQLException {
+        requireSingleRiser(components);
+        return resolveRiser(catalog, numPisos, nivelCabecera, components, frequency, cableModel);
+    }
+
+    /**
+     * Resolves the components of one riser into a scenario, whatever riser they belong to
+     */
+    private static Scenario resolveRiser(ComponentCatalog catalog, int numPisos,
+            double nivelCabecera, List<ComponentConfig> components, int frequency,
+            String cableModel) throws SQLException {
+        if (numPisos < 1 || numPisos > MAX_PISOS) {
+            throw new SQLException("El número de pisos debe estar entre 1 y " + MAX_PISOS);
+        }
+        Scenario scenario = new Scenario(numPisos, nivelCabecera);
+        if (cableModel != null && !cableModel.isEmpty()) {
+            setCable(catalog, scenario, cableModel, frequency);
+        }
+
+        Map<Integer, List<ComponentConfig>> componentsByFloor = groupByFloor(components);
+        for (int floor = 1; floor <= numPisos; floor++) {
+            List<ComponentConfig> floorComponents = componentsByFloor.get(floor);
+            if (floorComponents != null) {
+                resolveFloor(catalog, scenario, floor, floorComponents);
+            }
+        }
+        return scenario;
+    }
+
+    /**
+     * Resolves the components of a building with several risers fed from the same headend
+     *
+     * @param catalog The component catalog snapshot
+     * @param numPisos The number of floors of every riser
+     * @param nivelCabecera The signal level at the headend (dBµV)
+     * @param components The components of the building, with the riser they belong to
+     * @param frequency The signal frequency (MHz)
+     * @param cableModel The selected cable model, or null/empty for no cable losses
+     * @param numRisers The number of risers
+     * @param splitterModel The distribuidor that splits the headend signal between the risers;
+     *        it may only be null/empty if there is a single riser
+     * @return The resolved building
+     * @throws SQLException if a component is not found in the catalog, a component references a
+     *         riser that does not exist, there are several risers and no splitter or the splitter
+     *         does not have enough outputs
+     */
+    public static Building resolveBuilding(ComponentCatalog catalog, int numPisos,
+            double nivelCabecera, List<ComponentConfig> components, int frequency,
+            String cableModel, int numRisers, String splitterModel) throws SQLException {
+        if (numRisers < 1) {
+            throw new SQLException("El número de montantes debe ser mayor que 0");
+        }
+
+        double splitterAttenuation = 0.0;
+        double splitterCost = 0.0;
+        if (splitterModel != null && !splitterModel.isEmpty()) {
+            Componente componente = findComponente(catalog, splitterModel);
+            Distribuidor distribuidor = catalog.getDistribuidor(componente.getId_componentes());
+            if (distribuidor == null) {
+                throw new SQLException("Tipo de componente no válido: " + splitterModel);
+            }
+            if (distribuidor.getNumero_salidas() < numRisers) {
+                throw new SQLException("El distribuidor de cabecera " + splitterModel
+                        + " no tiene salidas suficientes para " + numRisers + " montantes");
+            }
+            splitterAttenuation = distribuidor.getAtenuacion_distribucion();
+            splitterCost = componente.getCosto();
+        } else if (numRisers > 1) {
+            // The headend signal cannot feed several risers without being split
+            throw new SQLException("Un edificio con " + numRisers
+                    + " montantes necesita un distribuidor de cabecera (riser_splitter)");
+        }
+
+        Map<Integer, List<ComponentConfig>> componentsByRiser = groupByRiser(components);
+        for (int riser : componentsByRiser.keySet()) {
+            if (riser < 1 || riser > numRisers) {
+                throw new SQLException("El montante " + riser + " no existe en el edificio");
+            }
+        }
+
+        Scenario[] risers = new Scenario[numRisers];
+        for (int r = 1; r <= numRisers; r++) {
+            List<ComponentConfig> riserComponents = componentsByRiser.get(r);
+            risers[r - 1] = resolveRiser(catalog, numPisos, nivelCabecera - splitterAttenuation,
+                    riserComponents != null ? riserComponents : new ArrayList<>(), frequency,
+                    cableModel);
+        }
+        return new Building(nivelCabecera, risers, splitterModel, splitterAttenuation,
+                splitterCost);
+    }
+
+    /**
+     * Resolves the selected cable at the given frequency and sets it on the scenario
+     *
+     * @param catalog The component catalog snapshot
+     * @param scenario The scenario to update
+     * @param cableModel The cable model name
+     * @param frequency The signal frequency (MHz)
+     * @throws SQLException if the cable is not found in the catalog
+     */
+    public static void setCable(ComponentCatalog catalog, Scenario scenario, String cableModel,
+            int frequency) throws SQLException {
+        Componente componente = findComponente(catalog, cableModel);
+        CoaxialAttenuationTable table = catalog.getCoaxialTable(componente.getId_componentes());
+        if (table == null) {
+            throw new SQLException("Tipo de componente no válido: " + cableModel);
+        }
+        scenario.setCable(cableModel, table.attenuation(frequency), componente.getCosto());
+    }
+
+    /**
+     * Gets the attenuation of a cable at each of the given frequencies
+     *
+     * @param catalog The component catalog snapshot
+     * @param cableModel The cable model name, or null/empty for no cable
+     * @param frequencies The frequencies (MHz)
+     * @return The attenuation at each frequency (dB/100m), all zero if there is no cable
+     * @throws SQLException if the cable is not found in the catalog
+     */
+    public static double[] cableAttenuations(ComponentCatalog catalog, String cableModel,
+            int[] frequencies) throws SQLException {
+        double[] attenuations = new double[frequencies.length];
+        if (cableModel == null || cableModel.isEmpty()) {
+            return attenuations;
+        }
+
+        Componente componente = findComponente(catalog, cableModel);
+        CoaxialAttenuationTable table = catalog.getCoaxialTable(componente.getId_componentes());
+        if (table == null) {
+            throw new SQLException("Tipo de componente no válido: " + cableModel);
+        }
+        for (int k = 0; k < frequencies.length; k++) {
+            attenuations[k] = table.attenuation(frequencies[k]);
+        }
+        return attenuations;
+    }
+
+    /**
+     * Resolves the components of one floor and sets them on the scenario
+     *
+     * @param catalog The component catalog snapshot
+     * @param scenario The scenario to update
+     * @param floor The floor number
+     * @param floorComponents The components on that floor
+     * @throws SQLException if a component is not found in the catalog
+     */
+    public static void resolveFloor(ComponentCatalog catalog, Scenario scenario, int floor,
+            List<ComponentConfig> floorComponents) throws SQLException {
+        scenario.setHasComponents(floor, !floorComponents.isEmpty());
+        scenario.setDerivador(floor, null, 0.0, 0.0, 0.0);
+        scenario.setDistribuidor(floor, null, 0.0, 0.0, 0.0);
+        scenario.setToma(floor, null, 0.0, 0.0, 0.0);
+
+        // Only the first derivador, distribuidor and toma attenuate the signal
+        ComponentConfig firstDistribuidor = null;
+        Distribuidor distribuidorInfo = null;
+        double distribuidorFirstCost = 0.0;
+        double distribuidorTotalCost = 0.0;
+        ComponentConfig firstToma = null;
+        Toma tomaInfo = null;
+        double tomaFirstCost = 0.0;
+        double tomaTotalCost = 0.0;
+        boolean derivadorSet = false;
+
+        for (ComponentConfig config : floorComponents) {
+            if (config.isType(ComponentCatalog.DERIVADOR)) {
+                if (!derivadorSet) {
+                    Componente componente = findComponente(catalog, config.getModel());
+                    Derivador derivador = catalog.getDerivador(componente.getId_componentes());
+                    checkType(derivador, config);
+                    scenario.setDerivador(floor, config.getModel(),
+                            derivador.getAtenuacion_derivacion(), derivador.getAtenuacion_paso(),
+                            componente.getCosto());
+                    derivadorSet = true;
+                }
+            } else if (config.isType(ComponentCatalog.DISTRIBUIDOR)) {
+                Componente componente = findComponente(catalog, config.getModel());
+                Distribuidor distribuidor = catalog.getDistribuidor(componente.getId_componentes());
+                checkType(distribuidor, config);
+                if (firstDistribuidor == null) {
+                    firstDistribuidor = config;
+                    distribuidorInfo = distribuidor;
+                    distribuidorFirstCost = componente.getCosto();
+                }
+                distribuidorTotalCost += componente.getCosto();
+            } else if (config.isType(ComponentCatalog.TOMA)) {
+                Componente componente = findComponente(catalog, config.getModel());
+                Toma toma = catalog.getToma(componente.getId_componentes());
+                checkType(toma, config);
+                if (firstToma == null) {
+                    firstToma = config;
+                    tomaInfo = toma;
+                    tomaFirstCost = componente.getCosto();
+                }
+                tomaTotalCost += componente.getCosto();
+            }
+        }
+
+        if (firstDistribuidor != null) {
+            scenario.setDistribuidor(floor, firstDistribuidor.getModel(),
+                    distribuidorInfo.getAtenuacion_distribucion(), distribuidorFirstCost,
+                    distribuidorTotalCost);
+        }
+        if (firstToma != null) {
+            scenario.setToma(floor, firstToma.getModel(), tomaInfo.getAtenuacion(), tomaFirstCost,
+                    tomaTotalCost);
+        }
+    }
+
+    /**
+     * Groups components by floor number
+     *
+     * @param components The components of the building
+     * @return Map from floor number to the components on that floor
+     */
+    public static Map<Integer, List<ComponentConfig>> groupByFloor(
+            List<ComponentConfig> components) {
+        Map<Integer, List<ComponentConfig>> componentsByFloor = new HashMap<>();
+        for (ComponentConfig config : components) {
+            componentsByFloor.computeIfAbsent(config.getFloor(), k -> new ArrayList<>())
+                    .add(config);
+        }
+        return componentsByFloor;
+    }
+
+    /**
+     * Groups components by riser number
+     *
+     * @param components The components of the building
+     * @return Map from riser number to the components on that riser
+     */
+    public static Map<Integer, List<ComponentConfig>> groupByRiser(
+            List<ComponentConfig> components) {
+        Map<Integer, List<ComponentConfig>> componentsByRiser = new TreeMap<>();
+        for (ComponentConfig config : components) {
+            componentsByRiser.computeIfAbsent(config.getRiser(), k -> new ArrayList<>())
+                    .add(config);
+        }
+        return componentsByRiser;
+    }
+
+    private static Componente findComponente(ComponentCatalog catalog, String modelo)
+            throws SQLException {
+        Componente componente = catalog.findByModelo(modelo);
+        if (componente == null) {
+            throw new SQLException("No se encontró el componente: " + modelo);
+        }
+        return componente;
+    }
+
+    private static void checkType(Object typeRow, ComponentConfig config) throws SQLException {
+        if (typeRow == null) {
+            throw new SQLException("Tipo de componente no válido: " + config.getType());
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.signalapp.engine;
+
+/**
+ * Signal propagation engine. Computes the signal level at the tomas of every floor of a resolved
+ * {@link Scenario}, from the top floor down to the first one.
+ *
+ * On every floor the trunk signal is split by the derivador: the tapped signal loses the
+ * derivación attenuation, 15 m of in-floor cable, the distribuidor and the toma attenuation, while
+ * the signal that continues down the riser loses the paso attenuation and 3 m of cable.
+ *
+ * The engine is stateless and does not allocate while evaluating, so it can be called from any
+ * thread and in tight loops.
+ */
+public final class SignalEngine {
+    /** Length of the cable run inside each floor (m) */
+    public static final double IN_FLOOR_CABLE_METERS = 15.0;
+    /** Length of the riser cable between two floors (m) */
+    public static final double RISER_CABLE_METERS = 3.0;
+
+    private SignalEngine() {}
+
+    /**
+     * Calculates the signal levels and costs of every floor
+     *
+     * @param scenario The resolved scenario
+     * @return A new result with per-floor levels and costs
+     */
+    public static SignalResult calculate(Scenario scenario) {
+        SignalResult result = new SignalResult(scenario.numPisos);
+        result.setTotalCost(evaluate(scenario, result.getLevels(), result.getFloorCosts()));
+        return result;
+    }
+
+    /**
+     * Calculates the signal levels and costs of every floor of every riser of a building
+     *
+     * @param building The resolved building
+     * @return The result of every riser and the total cost
+     */
+    public static BuildingResult calculate(Building building) {
+        SignalResult[] results = new SignalResult[building.getNumRisers()];
+        double totalCost = building.getSplitterCost();
+        for (int r = 0; r < results.length; r++) {
+            results[r] = calculate(building.getRiser(r + 1));
+            totalCost += results[r].getTotalCost();
+        }
+        return new BuildingResult(results, totalCost);
+    }
+
+    /**
+     * Evaluates a scenario into caller-provided arrays. Index 0 of each array is floor 1.
+     *
+     * @param scenario The resolved scenario
+     * @param levels Output array for the signal level at the tomas of each floor
+     * @param floorCosts Output array for the cost of each floor
+     * @return The total cost of the building
+     */
+    public static double evaluate(Scenario scenario, double[] levels, double[] floorCosts) {
+        return propagate(scenario, scenario.numPisos, scenario.nivelCabecera, null, levels,
+                floorCosts);
+    }
+
+    /**
+     * Re-evaluates the floors at and below a given floor, reusing the trunk level that enters it.
+     * Floors above are not affected by a change on a floor, because the trunk signal only flows
+     * downwards. Index 0 of each array is floor 1.
+     *
+     * @param scenario The resolved scenario
+     * @param floor The highest floor to re-evaluate
+     * @param trunks Trunk level entering each floor; the entry of {@code floor} is read and the
+     *        entries of the floors below are updated
+     * @param levels Output array for the signal level at the tomas of each floor
+     * @param floorCosts Output array for the cost of each floor
+     */
+    public static void evaluateFrom(Scenario scenario, int floor, double[] trunks,
+            double[] levels, double[] floorCosts) {
+        propagate(scenario, floor, trunks[floor - 1], trunks, levels, floorCosts);
+    }
+
+    /**
+     * Propagates the trunk signal from a floor down to the first one, evaluating every floor on
+     * the way. Index 0 of each array is floor 1.
+     *
+     * @param scenario The resolved scenario
+     * @param floor The highest floor to evaluate
+     * @param trunk The trunk level entering that floor
+     * @param trunks Output array for the trunk level entering each floor, or null
+     * @param levels Output array for the signal level at the tomas of each floor
+     * @param floorCosts Output array for the cost of each floor
+     * @return The total cost of the floors evaluated
+     */
+    private static double propagate(Scenario scenario, int floor, double trunk, double[] trunks,
+            double[] levels, double[] floorCosts) {
+        double inFloorLoss = 0.0;
+        double riserLoss = 0.0;
+        double inFloorCableCost = 0.0;
+        if (scenario.hasCable) {
+            inFloorLoss = (scenario.cableAttenuation / 100.0) * IN_FLOOR_CABLE_METERS;
+            riserLoss = (scenario.cableAttenuation / 100.0) * RISER_CABLE_METERS;
+            inFloorCableCost = scenario.cableCost * IN_FLOOR_CABLE_METERS;
+        }
+
+        double totalCost = 0.0;
+
+        // Process floors from top to bottom
+        for (int i = floor - 1; i >= 0; i--) {
+            if (trunks != null) {
+                trunks[i] = trunk;
+            }
+
+            double level = trunk - scenario.derivacion[i];
+            double cost = scenario.derivadorCost[i];
+
+            if (scenario.hasCable && scenario.hasComponents[i]) {
+                level -= inFloorLoss;
+                cost += inFloorCableCost;
+            }
+
+            level -= scenario.distribucion[i];
+            level -= scenario.tomaAttenuation[i];
+            cost += scenario.distribuidorTotalCost[i];
+            cost += scenario.tomaTotalCost[i];
+
+            levels[i] = level;
+            floorCosts[i] = cost;
+            totalCost += cost;
+
+            // Signal that continues to the floor below
+            trunk = trunk - scenario.paso[i] - riserLoss;
+        }
+
+        return totalCost;
+    }
+
+    /**
+     * Evaluates a scenario at many frequencies in one pass. Only the cable attenuation depends on
+     * the frequency, so the level of every floor is split once into a frequency independent part
+     * and the meters of cable between the headend and its tomas; each frequency then costs one
+     * multiply-subtract per floor.
+     *
+     * @param scenario The resolved scenario
+     * @param frequencies The frequencies to evaluate (MHz)
+     * @param cableAttenuations The cable attenuation at each frequency (dB/100m)
+     * @return The levels of every floor at every frequency
+     */
+    public static SweepResult sweep(Scenario scenario, int[] frequencies,
+            double[] cableAttenuations) {
+        int numPisos = scenario.numPisos;
+        double[] baseLevels = new double[numPisos];
+        double[] cableMeters = new double[numPisos];
+
+        double trunk = scenario.nivelCabecera;
+        double riserMeters = 0.0;
+
+        // Process floors from top to bottom
+        for (int i = numPisos - 1; i >= 0; i--) {
+            baseLevels[i] = trunk - scenario.derivacion[i] - scenario.distribucion[i]
+                    - scenario.tomaAttenuation[i];
+            cableMeters[i] = riserMeters;
+            if (scenario.hasCable && scenario.hasComponents[i]) {
+                cableMeters[i] += IN_FLOOR_CABLE_METERS;
+            }
+
+            trunk -= scenario.paso[i];
+            if (scenario.hasCable) {
+                riserMeters += RISER_CABLE_METERS;
+            }
+        }
+
+        double[] levels = new double[frequencies.length * numPisos];
+        for (int k = 0; k < frequencies.length; k++) {
+            double lossPerMeter = cableAttenuations[k] / 100.0;
+            int row = k * numPisos;
+            for (int i = 0; i < numPisos; i++) {
+                levels[row + i] = baseLevels[i] - lossPerMeter * cableMeters[i];
+            }
+        }
+
+        return new SweepResult(numPisos, frequencies, levels);
+    }
+}
@@ -0,0 +1,67 @@
+package com.signalapp.engine;
+
+/**
+ * Per-floor output of {@link SignalEngine}: the signal level at the tomas and the cost of every
+ * floor, stored in primitive arrays where index 0 is floor 1.
+ */
+public class SignalResult {
+    private final double[] levels;
+    private final double[] floorCosts;
+    private double totalCost;
+
+    /**
+     * Creates an empty result for a building
+     *
+     * @param numPisos The number of floors
+     */
+    public SignalResult(int numPisos) {
+        this.levels = new double[numPisos];
+        this.floorCosts = new double[numPisos];
+    }
+
+    public int getNumPisos() {
+        return levels.length;
+    }
+
+    /**
+     * Gets the signal level at the tomas of a floor
+     *
+     * @param floor The floor number
+     * @return The signal level (dBµV)
+     */
+    public double getLevel(int floor) {
+        return levels[floor - 1];
+    }
+
+    /**
+     * Gets the cost of the components installed on a floor
+     *
+     * @param floor The floor number
+     * @return The floor cost
+     */
+    public double getFloorCost(int floor) {
+        return floorCosts[floor - 1];
+    }
+
+    public double getTotalCost() {
+        return totalCost;
+    }
+
+    /**
+     * Gets the backing array of levels, index 0 is floor 1
+     */
+    public double[] getLevels() {
+        return levels;
+    }
+
+    /**
+     * Gets the backing array of floor costs, index 0 is floor 1
+     */
+    public double[] getFloorCosts() {
+        return floorCosts;
+    }
+
+    void setTotalCost(double totalCost) {
+        this.totalCost = totalCost;
+    }
+}
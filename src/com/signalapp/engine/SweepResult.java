@@ -0,0 +1,65 @@
+package com.signalapp.engine;
+
+/**
+ * Output of a frequency sweep: the signal level at the tomas of every floor for every swept
+ * frequency, stored in one primitive array ordered by frequency and then by floor.
+ */
+public class SweepResult {
+    private final int numPisos;
+    private final int[] frequencies;
+    private final double[] levels;
+
+    /**
+     * Constructor with all fields.
+     *
+     * @param numPisos The number of floors.
+     * @param frequencies The swept frequencies (MHz).
+     * @param levels The levels, index {@code k * numPisos + (floor - 1)} for frequency k.
+     */
+    SweepResult(int numPisos, int[] frequencies, double[] levels) {
+        this.numPisos = numPisos;
+        this.frequencies = frequencies;
+        this.levels = levels;
+    }
+
+    public int getNumPisos() {
+        return numPisos;
+    }
+
+    public int[] getFrequencies() {
+        return frequencies;
+    }
+
+    /**
+     * Gets the signal level at the tomas of a floor for one of the swept frequencies
+     *
+     * @param frequencyIndex The index of the frequency in {@link #getFrequencies()}
+     * @param floor The floor number
+     * @return The signal level (dBµV)
+     */
+    public double getLevel(int frequencyIndex, int floor) {
+        return levels[frequencyIndex * numPisos + floor - 1];
+    }
+
+    /**
+     * Finds the worst floor/frequency pair: the one furthest outside the margins, or if every
+     * level is inside them, the one closest to a margin
+     *
+     * @param nivelMinimo The minimum level allowed (dBµV)
+     * @param nivelMaximo The maximum level allowed (dBµV)
+     * @return The index of the pair in the levels array, or -1 if there are no levels. The
+     *         frequency index is {@code index / numPisos} and the floor {@code index % numPisos + 1}.
+     */
+    public int findWorst(double nivelMinimo, double nivelMaximo) {
+        int worst = -1;
+        double worstMargin = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < levels.length; i++) {
+            double margin = Math.min(levels[i] - nivelMinimo, nivelMaximo - levels[i]);
+            if (margin < worstMargin) {
+                worst = i;
+                worstMargin = margin;
+            }
+        }
+        return worst;
+    }
+}
@@ -0,0 +1,263 @@
+package com.signalapp.engine;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Monte Carlo tolerance analysis of a scenario. In every trial the attenuation of each installed
+ * derivador (derivación and paso), distribuidor, toma and of the cable is drawn around its
+ * datasheet value, and the resulting level of every floor is checked against the margins.
+ *
+ * Trials are split across a {@link ForkJoinPool}; every task gets its own {@link SplittableRandom}
+ * split from the caller's one and accumulates into its own {@link ToleranceStats}, so trials do
+ * not allocate or share state.
+ */
+public final class ToleranceAnalysis {
+    /** Distribution of the attenuation deviations */
+    public enum Distribution {
+        /** Uniform within ± the tolerance */
+        UNIFORM,
+        /** Normal with the tolerance as standard deviation */
+        NORMAL
+    }
+
+    /** Minimum number of trials run by a single task */
+    private static final int MIN_TRIALS_PER_TASK = 1024;
+    /** Maximum number of histogram bins of all the tasks of a run together */
+    private static final long MAX_HISTOGRAM_BINS = 1L << 23;
+
+    /** Standard deviations of its level covered by the histogram of a floor on each side */
+    private static final double HISTOGRAM_SIGMAS = 6.0;
+    /** Smallest distance covered by the histogram of a floor on each side (dB) */
+    private static final double MIN_HISTOGRAM_RANGE = 1.0;
+
+    private final Scenario scenario;
+    private final double nivelMinimo;
+    private final double nivelMaximo;
+    private final Distribution distribution;
+    private final double toleranciaDerivador;
+    private final double toleranciaDistribuidor;
+    private final double toleranciaToma;
+    private final double toleranciaCoaxial;
+    private final double[] nominalLevels;
+    private final double[] histogramRanges;
+
+    /**
+     * Creates an analysis of a scenario
+     *
+     * @param scenario The resolved scenario
+     * @param nivelMinimo The minimum level allowed at the tomas (dBµV)
+     * @param nivelMaximo The maximum level allowed at the tomas (dBµV)
+     * @param distribution The distribution of the deviations
+     * @param toleranciaDerivador Tolerance of the derivador attenuations (dB)
+     * @param toleranciaDistribuidor Tolerance of the distribuidor attenuation (dB)
+     * @param toleranciaToma Tolerance of the toma attenuation (dB)
+     * @param toleranciaCoaxial Tolerance of the cable attenuation (dB/100m)
+     */
+    public ToleranceAnalysis(Scenario scenario, double nivelMinimo, double nivelMaximo,
+            Distribution distribution, double toleranciaDerivador,
+            double toleranciaDistribuidor, double toleranciaToma, double toleranciaCoaxial) {
+        this.scenario = scenario;
+        this.nivelMinimo = nivelMinimo;
+        this.nivelMaximo = nivelMaximo;
+        this.distribution = distribution;
+        this.toleranciaDerivador = toleranciaDerivador;
+        this.toleranciaDistribuidor = toleranciaDistribuidor;
+        this.toleranciaToma = toleranciaToma;
+        this.toleranciaCoaxial = toleranciaCoaxial;
+        this.nominalLevels = SignalEngine.calculate(scenario).getLevels();
+        this.histogramRanges = histogramRanges();
+    }
+
+    /**
+     * Gets the range the histogram of each floor must cover on each side of its nominal level.
+     * The deviations are independent except the cable one, which is shared by all floors, so the
+     * spread of a floor grows with the paso deviations and riser cable of the floors above it.
+     */
+    private double[] histogramRanges() {
+        double derivador = variance(toleranciaDerivador);
+        double distribuidor = variance(toleranciaDistribuidor);
+        double toma = variance(toleranciaToma);
+        double coaxial = variance(toleranciaCoaxial);
+
+        double[] ranges = new double[scenario.numPisos];
+        double trunkVariance = 0.0;
+        double riserMeters = 0.0;
+        for (int i = scenario.numPisos - 1; i >= 0; i--) {
+            double floorVariance = trunkVariance;
+            if (scenario.derivadorModel[i] != null) {
+                floorVariance += derivador;
+                trunkVariance += derivador;
+            }
+            if (scenario.distribuidorModel[i] != null) {
+                floorVariance += distribuidor;
+            }
+            if (scenario.tomaModel[i] != null) {
+                floorVariance += toma;
+            }
+            if (scenario.hasCable) {
+                double meters = riserMeters
+                        + (scenario.hasComponents[i] ? SignalEngine.IN_FLOOR_CABLE_METERS : 0.0);
+                floorVariance += coaxial * (meters / 100.0) * (meters / 100.0);
+                riserMeters += SignalEngine.RISER_CABLE_METERS;
+            }
+            ranges[i] = Math.max(MIN_HISTOGRAM_RANGE,
+                    HISTOGRAM_SIGMAS * Math.sqrt(floorVariance));
+        }
+        return ranges;
+    }
+
+    /**
+     * Gets the variance of the deviations drawn for a tolerance
+     */
+    private double variance(double tolerance) {
+        double sigma = distribution == Distribution.UNIFORM ? tolerance / Math.sqrt(3.0)
+                : tolerance;
+        return sigma * sigma;
+    }
+
+    /**
+     * Creates empty statistics for this scenario, to merge the results of {@link #run} into
+     *
+     * @return Empty statistics
+     */
+    public ToleranceStats newStats() {
+        return new ToleranceStats(nominalLevels, histogramRanges);
+    }
+
+    /**
+     * Runs a number of trials
+     *
+     * @param pool The pool to run the trials on
+     * @param trials The number of trials
+     * @param random The source of randomness, split for every task
+     * @return The statistics of these trials
+     */
+    public ToleranceStats run(ForkJoinPool pool, int trials, SplittableRandom random) {
+        // Every task accumulates into its own histograms, so tall buildings get fewer tasks
+        long binsPerTask = (long) scenario.numPisos * ToleranceStats.BINS;
+        int tasks = (int) Math.max(1, Math.min(Math.min(pool.getParallelism(),
+                trials / MIN_TRIALS_PER_TASK), MAX_HISTOGRAM_BINS / binsPerTask));
+        int threshold = (trials + tasks - 1) / tasks;
+        return pool.invoke(new TrialTask(trials, threshold, random.split()));
+    }
+
+    /**
+     * Runs the trials of one task
+     */
+    private ToleranceStats runTrials(int trials, SplittableRandom random) {
+        ToleranceStats stats = newStats();
+        Sampler sampler = new Sampler(random);
+        int numPisos = scenario.numPisos;
+
+        for (int t = 0; t < trials; t++) {
+            double inFloorLoss = 0.0;
+            double riserLoss = 0.0;
+            if (scenario.hasCable) {
+                double attenuation = scenario.cableAttenuation
+                        + sampler.next(toleranciaCoaxial);
+                inFloorLoss = (attenuation / 100.0) * SignalEngine.IN_FLOOR_CABLE_METERS;
+                riserLoss = (attenuation / 100.0) * SignalEngine.RISER_CABLE_METERS;
+            }
+
+            double trunk = scenario.nivelCabecera;
+            for (int i = numPisos - 1; i >= 0; i--) {
+                double level = trunk;
+                double paso = 0.0;
+                if (scenario.derivadorModel[i] != null) {
+                    level -= scenario.derivacion[i] + sampler.next(toleranciaDerivador);
+                    paso = scenario.paso[i] + sampler.next(toleranciaDerivador);
+                }
+                if (scenario.hasCable && scenario.hasComponents[i]) {
+                    level -= inFloorLoss;
+                }
+                if (scenario.distribuidorModel[i] != null) {
+                    level -= scenario.distribucion[i] + sampler.next(toleranciaDistribuidor);
+                }
+                if (scenario.tomaModel[i] != null) {
+                    level -= scenario.tomaAttenuation[i] + sampler.next(toleranciaToma);
+                }
+
+                stats.record(i, level, level >= nivelMinimo && level <= nivelMaximo);
+                trunk = trunk - paso - riserLoss;
+            }
+        }
+
+        stats.addTrials(trials);
+        return stats;
+    }
+
+    /**
+     * Splits a range of trials in halves until it is below the threshold
+     */
+    private class TrialTask extends RecursiveTask<ToleranceStats> {
+        private static final long serialVersionUID = 1L;
+
+        private final int trials;
+        private final int threshold;
+        private final SplittableRandom random;
+
+        TrialTask(int trials, int threshold, SplittableRandom random) {
+            this.trials = trials;
+            this.threshold = threshold;
+            this.random = random;
+        }
+
+        @Override
+        protected ToleranceStats compute() {
+            if (trials <= threshold) {
+                return runTrials(trials, random);
+            }
+            int half = trials / 2;
+            TrialTask left = new TrialTask(half, threshold, random.split());
+            left.fork();
+            ToleranceStats stats = new TrialTask(trials - half, threshold, random).compute();
+            stats.merge(left.join());
+            return stats;
+        }
+    }
+
+    /**
+     * Draws deviations from the configured distribution. Normal deviates use the polar method,
+     * keeping the second value of each pair for the next call.
+     */
+    private class Sampler {
+        private final SplittableRandom random;
+        private double spare;
+        private boolean hasSpare;
+
+        Sampler(SplittableRandom random) {
+            this.random = random;
+        }
+
+        double next(double tolerance) {
+            if (tolerance == 0.0) {
+                return 0.0;
+            }
+            if (distribution == Distribution.UNIFORM) {
+                return (2.0 * random.nextDouble() - 1.0) * tolerance;
+            }
+            return gaussian() * tolerance;
+        }
+
+        private double gaussian() {
+            if (hasSpare) {
+                hasSpare = false;
+                return spare;
+            }
+            double u;
+            double v;
+            double s;
+            do {
+                u = 2.0 * random.nextDouble() - 1.0;
+                v = 2.0 * random.nextDouble() - 1.0;
+                s = u * u + v * v;
+            } while (s >= 1.0 || s == 0.0);
+            double factor = Math.sqrt(-2.0 * Math.log(s) / s);
+            spare = v * factor;
+            hasSpare = true;
+            return u * factor;
+        }
+    }
+}
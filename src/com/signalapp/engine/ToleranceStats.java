@@ -0,0 +1,165 @@
+package com.signalapp.engine;
+
+/**
+ * Accumulated results of a tolerance analysis: per floor, the number of trials inside the
+ * margins, the sum of the levels and a histogram of the levels for percentiles. All accumulators
+ * are primitive arrays, index 0 is floor 1.
+ *
+ * The histogram of each floor has {@link #BINS} bins centred on the nominal level and covers its
+ * own range on each side of it, so the bins are as wide as the spread of that floor needs. Levels
+ * outside the range are counted in the first or last bin, and {@link #getOutsideRange(int)} tells
+ * how many there were.
+ */
+public class ToleranceStats {
+    /** Number of histogram bins of each floor */
+    public static final int BINS = 400;
+
+    private final int numPisos;
+    private final double[] histogramStart;
+    private final double[] binWidth;
+    private long trials;
+    private final long[] passes;
+    private final long[] outside;
+    private final double[] sums;
+    private final int[] histogram;
+
+    /**
+     * Creates empty statistics
+     *
+     * @param nominalLevels The nominal level of each floor, the histograms are centred on them
+     * @param ranges The distance covered by the histogram of each floor on each side of its
+     *        nominal level (dB)
+     */
+    public ToleranceStats(double[] nominalLevels, double[] ranges) {
+        this.numPisos = nominalLevels.length;
+        this.histogramStart = new double[numPisos];
+        this.binWidth = new double[numPisos];
+        for (int i = 0; i < numPisos; i++) {
+            histogramStart[i] = nominalLevels[i] - ranges[i];
+            binWidth[i] = 2 * ranges[i] / BINS;
+        }
+        this.passes = new long[numPisos];
+        this.outside = new long[numPisos];
+        this.sums = new double[numPisos];
+        this.histogram = new int[numPisos * BINS];
+    }
+
+    /**
+     * Records the level of a floor in one trial
+     */
+    void record(int i, double level, boolean pass) {
+        if (pass) {
+            passes[i]++;
+        }
+        sums[i] += level;
+
+        double position = (level - histogramStart[i]) / binWidth[i];
+        int bin;
+        if (position < 0) {
+            bin = 0;
+            outside[i]++;
+        } else if (position >= BINS) {
+            bin = BINS - 1;
+            outside[i]++;
+        } else {
+            bin = (int) position;
+        }
+        histogram[i * BINS + bin]++;
+    }
+
+    void addTrials(long count) {
+        trials += count;
+    }
+
+    /**
+     * Adds the results of another analysis of the same scenario
+     *
+     * @param other The statistics to add
+     */
+    public void merge(ToleranceStats other) {
+        trials += other.trials;
+        for (int i = 0; i < numPisos; i++) {
+            passes[i] += other.passes[i];
+            outside[i] += other.outside[i];
+            sums[i] += other.sums[i];
+        }
+        for (int b = 0; b < histogram.length; b++) {
+            histogram[b] += other.histogram[b];
+        }
+    }
+
+    public int getNumPisos() {
+        return numPisos;
+    }
+
+    public long getTrials() {
+        return trials;
+    }
+
+    /**
+     * Gets the fraction of trials where a floor was inside the margins
+     *
+     * @param floor The floor number
+     * @return The pass probability, between 0 and 1
+     */
+    public double getPassProbability(int floor) {
+        return trials == 0 ? 0.0 : (double) passes[floor - 1] / trials;
+    }
+
+    /**
+     * Gets the standard error of the pass probability of a floor
+     *
+     * @param floor The floor number
+     * @return The standard error of the estimate
+     */
+    public double getStandardError(int floor) {
+        if (trials == 0) {
+            return 1.0;
+        }
+        double p = getPassProbability(floor);
+        return Math.sqrt(p * (1.0 - p) / trials);
+    }
+
+    /**
+     * Gets the number of trials where the level of a floor fell outside its histogram. The
+     * percentiles of the floor are only reliable while this is a small fraction of the trials.
+     *
+     * @param floor The floor number
+     * @return The number of levels counted in the edge bins instead of their own
+     */
+    public long getOutsideRange(int floor) {
+        return outside[floor - 1];
+    }
+
+    /**
+     * Gets the mean level of a floor
+     *
+     * @param floor The floor number
+     * @return The mean level (dBµV)
+     */
+    public double getMeanLevel(int floor) {
+        return trials == 0 ? 0.0 : sums[floor - 1] / trials;
+    }
+
+    /**
+     * Gets a percentile of the level of a floor, interpolated inside its histogram bin
+     *
+     * @param floor The floor number
+     * @param percentile The percentile, between 0 and 100
+     * @return The level below which that percentage of trials fell (dBµV)
+     */
+    public double getPercentile(int floor, double percentile) {
+        int offset = (floor - 1) * BINS;
+        double target = trials * percentile / 100.0;
+        long cumulative = 0;
+        for (int b = 0; b < BINS; b++) {
+            int count = histogram[offset + b];
+            if (count > 0 && cumulative + count >= target) {
+                double fraction = (target - cumulative) / count;
+                return histogramStart[floor - 1] + (b + fraction) * binWidth[floor - 1];
+            }
+            cumulative += count;
+        }
+        return histogramStart[floor - 1] + BINS * binWidth[floor - 1];
+    }
+}
@@ -0,0 +1,207 @@
+package com.signalapp.json;
+
+import com.signalapp.engine.ComponentConfig;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Body of the signal calculation requests: the building, the signal and the components placed on
+ * it. Numbers missing from the body, or sent as null, are left null so each servlet can apply its
+ * own defaults, and {@link #require(Object, String)} turns a missing required one into an error.
+ * Missing texts are empty.
+ *
+ * Servlets that accept more properties extend this class and override
+ * {@link #readProperty(String, JsonReader)}.
+ */
+public class CalculationRequest {
+    private Integer numPisos;
+    private Double nivelCabecera;
+    private String tipoSenal;
+    private Integer frequency;
+    private String selectedCableModel;
+    private Integer risers;
+    private String riserSplitter;
+    private List<ComponentConfig> components;
+
+    /**
+     * Reads the request from a JSON object. Unknown properties are skipped.
+     *
+     * @param reader The reader, positioned before the object
+     * @throws IOException if the body is not valid JSON or a value has the wrong type
+     */
+    public final void read(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonReader.Token.NULL) {
+                reader.nextNull();
+            } else if (!readProperty(name, reader)) {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Reads the value of a property
+     *
+     * @param name The property name
+     * @param reader The reader, positioned before the value
+     * @return false if the property is unknown and its value was not consumed
+     * @throws IOException if the value has the wrong type
+     */
+    protected boolean readProperty(String name, JsonReader reader) throws IOException {
+        switch (name) {
+            case "num_pisos":
+                numPisos = reader.nextInt();
+                return true;
+            case "nivel_cabecera":
+                nivelCabecera = reader.nextDouble();
+                return true;
+            case "tipo_senal":
+                tipoSenal = reader.nextString();
+                return true;
+            case "frequency":
+                frequency = reader.nextInt();
+                return true;
+            case "selected_cable_model":
+                selectedCableModel = reader.nextString();
+                return true;
+            case "risers":
+                risers = reader.nextInt();
+                return true;
+            case "riser_splitter":
+                riserSplitter = reader.nextString();
+                return true;
+            case "components":
+                components = readComponents(reader);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Reads an array of components. Components without riser hang from the first one.
+     *
+     * @param reader The reader, positioned before the array
+     * @return The components, in the order they were sent
+     * @throws IOException if the array is not valid or a component misses its floor
+     */
+    public static List<ComponentConfig> readComponents(JsonReader reader) throws IOException {
+        List<ComponentConfig> list = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String type = null;
+            String model = null;
+            Integer floor = null;
+            int riser = 1;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonReader.Token.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "type":
+                        type = reader.nextString();
+                        break;
+                    case "model":
+                        model = reader.nextString();
+                        break;
+                    case "floor":
+                        floor = reader.nextInt();
+                        break;
+                    case "riser":
+                        riser = reader.nextInt();
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+
+            list.add(new ComponentConfig(type != null ? type : "", model != null ? model : "",
+                    require(floor, "floor"), riser));
+        }
+        reader.endArray();
+        return list;
+    }
+
+    /**
+     * Checks that a required value was sent
+     *
+     * @param value The value read, null if missing
+     * @param name The property name, for the error message
+     * @return The value
+     * @throws IOException if the value is missing
+     */
+    public static <T> T require(T value, String name) throws IOException {
+        if (value == null) {
+            throw new IOException("Falta el campo " + name);
+        }
+        return value;
+    }
+
+    /**
+     * Checks that the request describes a building with a single riser, for the calculations that
+     * do not support several
+     *
+     * @param calculation The name of the calculation, for the error message
+     * @throws IOException if the request has several risers or a headend splitter
+     */
+    public void requireSingleRiser(String calculation) throws IOException {
+        if ((risers != null && risers > 1) || !getRiserSplitter().isEmpty()) {
+            throw new IOException(calculation + " no admite varios montantes");
+        }
+    }
+
+    public Integer getNumPisos() {
+        return numPisos;
+    }
+
+    public Double getNivelCabecera() {
+        return nivelCabecera;
+    }
+
+    public String getTipoSenal() {
+        return tipoSenal != null ? tipoSenal : "";
+    }
+
+    public Integer getFrequency() {
+        return frequency;
+    }
+
+    public String getSelectedCableModel() {
+        return selectedCableModel != null ? selectedCableModel : "";
+    }
+
+    public Integer getRisers() {
+        return risers;
+    }
+
+    public String getRiserSplitter() {
+        return riserSplitter != null ? riserSplitter : "";
+    }
+
+    /**
+     * Checks whether the body had a components array, even an empty one
+     */
+    public boolean hasComponents() {
+        return components != null;
+    }
+
+    /**
+     * Gets the components of the request
+     *
+     * @return The components, empty if none were sent
+     */
+    public List<ComponentConfig> getComponents() {
+        return components != null ? components : new ArrayList<>();
+    }
+}
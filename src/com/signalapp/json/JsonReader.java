@@ -0,0 +1,600 @@
+package com.signalapp.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Streaming JSON tokenizer. Reads the document once, straight from a {@link Reader}, through a
+ * small buffer; values are returned one at a time as the caller walks the document, so a request
+ * body is parsed in a single pass without being copied into a string first.
+ *
+ * The reader is lenient with scalar types, as the web client sends some numbers as strings:
+ * {@link #nextInt()}, {@link #nextDouble()} and {@link #nextBoolean()} also accept quoted values,
+ * and {@link #nextString()} also accepts numbers and booleans.
+ */
+public final class JsonReader {
+    /** Kinds of token returned by {@link #peek()} */
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL,
+        END_DOCUMENT
+    }
+
+    // What the reader expects next in each open scope
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int NONEMPTY_OBJECT = 3;
+    private static final int DANGLING_NAME = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+
+    private final Reader in;
+    private final char[] buffer = new char[4096];
+    private int pos;
+    private int limit;
+    private long consumed;
+
+    private int[] stack = new int[16];
+    private int depth;
+
+    private Token peeked;
+    private String lastName;
+
+    /** Reused for the text of strings and literals */
+    private final StringBuilder text = new StringBuilder();
+
+    /**
+     * Creates a reader for a JSON document
+     *
+     * @param in The source of the document, for example the request reader
+     */
+    public JsonReader(Reader in) {
+        this.in = in;
+        stack[depth++] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Gets the kind of the next token without consuming it
+     *
+     * @return The next token
+     * @throws IOException if the document is not valid JSON
+     */
+    public Token peek() throws IOException {
+        if (peeked == null) {
+            peeked = doPeek();
+        }
+        return peeked;
+    }
+
+    /**
+     * Checks whether the current object or array has more elements
+     *
+     * @return false if the next token closes the object or array
+     * @throws IOException if the document is not valid JSON
+     */
+    public boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY
+                && token != Token.END_DOCUMENT;
+    }
+
+    public void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    public void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        depth--;
+    }
+
+    public void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    public void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        depth--;
+    }
+
+    /**
+     * Consumes the name of the next property
+     *
+     * @return The property name
+     * @throws IOException if the next token is not a name
+     */
+    public String nextName() throws IOException {
+        expect(Token.NAME);
+        lastName = readQuoted();
+        return lastName;
+    }
+
+    /**
+     * Consumes a string value. Numbers and booleans are returned as written.
+     *
+     * @return The string value
+     * @throws IOException if the next token is not a scalar value
+     */
+    public String nextString() throws IOException {
+        Token token = peek();
+        if (token == Token.STRING) {
+            peeked = null;
+            return readQuoted();
+        }
+        if (token == Token.NUMBER || token == Token.BOOLEAN) {
+            peeked = null;
+            readLiteral();
+            return text.toString();
+        }
+        throw syntaxError("Se esperaba un texto" + inProperty());
+    }
+
+    /**
+     * Consumes a number, also accepted as a quoted string
+     *
+     * @return The number
+     * @throws IOException if the next token is not a number
+     */
+    public double nextDouble() throws IOException {
+        readNumberText();
+        try {
+            return Double.parseDouble(text.toString());
+        } catch (NumberFormatException e) {
+            throw syntaxError("Se esperaba un número" + inProperty());
+        }
+    }
+
+    /**
+     * Consumes an integer, also accepted as a quoted string
+     *
+     * @return The integer
+     * @throws IOException if the next token is not an integer
+     */
+    public int nextInt() throws IOException {
+        readNumberText();
+        int length = text.length();
+        int i = length > 0 && text.charAt(0) == '-' ? 1 : 0;
+        if (i == length) {
+            throw syntaxError("Se esperaba un número entero" + inProperty());
+        }
+        long value = 0;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9' || value > Integer.MAX_VALUE) {
+                throw syntaxError("Se esperaba un número entero" + inProperty());
+            }
+            value = value * 10 + (c - '0');
+        }
+        value = text.charAt(0) == '-' ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw syntaxError("Se esperaba un número entero" + inProperty());
+        }
+        return (int) value;
+    }
+
+    /**
+     * Consumes a boolean, also accepted as a quoted string
+     *
+     * @return The boolean
+     * @throws IOException if the next token is not a boolean
+     */
+    public boolean nextBoolean() throws IOException {
+        Token token = peek();
+        if (token == Token.BOOLEAN) {
+            peeked = null;
+            readLiteral();
+        } else if (token == Token.STRING) {
+            peeked = null;
+            readQuoted();
+        } else {
+            throw syntaxError("Se esperaba un valor lógico" + inProperty());
+        }
+        if (equalsText("true")) {
+            return true;
+        }
+        if (equalsText("false")) {
+            return false;
+        }
+        throw syntaxError("Se esperaba un valor lógico" + inProperty());
+    }
+
+    public void nextNull() throws IOException {
+        expect(Token.NULL);
+        readLiteral();
+    }
+
+    /**
+     * Skips the next value, with everything nested in it
+     *
+     * @throws IOException if the document is not valid JSON
+     */
+    public void skipValue() throws IOException {
+        int open = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT:
+                    beginObject();
+                    open++;
+                    break;
+                case BEGIN_ARRAY:
+                    beginArray();
+                    open++;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    open--;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    open--;
+                    break;
+                case NAME:
+                case STRING:
+                    peeked = null;
+                    skipQuoted();
+                    break;
+                case END_DOCUMENT:
+                    throw syntaxError("Fin del documento inesperado");
+                default:
+                    peeked = null;
+                    readLiteral();
+                    break;
+            }
+        } while (open > 0);
+    }
+
+    private void expect(Token expected) throws IOException {
+        Token token = peek();
+        if (token != expected) {
+            throw syntaxError("Se esperaba " + describe(expected) + " pero se encontró "
+                    + describe(token) + inProperty());
+        }
+        peeked = null;
+    }
+
+    private void push(int scope) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = scope;
+    }
+
+    /**
+     * Consumes separators up to the next token. Opening brackets, closing brackets and the
+     * opening quote of names and strings are consumed; literals are left in the buffer.
+     */
+    private Token doPeek() throws IOException {
+        int scope = stack[depth - 1];
+        int c;
+        switch (scope) {
+            case EMPTY_ARRAY:
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return Token.END_ARRAY;
+                }
+                if (c != -1) {
+                    pos--;
+                }
+                break;
+            case NONEMPTY_ARRAY:
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return Token.END_ARRAY;
+                }
+                if (c != ',') {
+                    throw syntaxError("Se esperaba ',' o ']'");
+                }
+                break;
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                stack[depth - 1] = DANGLING_NAME;
+                c = nextNonWhitespace();
+                if (c == '}') {
+                    return Token.END_OBJECT;
+                }
+                if (scope == NONEMPTY_OBJECT) {
+                    if (c != ',') {
+                        throw syntaxError("Se esperaba ',' o '}'");
+                    }
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') {
+                    throw syntaxError("Se esperaba el nombre de una propiedad");
+                }
+                return Token.NAME;
+            case DANGLING_NAME:
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                if (nextNonWhitespace() != ':') {
+                    throw syntaxError("Se esperaba ':'");
+                }
+                break;
+            case EMPTY_DOCUMENT:
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                break;
+            default:
+                if (nextNonWhitespace() == -1) {
+                    return Token.END_DOCUMENT;
+                }
+                throw syntaxError("Datos inesperados tras el final del documento");
+        }
+
+        c = nextNonWhitespace();
+        switch (c) {
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case '"':
+                return Token.STRING;
+            case 't':
+            case 'f':
+                pos--;
+                return Token.BOOLEAN;
+            case 'n':
+                pos--;
+                return Token.NULL;
+            case -1:
+                throw syntaxError("Fin del documento inesperado");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    pos--;
+                    return Token.NUMBER;
+                }
+                throw syntaxError("Carácter inesperado '" + (char) c + "'");
+        }
+    }
+
+    private void readNumberText() throws IOException {
+        Token token = peek();
+        if (token == Token.NUMBER) {
+            peeked = null;
+            readLiteral();
+        } else if (token == Token.STRING) {
+            peeked = null;
+            readQuoted();
+            trimText();
+        } else {
+            throw syntaxError("Se esperaba un número" + inProperty());
+        }
+    }
+
+    /**
+     * Reads a number, true, false or null into {@link #text}
+     */
+    private void readLiteral() throws IOException {
+        text.setLength(0);
+        while (pos < limit || fill()) {
+            char c = buffer[pos];
+            if (c == ',' || c == '}' || c == ']' || c == ':' || Character.isWhitespace(c)) {
+                break;
+            }
+            text.append(c);
+            pos++;
+        }
+        Token kind = text.charAt(0) == 't' || text.charAt(0) == 'f' ? Token.BOOLEAN
+                : text.charAt(0) == 'n' ? Token.NULL : Token.NUMBER;
+        if ((kind == Token.BOOLEAN && !equalsText("true") && !equalsText("false"))
+                || (kind == Token.NULL && !equalsText("null"))) {
+            throw syntaxError("Valor no válido '" + text + "'");
+        }
+        if (kind == Token.NUMBER && !isNumberText()) {
+            throw syntaxError("Número no válido '" + text + "'" + inProperty());
+        }
+    }
+
+    /**
+     * Checks that {@link #text} follows the JSON number grammar: an optional minus sign, an
+     * integer part without leading zeros, and optional fraction and exponent
+     */
+    private boolean isNumberText() {
+        int i = 0;
+        int length = text.length();
+        if (i < length && text.charAt(i) == '-') {
+            i++;
+        }
+        if (i < length && text.charAt(i) == '0') {
+            i++;
+        } else {
+            int start = i;
+            i = skipDigits(i);
+            if (i == start) {
+                return false;
+            }
+        }
+        if (i < length && text.charAt(i) == '.') {
+            int start = ++i;
+            i = skipDigits(i);
+            if (i == start) {
+                return false;
+            }
+        }
+        if (i < length && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+                i++;
+            }
+            int start = i;
+            i = skipDigits(i);
+            if (i == start) {
+                return false;
+            }
+        }
+        return i == length;
+    }
+
+    private int skipDigits(int i) {
+        while (i < text.length() && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Reads the rest of a string, after its opening quote
+     */
+    private String readQuoted() throws IOException {
+        text.setLength(0);
+        while (true) {
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos];
+                if (c == '"' || c == '\\') {
+                    break;
+                }
+                pos++;
+            }
+            text.append(buffer, start, pos - start);
+            if (pos == limit) {
+                if (!fill()) {
+                    throw syntaxError("Texto sin terminar");
+                }
+                continue;
+            }
+            if (buffer[pos++] == '"') {
+                return text.toString();
+            }
+            text.append(readEscape());
+        }
+    }
+
+    /**
+     * Skips the rest of a string, after its opening quote
+     */
+    private void skipQuoted() throws IOException {
+        while (pos < limit || fill()) {
+            char c = buffer[pos++];
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                readEscape();
+            }
+        }
+        throw syntaxError("Texto sin terminar");
+    }
+
+    private char readEscape() throws IOException {
+        int c = read();
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                return (char) c;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw syntaxError("Secuencia de escape \\u no válida");
+                    }
+                    value = value * 16 + digit;
+                }
+                return (char) value;
+            default:
+                throw syntaxError("Secuencia de escape no válida");
+        }
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            throw syntaxError("Fin del documento inesperado");
+        }
+        return buffer[pos++];
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        while (pos < limit || fill()) {
+            char c = buffer[pos++];
+            if (!Character.isWhitespace(c)) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Refills the buffer, only called once it has been fully consumed
+     *
+     * @return false at the end of the document
+     */
+    private boolean fill() throws IOException {
+        consumed += limit;
+        pos = 0;
+        limit = 0;
+        int n;
+        while ((n = in.read(buffer)) == 0) {
+            // Readers may return 0 before blocking, keep reading
+        }
+        if (n < 0) {
+            return false;
+        }
+        limit = n;
+        return true;
+    }
+
+    private void trimText() {
+        int end = text.length();
+        while (end > 0 && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        int start = 0;
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        text.setLength(end);
+        text.delete(0, start);
+    }
+
+    private boolean equalsText(String value) {
+        if (text.length() != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (text.charAt(i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String inProperty() {
+        return lastName == null ? "" : " en \"" + lastName + "\"";
+    }
+
+    private static String describe(Token token) {
+        switch (token) {
+            case BEGIN_OBJECT:
+                return "'{'";
+            case END_OBJECT:
+                return "'}'";
+            case BEGIN_ARRAY:
+                return "'['";
+            case END_ARRAY:
+                return "']'";
+            case NAME:
+                return "un nombre";
+            case END_DOCUMENT:
+                return "el fin del documento";
+            default:
+                return "un valor";
+        }
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException(
+                "JSON no válido en la posición " + (consumed + pos) + ": " + message);
+    }
+}
@@ -0,0 +1,327 @@
+package com.signalapp.json;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Streaming JSON writer. Values are written as the caller produces them into a small buffer that
+ * is passed on to the underlying {@link Writer} whenever it fills up, so a list can be sent row by
+ * row while it is read from the database instead of being built in a string first. Strings are
+ * escaped in a single pass over their characters.
+ *
+ * Commas and colons are added by the writer; the caller only opens and closes objects and arrays,
+ * and writes names and values in order.
+ */
+public final class JsonWriter {
+    // What the writer expects next in each open scope
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int NONEMPTY_OBJECT = 3;
+    private static final int DANGLING_NAME = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Writer out;
+    private final char[] buffer = new char[4096];
+    private int pos;
+
+    private int[] stack = new int[16];
+    private int depth;
+
+    /**
+     * Creates a writer for a JSON document
+     *
+     * @param out The destination of the document, for example the response writer
+     */
+    public JsonWriter(Writer out) {
+        this.out = out;
+        stack[depth++] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Opens an object
+     *
+     * @return This writer
+     * @throws IOException if the underlying writer fails
+     */
+    public JsonWriter beginObject() throws IOException {
+        beforeValue();
+        push(EMPTY_OBJECT);
+        write('{');
+        return this;
+    }
+
+    /**
+     * Closes the current object
+     *
+     * @return This writer
+     * @throws IOException if the underlying writer fails
+     */
+    public JsonWriter endObject() throws IOException {
+        return close(EMPTY_OBJECT, NONEMPTY_OBJECT, '}');
+    }
+
+    /**
+     * Opens an array
+     *
+     * @return This writer
+     * @throws IOException if the underlying writer fails
+     */
+    public JsonWriter beginArray() throws IOException {
+        beforeValue();
+        push(EMPTY_ARRAY);
+        write('[');
+        return this;
+    }
+
+    /**
+     * Closes the current array
+     *
+     * @return This writer
+     * @throws IOException if the underlying writer fails
+     */
+    public JsonWriter endArray() throws IOException {
+        return close(EMPTY_ARRAY, NONEMPTY_ARRAY, ']');
+    }
+
+    /**
+     * Writes the name of the next property of the current object
+     *
+     * @param name The property name
+     * @return This writer
+     * @throws IOException if the underlying writer fails
+     */
+    public JsonWriter name(String name) throws IOException {
+        int scope = stack[depth - 1];
+        if (scope == NONEMPTY_OBJECT) {
+            write(',');
+        } else if (scope != EMPTY_OBJECT) {
+            throw new IllegalStateException("Nombre fuera de un objeto: " + name);
+        }
+        stack[depth - 1] = DANGLING_NAME;
+        string(name);
+        write(':');
+        return this;
+    }
+
+    /**
+     * Writes a string value, or null
+     *
+     * @param value The value
+     * @return This writer
+     * @throws IOException if the underlying writer fails
+     */
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        string(value);
+        return this;
+    }
+
+    /**
+     * Writes a number. Values that JSON cannot represent, NaN and the infinities, are written as
+     * null.
+     *
+     * @param value The value
+     * @return This writer
+     * @throws IOException if the underlying writer fails
+     */
+    public JsonWriter value(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return nullValue();
+        }
+        beforeValue();
+        write(Double.toString(value));
+        return this;
+    }
+
+    /**
+     * Writes an integer
+     *
+     * @param value The value
+     * @return This writer
+     * @throws IOException if the underlying writer fails
+     */
+    public JsonWriter value(long value) throws IOException {
+        beforeValue();
+        write(Long.toString(value));
+        return this;
+    }
+
+    /**
+     * Writes a boolean
+     *
+     * @param value The value
+     * @return This writer
+     * @throws IOException if the underlying writer fails
+     */
+    public JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        write(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Writes null
+     *
+     * @return This writer
+     * @throws IOException if the underlying writer fails
+     */
+    public JsonWriter nullValue() throws IOException {
+        beforeValue();
+        write("null");
+        return this;
+    }
+
+    /**
+     * Passes what has been written so far on to the underlying writer and flushes it
+     *
+     * @throws IOException if the underlying writer fails
+     */
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    /**
+     * Escapes a string to be placed between quotes in a JSON document
+     *
+     * @param value The string to escape
+     * @return The escaped string, empty if the value is null
+     */
+    public static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder escaped = null;
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            String replacement = replacement(value.charAt(i));
+            if (replacement == null) {
+                continue;
+            }
+            if (escaped == null) {
+                escaped = new StringBuilder(length + 16);
+            }
+            escaped.append(value, start, i).append(replacement);
+            start = i + 1;
+        }
+        if (escaped == null) {
+            return value;
+        }
+        return escaped.append(value, start, length).toString();
+    }
+
+    private JsonWriter close(int empty, int nonempty, char bracket) throws IOException {
+        int scope = stack[depth - 1];
+        if (scope != empty && scope != nonempty) {
+            throw new IllegalStateException("Cierre '" + bracket + "' inesperado");
+        }
+        depth--;
+        write(bracket);
+        return this;
+    }
+
+    private void beforeValue() throws IOException {
+        switch (stack[depth - 1]) {
+            case EMPTY_DOCUMENT:
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                break;
+            case EMPTY_ARRAY:
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                break;
+            case NONEMPTY_ARRAY:
+                write(',');
+                break;
+            case DANGLING_NAME:
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                break;
+            default:
+                throw new IllegalStateException("Valor sin nombre o después del documento");
+        }
+    }
+
+    private void push(int scope) {
+        if (depth == stack.length) {
+            int[] grown = new int[depth * 2];
+            System.arraycopy(stack, 0, grown, 0, depth);
+            stack = grown;
+        }
+        stack[depth++] = scope;
+    }
+
+    /**
+     * Writes a quoted string, escaping quotes, backslashes and control characters as it goes
+     */
+    private void string(String value) throws IOException {
+        write('"');
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String replacement = replacement(c);
+            if (replacement == null) {
+                write(c);
+            } else {
+                write(replacement);
+            }
+        }
+        write('"');
+    }
+
+    private static String replacement(char c) {
+        if (c >= 0x20 && c != '"' && c != '\\') {
+            return null;
+        }
+        switch (c) {
+            case '"':
+                return "\\\"";
+            case '\\':
+                return "\\\\";
+            case '\b':
+                return "\\b";
+            case '\f':
+                return "\\f";
+            case '\n':
+                return "\\n";
+            case '\r':
+                return "\\r";
+            case '\t':
+                return "\\t";
+            default:
+                return new String(new char[] {'\\', 'u', '0', '0', HEX[c >> 4], HEX[c & 0xF]});
+        }
+    }
+
+    private void write(char c) throws IOException {
+        if (pos == buffer.length) {
+            drain();
+        }
+        buffer[pos++] = c;
+    }
+
+    private void write(String s) throws IOException {
+        int length = s.length();
+        if (length > buffer.length - pos) {
+            drain();
+            if (length > buffer.length) {
+                out.write(s);
+                return;
+            }
+        }
+        s.getChars(0, length, buffer, pos);
+        pos += length;
+    }
+
+    private void drain() throws IOException {
+        if (pos > 0) {
+            out.write(buffer, 0, pos);
+            pos = 0;
+        }
+    }
+}
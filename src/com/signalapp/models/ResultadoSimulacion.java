@@ -9,6 +9,7 @@ public class ResultadoSimulacion {
     private int id_resultados_simulacion; // Primary key
     private int id_simulaciones; // Foreign key referencing Simulaciones table
     private int piso; // Floor number these results apply to
+    private int montante = 1; // Riser the floor hangs from (1 in single-riser buildings)
     private double nivel_senal; // Calculated signal level at the outlets on this floor (dBµV)
     private double costo_piso; // Calculated cost of components on this floor
     private String estado; // Status of the results (e.g., "ok", "error" based on margins)
@@ -43,6 +44,14 @@ public class ResultadoSimulacion {
         this.piso = piso;
     }
 
+    public int getMontante() {
+        return montante;
+    }
+
+    public void setMontante(int montante) {
+        this.montante = montante;
+    }
+
     public double getNivel_senal() {
         return nivel_senal;
     }
@@ -70,7 +79,8 @@ public class ResultadoSimulacion {
     @Override
     public String toString() {
         return "ResultadoSimulacion{" + "id_resultados_simulacion=" + id_resultados_simulacion
-                + ", id_simulaciones=" + id_simulaciones + ", piso=" + piso + ", nivel_senal="
-                + nivel_senal + ", costo_piso=" + costo_piso + ", estado='" + estado + '\'' + '}';
+                + ", id_simulaciones=" + id_simulaciones + ", piso=" + piso + ", montante="
+                + montante + ", nivel_senal=" + nivel_senal + ", costo_piso=" + costo_piso
+                + ", estado='" + estado + '\'' + '}';
     }
 }
@@ -0,0 +1,262 @@
+package com.signalapp.servlets;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.signalapp.dao.*;
+import com.signalapp.engine.*;
+import com.signalapp.json.*;
+import com.signalapp.models.*;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Servlet to evaluate many variants of the same building in one request. All scenarios share the
+ * number of floors and the signal type; each one may override the headend level, frequency, cable
+ * and components. The catalog and quality margins are resolved once per request and the scenarios
+ * are evaluated in parallel on a bounded pool.
+ */
+public class BatchCalculationServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+
+    /** Maximum number of scenarios accepted in a single request */
+    private static final int MAX_SCENARIOS = 1000;
+
+    /** Name of the calculation in the error messages */
+    private static final String BATCH = "El cálculo por lotes";
+
+    private transient ExecutorService executor;
+    private int poolSize;
+
+    /**
+     * Creates the worker pool, one thread per available processor
+     */
+    @Override
+    public void init() throws ServletException {
+        poolSize = Runtime.getRuntime().availableProcessors();
+        executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "signal-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Shuts down the worker pool
+     */
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Handles POST requests to evaluate a batch of scenarios
+     */
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        PrintWriter out = response.getWriter();
+
+        try {
+            BatchRequest batch = new BatchRequest();
+            batch.read(new JsonReader(request.getReader()));
+
+            if (batch.scenarios == null) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                out.write("{\"error\":\"Faltan los escenarios\"}");
+                return;
+            }
+
+            if (batch.scenarios.isEmpty() || batch.scenarios.size() > MAX_SCENARIOS) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                out.write("{\"error\":\"El numero de escenarios debe estar entre 1 y "
+                        + MAX_SCENARIOS + "\"}");
+                return;
+            }
+
+            batch.requireSingleRiser(BATCH);
+            int numPisos = CalculationRequest.require(batch.getNumPisos(), "num_pisos");
+            String tipoSenal = batch.getTipoSenal();
+
+            // Resolve catalog and margins once for the whole batch
+            ComponentCatalog catalog = ComponentCatalog.getInstance();
+            MargenCalidad margen = new MargenCalidadDAO().findByTipoSenal(tipoSenal);
+
+            BatchItem[] items = new BatchItem[batch.scenarios.size()];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = new BatchItem(batch, batch.scenarios.get(i));
+            }
+
+            evaluateInParallel(catalog, numPisos, items);
+
+            out.write(buildJsonResponse(items, margen));
+        } catch (Exception e) {
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            out.write("{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+        }
+    }
+
+    /**
+     * Evaluates all items, splitting them in contiguous chunks across the pool
+     */
+    private void evaluateInParallel(ComponentCatalog catalog, int numPisos, BatchItem[] items)
+            throws InterruptedException, ExecutionException {
+        int chunks = Math.min(poolSize, items.length);
+        int chunkSize = (items.length + chunks - 1) / chunks;
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int from = 0; from < items.length; from += chunkSize) {
+            int start = from;
+            int end = Math.min(from + chunkSize, items.length);
+            futures.add(executor.submit(() -> {
+                for (int i = start; i < end; i++) {
+                    items[i].evaluate(catalog, numPisos);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    /**
+     * Builds the compact JSON response: margins once, then one entry per scenario with its levels
+     * ordered from floor 1 upwards
+     */
+    private String buildJsonResponse(BatchItem[] items, MargenCalidad margen) {
+        double min = margen.getNivel_minimo();
+        double max = margen.getNivel_maximo();
+
+        StringBuilder jsonBuilder = new StringBuilder();
+        jsonBuilder.append("{\"margins\":{\"min\":").append(min).append(",\"max\":").append(max);
+        jsonBuilder.append("},\"results\":[");
+
+        for (int i = 0; i < items.length; i++) {
+            if (i > 0)
+                jsonBuilder.append(",");
+
+            BatchItem item = items[i];
+            jsonBuilder.append("{\"index\":").append(i);
+            if (item.error != null) {
+                jsonBuilder.append(",\"error\":\"").append(escapeJson(item.error)).append("\"}");
+                continue;
+            }
+
+            double[] levels = item.result.getLevels();
+            int failingFloors = 0;
+            double minLevel = Double.POSITIVE_INFINITY;
+            double maxLevel = Double.NEGATIVE_INFINITY;
+            for (double level : levels) {
+                if (level < min || level > max)
+                    failingFloors++;
+                minLevel = Math.min(minLevel, level);
+                maxLevel = Math.max(maxLevel, level);
+            }
+
+            jsonBuilder.append(",\"status\":\"").append(failingFloors == 0 ? "ok" : "error");
+            jsonBuilder.append("\",\"failing_floors\":").append(failingFloors);
+            jsonBuilder.append(",\"total_cost\":").append(item.result.getTotalCost());
+            if (levels.length > 0) {
+                jsonBuilder.append(",\"min_level\":").append(minLevel);
+                jsonBuilder.append(",\"max_level\":").append(maxLevel);
+            }
+            jsonBuilder.append(",\"levels\":[");
+            for (int f = 0; f < levels.length; f++) {
+                if (f > 0)
+                    jsonBuilder.append(",");
+                jsonBuilder.append(levels[f]);
+            }
+            jsonBuilder.append("]}");
+        }
+
+        jsonBuilder.append("]}");
+        return jsonBuilder.toString();
+    }
+
+    /**
+     * A scenario of the batch: its parameters, and once evaluated its result or error
+     */
+    private static class BatchItem {
+        final CalculationRequest shared;
+        final CalculationRequest scenario;
+        SignalResult result;
+        String error;
+
+        BatchItem(CalculationRequest shared, CalculationRequest scenario) {
+            this.shared = shared;
+            this.scenario = scenario;
+        }
+
+        /**
+         * Validates, resolves and evaluates this scenario. Values missing from the scenario are
+         * taken from the shared parameters of the request.
+         */
+        void evaluate(ComponentCatalog catalog, int numPisos) {
+            try {
+                scenario.requireSingleRiser(BATCH);
+                double nivelCabecera = CalculationRequest.require(
+                        scenario.getNivelCabecera() != null ? scenario.getNivelCabecera()
+                                : shared.getNivelCabecera(),
+                        "nivel_cabecera");
+                int frequency = CalculationRequest.require(scenario.getFrequency() != null
+                        ? scenario.getFrequency() : shared.getFrequency(), "frequency");
+                String cableModel = scenario.getSelectedCableModel().isEmpty()
+                        ? shared.getSelectedCableModel() : scenario.getSelectedCableModel();
+                List<ComponentConfig> components = scenario.hasComponents()
+                        ? scenario.getComponents() : shared.getComponents();
+
+                ScenarioResolver.validate(components);
+                Scenario resolved = ScenarioResolver.resolve(catalog, numPisos, nivelCabecera,
+                        components, frequency, cableModel);
+                result = SignalEngine.calculate(resolved);
+            } catch (Exception e) {
+                error = e.getMessage() != null ? e.getMessage() : e.toString();
+            }
+        }
+    }
+
+    /**
+     * Body of a batch request: the shared parameters and the scenarios
+     */
+    private static class BatchRequest extends CalculationRequest {
+        List<CalculationRequest> scenarios;
+
+        @Override
+        protected boolean readProperty(String name, JsonReader reader) throws IOException {
+            if (!"scenarios".equals(name)) {
+                return super.readProperty(name, reader);
+            }
+            scenarios = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                CalculationRequest scenario = new CalculationRequest();
+                scenario.read(reader);
+                scenarios.add(scenario);
+            }
+            reader.endArray();
+            return true;
+        }
+    }
+
+    /**
+     * Escapes special characters in a string for JSON formatting
+     *
+     * @param input The string to escape
+     * @return The escaped string safe for JSON output
+     */
+    private String escapeJson(String input) {
+        return JsonWriter.escape(input);
+    }
+}
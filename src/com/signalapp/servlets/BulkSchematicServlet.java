@@ -0,0 +1,185 @@
+package com.signalapp.servlets;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.signalapp.dao.*;
+import com.signalapp.json.JsonReader;
+import com.signalapp.json.JsonWriter;
+import com.signalapp.models.*;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Servlet to save the whole schematic of a simulation in one request. The stored components of
+ * the simulation are replaced by the ones in the body in a single transaction, inserted as one
+ * batch, and the generated IDs are returned in the same order.
+ */
+public class BulkSchematicServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+
+    /** Maximum number of components accepted in a single request */
+    private static final int MAX_COMPONENTS = 20000;
+
+    /**
+     * Handles POST requests to replace the schematic of a simulation
+     */
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        PrintWriter out = response.getWriter();
+
+        Integer idSimulacion = null;
+        List<Esquematico> componentes = null;
+        try {
+            JsonReader reader = new JsonReader(request.getReader());
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonReader.Token.NULL) {
+                    reader.skipValue();
+                    continue;
+                }
+                switch (name) {
+                    case "id_simulaciones":
+                        idSimulacion = reader.nextInt();
+                        break;
+                    case "components":
+                        componentes = readComponents(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+        } catch (IOException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.write("{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+            return;
+        }
+
+        if (idSimulacion == null || componentes == null) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.write("{\"error\":\"Faltan parametros requeridos\"}");
+            return;
+        }
+        if (componentes.size() > MAX_COMPONENTS) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.write("{\"error\":\"El número de componentes no puede ser mayor que "
+                    + MAX_COMPONENTS + "\"}");
+            return;
+        }
+
+        try {
+            if (new SimulacionDAO().findById(idSimulacion) == null) {
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                out.write("{\"error\":\"Simulacion no encontrada\"}");
+                return;
+            }
+
+            int[] ids = new EsquematicoDAO().replaceBySimulacion(idSimulacion, componentes);
+
+            JsonWriter json = new JsonWriter(out);
+            json.beginObject();
+            json.name("success").value("Esquemático guardado exitosamente");
+            json.name("ids").beginArray();
+            for (int id : ids) {
+                json.value(id);
+            }
+            json.endArray();
+            json.endObject();
+            json.flush();
+        } catch (SQLException e) {
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            out.write("{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+        }
+    }
+
+    /**
+     * Reads the components array. Each component takes the same properties as POST /schematic;
+     * the names returned by GET /schematic are also accepted for the type and model.
+     */
+    static List<Esquematico> readComponents(JsonReader reader) throws IOException {
+        List<Esquematico> componentes = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String tipo = null;
+            String modelo = null;
+            Integer piso = null;
+            Integer posicionX = null;
+            Integer posicionY = null;
+            String cableTipo = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonReader.Token.NULL) {
+                    reader.skipValue();
+                    continue;
+                }
+                switch (name) {
+                    case "tipo":
+                    case "tipo_componente":
+                        tipo = reader.nextString();
+                        break;
+                    case "modelo":
+                    case "modelo_componente":
+                        modelo = reader.nextString();
+                        break;
+                    case "piso":
+                        piso = reader.nextInt();
+                        break;
+                    case "posicion_x":
+                        posicionX = reader.nextInt();
+                        break;
+                    case "posicion_y":
+                        posicionY = reader.nextInt();
+                        break;
+                    case "cable_tipo":
+                        cableTipo = reader.nextString();
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+
+            if (tipo == null || modelo == null || piso == null || posicionX == null
+                    || posicionY == null) {
+                throw new IOException(
+                        "Faltan parametros requeridos en el componente " + (componentes.size() + 1));
+            }
+
+            Esquematico componente = new Esquematico();
+            componente.setTipo_componente(tipo);
+            componente.setModelo_componente(modelo);
+            componente.setPiso(piso);
+            componente.setPosicion_x(posicionX);
+            componente.setPosicion_y(posicionY);
+            componente.setCable_tipo(cableTipo); // Can be null
+            componentes.add(componente);
+        }
+        reader.endArray();
+        return componentes;
+    }
+
+    /**
+     * Escapes special characters in a string for JSON formatting
+     *
+     * @param input The string to escape
+     * @return The escaped string safe for JSON output
+     */
+    private String escapeJson(String input) {
+        return JsonWriter.escape(input);
+    }
+}
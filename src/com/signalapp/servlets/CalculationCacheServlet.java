@@ -0,0 +1,63 @@
+package com.signalapp.servlets;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.signalapp.engine.CalculationCache;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Servlet to monitor the cache of signal calculation responses. GET returns its size and the
+ * hit/miss/eviction counters, DELETE empties it.
+ */
+public class CalculationCacheServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Handles GET requests to read the cache counters
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        PrintWriter out = response.getWriter();
+
+        CalculationCache cache = CalculationCache.getInstance();
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+
+        StringBuilder jsonBuilder = new StringBuilder("{");
+        jsonBuilder.append("\"entries\":").append(cache.getSize()).append(",");
+        jsonBuilder.append("\"bytes\":").append(cache.getBytes()).append(",");
+        jsonBuilder.append("\"max_entries\":").append(CalculationCache.MAX_ENTRIES).append(",");
+        jsonBuilder.append("\"max_bytes\":").append(CalculationCache.MAX_BYTES).append(",");
+        jsonBuilder.append("\"ttl_seconds\":").append(CalculationCache.TTL_MILLIS / 1000)
+                .append(",");
+        jsonBuilder.append("\"hits\":").append(hits).append(",");
+        jsonBuilder.append("\"misses\":").append(misses).append(",");
+        jsonBuilder.append("\"evictions\":").append(cache.getEvictions()).append(",");
+        jsonBuilder.append("\"expirations\":").append(cache.getExpirations()).append(",");
+        jsonBuilder.append("\"hit_ratio\":")
+                .append(hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        jsonBuilder.append("}");
+        out.write(jsonBuilder.toString());
+    }
+
+    /**
+     * Handles DELETE requests to empty the cache
+     */
+    @Override
+    protected void doDelete(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+
+        CalculationCache.getInstance().clear();
+        response.getWriter().write("{\"success\":\"Caché vaciada correctamente\"}");
+    }
+}
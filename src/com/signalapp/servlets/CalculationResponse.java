@@ -0,0 +1,163 @@
+package com.signalapp.servlets;
+
+import com.signalapp.engine.*;
+import com.signalapp.json.JsonWriter;
+import com.signalapp.models.MargenCalidad;
+
+/**
+ * JSON responses of a signal calculation: the level, status, cost and component effects of every
+ * floor, the quality margins and the total cost. Shared by POST /calculate and POST /simulate.
+ */
+public final class CalculationResponse {
+
+    private CalculationResponse() {}
+
+    /**
+     * Builds JSON response with signal levels, margins and costs
+     */
+    static String build(Scenario scenario, SignalResult result, MargenCalidad margen) {
+        StringBuilder jsonBuilder = new StringBuilder();
+        jsonBuilder.append("{\"signal_levels\":[");
+
+        for (int floor = 1; floor <= scenario.getNumPisos(); floor++) {
+            if (floor > 1)
+                jsonBuilder.append(",");
+            appendFloor(jsonBuilder, scenario, result, margen, floor, 0);
+        }
+
+        jsonBuilder.append("],\"margins\":{");
+        jsonBuilder.append("\"min\":").append(margen.getNivel_minimo()).append(",");
+        jsonBuilder.append("\"max\":").append(margen.getNivel_maximo());
+        jsonBuilder.append("},\"total_cost\":").append(result.getTotalCost());
+        jsonBuilder.append("}");
+
+        return jsonBuilder.toString();
+    }
+
+    /**
+     * Builds JSON response for a building with several risers: the floors of every riser, riser
+     * by riser, and the headend splitter
+     */
+    public static String buildBuilding(Building building, BuildingResult result,
+            MargenCalidad margen) {
+        StringBuilder jsonBuilder = new StringBuilder();
+        jsonBuilder.append("{\"risers\":").append(building.getNumRisers()).append(",");
+        if (building.getSplitterModel() != null && !building.getSplitterModel().isEmpty()) {
+            jsonBuilder.append("\"riser_splitter\":{");
+            jsonBuilder.append("\"model\":\"").append(escapeJson(building.getSplitterModel()))
+                    .append("\",");
+            jsonBuilder.append("\"attenuation\":").append(building.getSplitterAttenuation())
+                    .append(",");
+            jsonBuilder.append("\"cost\":").append(building.getSplitterCost()).append("},");
+        }
+        jsonBuilder.append("\"signal_levels\":[");
+
+        boolean first = true;
+        for (int riser = 1; riser <= building.getNumRisers(); riser++) {
+            Scenario scenario = building.getRiser(riser);
+            SignalResult riserResult = result.getRiser(riser);
+            for (int floor = 1; floor <= scenario.getNumPisos(); floor++) {
+                if (!first)
+                    jsonBuilder.append(",");
+                first = false;
+                appendFloor(jsonBuilder, scenario, riserResult, margen, floor, riser);
+            }
+        }
+
+        jsonBuilder.append("],\"margins\":{");
+        jsonBuilder.append("\"min\":").append(margen.getNivel_minimo()).append(",");
+        jsonBuilder.append("\"max\":").append(margen.getNivel_maximo());
+        jsonBuilder.append("},\"total_cost\":").append(result.getTotalCost());
+        jsonBuilder.append("}");
+
+        return jsonBuilder.toString();
+    }
+
+    /**
+     * Appends the result of one floor to the JSON builder
+     *
+     * @param riser The riser of the floor, or 0 to leave it out of the output
+     */
+    private static void appendFloor(StringBuilder jsonBuilder, Scenario scenario,
+            SignalResult result, MargenCalidad margen, int floor, int riser) {
+        double level = result.getLevel(floor);
+        String status = (level >= margen.getNivel_minimo() && level <= margen.getNivel_maximo())
+                ? "ok" : "error";
+
+        // Build JSON object with proper escaping
+        jsonBuilder.append("{");
+        if (riser > 0) {
+            jsonBuilder.append("\"riser\":").append(riser).append(",");
+        }
+        jsonBuilder.append("\"floor\":").append(floor).append(",");
+        jsonBuilder.append("\"level\":").append(level).append(",");
+        jsonBuilder.append("\"status\":\"").append(status).append("\",");
+        jsonBuilder.append("\"floor_cost\":").append(result.getFloorCost(floor)).append(",");
+        jsonBuilder.append("\"components\":[");
+
+        appendComponentEffects(jsonBuilder, scenario, floor);
+
+        jsonBuilder.append("]}");
+    }
+
+    /**
+     * Appends the effect of every component of a floor to the JSON builder, in signal order
+     */
+    private static void appendComponentEffects(StringBuilder jsonBuilder, Scenario scenario,
+            int floor) {
+        int start = jsonBuilder.length();
+        double cableFactor = scenario.getCableAttenuation() / 100.0;
+
+        if (scenario.getDerivadorModel(floor) != null) {
+            appendComponentEffect(jsonBuilder, start, "derivacion",
+                    scenario.getDerivadorModel(floor), scenario.getDerivacion(floor),
+                    scenario.getDerivadorCost(floor));
+        }
+        if (scenario.hasCable() && scenario.hasComponents(floor)) {
+            appendComponentEffect(jsonBuilder, start, "coaxial_en_planta_15m",
+                    scenario.getCableModel(), cableFactor * SignalEngine.IN_FLOOR_CABLE_METERS,
+                    scenario.getCableCost() * SignalEngine.IN_FLOOR_CABLE_METERS);
+        }
+        if (scenario.getDistribuidorModel(floor) != null) {
+            appendComponentEffect(jsonBuilder, start, "distribuidor",
+                    scenario.getDistribuidorModel(floor), scenario.getDistribucion(floor),
+                    scenario.getDistribuidorCost(floor));
+        }
+        if (scenario.getTomaModel(floor) != null) {
+            appendComponentEffect(jsonBuilder, start, "toma", scenario.getTomaModel(floor),
+                    scenario.getTomaAttenuation(floor), scenario.getTomaCost(floor));
+        }
+        if (scenario.hasCable() && floor > 1) {
+            appendComponentEffect(jsonBuilder, start, "coaxial_entre_pisos_3m",
+                    scenario.getCableModel(), cableFactor * SignalEngine.RISER_CABLE_METERS,
+                    scenario.getCableCost() * SignalEngine.RISER_CABLE_METERS);
+        }
+    }
+
+    /**
+     * Appends a single component effect to the JSON builder
+     */
+    private static void appendComponentEffect(StringBuilder jsonBuilder, int start, String type,
+            String model, double attenuation, double cost) {
+        if (jsonBuilder.length() > start)
+            jsonBuilder.append(",");
+
+        // Build JSON object with proper escaping
+        jsonBuilder.append("{");
+        jsonBuilder.append("\"type\":\"").append(escapeJson(type)).append("\",");
+        jsonBuilder.append("\"model\":\"").append(escapeJson(model)).append("\",");
+        jsonBuilder.append("\"attenuation\":").append(attenuation).append(",");
+        jsonBuilder.append("\"cost\":").append(cost);
+        jsonBuilder.append("}");
+    }
+
+    /**
+     * Escapes special characters in a string for JSON formatting
+     *
+     * @param input The string to escape
+     * @return The escaped string safe for JSON output
+     */
+    private static String escapeJson(String input) {
+        return JsonWriter.escape(input);
+    }
+}
@@ -0,0 +1,119 @@
+package com.signalapp.servlets;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.signalapp.dao.ComponentCatalog;
+import com.signalapp.json.JsonWriter;
+import com.signalapp.models.*;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.SQLException;
+
+/**
+ * Servlet that returns the whole component catalog in one response: every component of every
+ * type with its type-specific attributes, read from the in-memory catalog snapshot. The response
+ * carries the version tag of the snapshot, which changes whenever a component is added, modified
+ * or deleted.
+ */
+public class ComponentCatalogServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+
+    private static final String[] TIPOS = {ComponentCatalog.COAXIAL, ComponentCatalog.DERIVADOR,
+            ComponentCatalog.DISTRIBUIDOR, ComponentCatalog.TOMA};
+
+    /**
+     * Handles GET requests for the component catalog
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        PrintWriter out = response.getWriter();
+
+        ComponentCatalog catalog;
+        try {
+            catalog = ComponentCatalog.getInstance();
+        } catch (SQLException e) {
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            out.write("{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+            return;
+        }
+        if (ConditionalGet.notModified(request, response, catalog.getVersionTag(),
+                catalog.getLastModified())) {
+            return;
+        }
+
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject();
+        json.name("version").value(catalog.getVersionTag());
+        json.name("components").beginObject();
+        for (String tipo : TIPOS) {
+            json.name(tipo).beginArray();
+            for (Componente componente : catalog.findByTipo(tipo)) {
+                json.beginObject();
+                json.name("id_componentes").value(componente.getId_componentes());
+                json.name("modelo").value(componente.getModelo());
+                json.name("costo").value(componente.getCosto());
+                writeAttributes(json, catalog, tipo, componente.getId_componentes());
+                json.endObject();
+            }
+            json.endArray();
+        }
+        json.endObject();
+        json.endObject();
+        json.flush();
+    }
+
+    /**
+     * Writes the type-specific attributes of a component, with the same names as the details
+     * returned by GET /components
+     */
+    private void writeAttributes(JsonWriter json, ComponentCatalog catalog, String tipo,
+            int idComponente) throws IOException {
+        switch (tipo) {
+            case ComponentCatalog.COAXIAL:
+                Coaxial coaxial = catalog.getCoaxial(idComponente);
+                json.name("atenuacion_470mhz").value(coaxial.getAtenuacion_470mhz());
+                json.name("atenuacion_694mhz").value(coaxial.getAtenuacion_694mhz());
+                break;
+            case ComponentCatalog.DERIVADOR:
+                Derivador derivador = catalog.getDerivador(idComponente);
+                json.name("atenuacion_derivacion").value(derivador.getAtenuacion_derivacion());
+                json.name("atenuacion_paso").value(derivador.getAtenuacion_paso());
+                json.name("directividad").value(derivador.getDirectividad());
+                json.name("desacoplo").value(derivador.getDesacoplo());
+                json.name("perdidas_retorno").value(derivador.getPerdidas_retorno());
+                break;
+            case ComponentCatalog.DISTRIBUIDOR:
+                Distribuidor distribuidor = catalog.getDistribuidor(idComponente);
+                json.name("numero_salidas").value(distribuidor.getNumero_salidas());
+                json.name("atenuacion_distribucion")
+                        .value(distribuidor.getAtenuacion_distribucion());
+                json.name("desacoplo").value(distribuidor.getDesacoplo());
+                json.name("perdidas_retorno").value(distribuidor.getPerdidas_retorno());
+                break;
+            case ComponentCatalog.TOMA:
+                Toma toma = catalog.getToma(idComponente);
+                json.name("atenuacion").value(toma.getAtenuacion());
+                json.name("desacoplo").value(toma.getDesacoplo());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Escapes special characters in a string for JSON formatting
+     *
+     * @param input The string to escape
+     * @return The escaped string safe for JSON output
+     */
+    private String escapeJson(String input) {
+        return JsonWriter.escape(input);
+    }
+}
@@ -6,16 +6,19 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import com.signalapp.dao.*;
+import com.signalapp.json.JsonReader;
+import com.signalapp.json.JsonWriter;
 import com.signalapp.models.*;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Servlet for handling component operations (GET, POST, PUT, DELETE). Provides endpoints to
@@ -42,6 +45,12 @@ public class ComponentServlet extends HttpServlet {
             return;
         }
 
+        TableVersions.Stamp stamp = TableVersions.get(ComponentCatalog.TABLES);
+        if (ConditionalGet.notModified(request, response, stamp.getTag(),
+                stamp.getLastModified())) {
+            return;
+        }
+
         try {
             // If model is provided, return detailed information for that specific component
             if (model != null) {
@@ -54,8 +63,8 @@ public class ComponentServlet extends HttpServlet {
                     return;
                 }
 
-                StringBuilder jsonBuilder = new StringBuilder("{");
-                jsonBuilder.append("\"costo\":").append(componente.getCosto()).append(",");
+                JsonWriter json = new JsonWriter(out);
+                json.beginObject().name("costo").value(componente.getCosto());
 
                 // Add specific component details based on type
                 switch (type.toLowerCase()) {
@@ -64,10 +73,8 @@ public class ComponentServlet extends HttpServlet {
                         Coaxial coaxial =
                                 coaxialDAO.findByComponenteId(componente.getId_componentes());
                         if (coaxial != null) {
-                            jsonBuilder.append("\"atenuacion_470mhz\":")
-                                    .append(coaxial.getAtenuacion_470mhz()).append(",");
-                            jsonBuilder.append("\"atenuacion_694mhz\":")
-                                    .append(coaxial.getAtenuacion_694mhz());
+                            json.name("atenuacion_470mhz").value(coaxial.getAtenuacion_470mhz());
+                            json.name("atenuacion_694mhz").value(coaxial.getAtenuacion_694mhz());
                         }
                         break;
                     case "derivador":
@@ -75,16 +82,12 @@ public class ComponentServlet extends HttpServlet {
                         Derivador derivador =
                                 derivadorDAO.findByComponenteId(componente.getId_componentes());
                         if (derivador != null) {
-                            jsonBuilder.append("\"atenuacion_derivacion\":")
-                                    .append(derivador.getAtenuacion_derivacion()).append(",");
-                            jsonBuilder.append("\"atenuacion_paso\":")
-                                    .append(derivador.getAtenuacion_paso()).append(",");
-                            jsonBuilder.append("\"directividad\":")
-                                    .append(derivador.getDirectividad()).append(",");
-                            jsonBuilder.append("\"desacoplo\":").append(derivador.getDesacoplo())
-                                    .append(",");
-                            jsonBuilder.append("\"perdidas_retorno\":")
-                                    .append(derivador.getPerdidas_retorno());
+                            json.name("atenuacion_derivacion")
+                                    .value(derivador.getAtenuacion_derivacion());
+                            json.name("atenuacion_paso").value(derivador.getAtenuacion_paso());
+                            json.name("directividad").value(derivador.getDirectividad());
+                            json.name("desacoplo").value(derivador.getDesacoplo());
+                            json.name("perdidas_retorno").value(derivador.getPerdidas_retorno());
                         }
                         break;
                     case "distribuidor":
@@ -92,78 +95,48 @@ public class ComponentServlet extends HttpServlet {
                         Distribuidor distribuidor =
                                 distribuidorDAO.findByComponenteId(componente.getId_componentes());
                         if (distribuidor != null) {
-                            jsonBuilder.append("\"numero_salidas\":")
-                                    .append(distribuidor.getNumero_salidas()).append(",");
-                            jsonBuilder.append("\"atenuacion_distribucion\":")
-                                    .append(distribuidor.getAtenuacion_distribucion()).append(",");
-                            jsonBuilder.append("\"desacoplo\":").append(distribuidor.getDesacoplo())
-                                    .append(",");
-                            jsonBuilder.append("\"perdidas_retorno\":")
-                                    .append(distribuidor.getPerdidas_retorno());
+                            json.name("numero_salidas").value(distribuidor.getNumero_salidas());
+                            json.name("atenuacion_distribucion")
+                                    .value(distribuidor.getAtenuacion_distribucion());
+                            json.name("desacoplo").value(distribuidor.getDesacoplo());
+                            json.name("perdidas_retorno")
+                                    .value(distribuidor.getPerdidas_retorno());
                         }
                         break;
                     case "toma":
                         TomaDAO tomaDAO = new TomaDAO();
                         Toma toma = tomaDAO.findByComponenteId(componente.getId_componentes());
                         if (toma != null) {
-                            jsonBuilder.append("\"atenuacion\":").append(toma.getAtenuacion())
-                                    .append(",");
-                            jsonBuilder.append("\"desacoplo\":").append(toma.getDesacoplo());
+                            json.name("atenuacion").value(toma.getAtenuacion());
+                            json.name("desacoplo").value(toma.getDesacoplo());
                         }
                         break;
                     default:
+                        // Nothing has left the writer yet, it is simply dropped
                         response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                         out.write("{\"error\":\"Tipo de componente no valido\"}");
                         return;
                 }
-                jsonBuilder.append("}");
-                out.write(jsonBuilder.toString());
+                json.endObject();
+                json.flush();
                 return;
             }
 
             // If no model provided, return list of models for the type (existing
             // functionality)
-            List<String> components = new ArrayList<>();
-            ComponenteDAO componenteDAO = new ComponenteDAO();
-
+            String tablaTipo;
             switch (type.toLowerCase()) {
                 case "coaxial":
-                    CoaxialDAO coaxialDAO = new CoaxialDAO();
-                    for (Coaxial coaxial : coaxialDAO.findAll()) {
-                        Componente componente = componenteDAO.findById(coaxial.getId_componentes());
-                        if (componente != null) {
-                            components.add(componente.getModelo());
-                        }
-                    }
+                    tablaTipo = "coaxiales";
                     break;
                 case "derivador":
-                    DerivadorDAO derivadorDAO = new DerivadorDAO();
-                    for (Derivador derivador : derivadorDAO.findAll()) {
-                        Componente componente =
-                                componenteDAO.findById(derivador.getId_componentes());
-                        if (componente != null) {
-                            components.add(componente.getModelo());
-                        }
-                    }
+                    tablaTipo = "derivadores";
                     break;
                 case "distribuidor":
-                    DistribuidorDAO distribuidorDAO = new DistribuidorDAO();
-                    for (Distribuidor distribuidor : distribuidorDAO.findAll()) {
-                        Componente componente =
-                                componenteDAO.findById(distribuidor.getId_componentes());
-                        if (componente != null) {
-                            components.add(componente.getModelo());
-                        }
-                    }
+                    tablaTipo = "distribuidores";
                     break;
                 case "toma":
-                    TomaDAO tomaDAO = new TomaDAO();
-                    for (Toma toma : tomaDAO.findAll()) {
-                        Componente componente = componenteDAO.findById(toma.getId_componentes());
-                        if (componente != null) {
-                            components.add(componente.getModelo());
-                        }
-                    }
+                    tablaTipo = "tomas";
                     break;
                 default:
                     response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
@@ -171,19 +144,20 @@ public class ComponentServlet extends HttpServlet {
                     return;
             }
 
-            StringBuilder jsonBuilder = new StringBuilder("[");
-            boolean first = true;
-            for (String component : components) {
-                if (!first) {
-                    jsonBuilder.append(",");
-                }
-                first = false;
-                jsonBuilder.append("\"").append(escapeJson(component)).append("\"");
-            }
-            jsonBuilder.append("]");
-
-            out.write(jsonBuilder.toString());
+            // Write each model as it is read from the database, with a single query for the
+            // type table joined to the components instead of one lookup per row
+            ComponenteDAO componenteDAO = new ComponenteDAO();
+            JsonWriter json = new JsonWriter(out);
+            json.beginArray();
+            componenteDAO.forEachModeloByTabla(tablaTipo, json::value);
+            json.endArray();
+            json.flush();
         } catch (SQLException e) {
+            // Part of the list may already be on its way to the client
+            if (response.isCommitted()) {
+                throw new ServletException(e);
+            }
+            response.resetBuffer();
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             out.write("{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
         }
@@ -222,87 +196,81 @@ public class ComponentServlet extends HttpServlet {
             int idTipo = getTipoComponenteId(type.toLowerCase());
             componente.setId_tipos_componente(idTipo);
 
-            // Check if component with same model name already exists
-            ComponenteDAO componenteDAO = new ComponenteDAO();
-            if (componenteDAO.existsByModelo(modelo)) {
-                response.setStatus(HttpServletResponse.SC_CONFLICT);
-                out.write("{\"error\":\"Ya existe un componente con ese modelo\"}");
-                return;
-            }
-
-            // Insert Componente
-            componenteDAO.insert(componente);
-
-            // Get the generated component ID
-            int idComponente = getComponenteIdByModelo(modelo);
+            // The component and its type row are saved together
+            try (UnitOfWork work = UnitOfWork.begin()) {
+                // Check if component with same model name already exists
+                ComponenteDAO componenteDAO = new ComponenteDAO();
+                if (componenteDAO.existsByModelo(modelo)) {
+                    response.setStatus(HttpServletResponse.SC_CONFLICT);
+                    out.write("{\"error\":\"Ya existe un componente con ese modelo\"}");
+                    return;
+                }
 
-            // Parse properties
-            propertiesJson = propertiesJson.trim();
+                // Insert Componente
+                int idComponente = componenteDAO.insert(componente);
 
-            // Remove curly braces and split into key-value pairs
-            String[] pairs = propertiesJson.substring(1, propertiesJson.length() - 1).split(",");
-            java.util.Map<String, String> properties = new java.util.HashMap<>();
+                // Parse properties
+                Map<String, String> properties = readProperties(propertiesJson);
 
-            for (String pair : pairs) {
-                String[] keyValue = pair.split(":");
-                if (keyValue.length != 2)
-                    continue;
+                // Insert specific component with properties from request
+                switch (type.toLowerCase()) {
+                    case "coaxial":
+                        Coaxial coaxial = new Coaxial();
+                        coaxial.setId_componentes(idComponente);
+                        coaxial.setAtenuacion_470mhz(
+                                Double.parseDouble(properties.get("atenuacion_470mhz")));
+                        coaxial.setAtenuacion_694mhz(
+                                Double.parseDouble(properties.get("atenuacion_694mhz")));
+                        new CoaxialDAO().insert(coaxial);
+                        break;
+                    case "derivador":
+                        Derivador derivador = new Derivador();
+                        derivador.setId_componentes(idComponente);
+                        derivador.setAtenuacion_derivacion(
+                                Double.parseDouble(properties.get("atenuacion_derivacion")));
+                        derivador.setAtenuacion_paso(
+                                Double.parseDouble(properties.get("atenuacion_paso")));
+                        derivador.setDirectividad(
+                                Double.parseDouble(properties.get("directividad")));
+                        derivador.setDesacoplo(Double.parseDouble(properties.get("desacoplo")));
+                        derivador.setPerdidas_retorno(
+                                Double.parseDouble(properties.get("perdidas_retorno")));
+                        new DerivadorDAO().insert(derivador);
+                        break;
+                    case "distribuidor":
+                        Distribuidor distribuidor = new Distribuidor();
+                        distribuidor.setId_componentes(idComponente);
+                        distribuidor.setNumero_salidas(
+                                Integer.parseInt(properties.get("numero_salidas")));
+                        distribuidor.setAtenuacion_distribucion(
+                                Double.parseDouble(properties.get("atenuacion_distribucion")));
+                        distribuidor.setDesacoplo(Double.parseDouble(properties.get("desacoplo")));
+                        distribuidor.setPerdidas_retorno(
+                                Double.parseDouble(properties.get("perdidas_retorno")));
+                        new DistribuidorDAO().insert(distribuidor);
+                        break;
+                    case "toma":
+                        Toma toma = new Toma();
+                        toma.setId_componentes(idComponente);
+                        toma.setAtenuacion(Double.parseDouble(properties.get("atenuacion")));
+                        toma.setDesacoplo(Double.parseDouble(properties.get("desacoplo")));
+                        new TomaDAO().insert(toma);
+                        break;
+                    default:
+                        response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                        out.write("{\"error\":\"Tipo de componente no valido\"}");
+                        return;
+                }
 
-                String key = keyValue[0].trim().replace("\"", "");
-                String value = keyValue[1].trim().replace("\"", "");
-                properties.put(key, value);
+                work.commit();
             }
 
-            // Insert specific component with properties from request
-            switch (type.toLowerCase()) {
-                case "coaxial":
-                    Coaxial coaxial = new Coaxial();
-                    coaxial.setId_componentes(idComponente);
-                    coaxial.setAtenuacion_470mhz(
-                            Double.parseDouble(properties.get("atenuacion_470mhz")));
-                    coaxial.setAtenuacion_694mhz(
-                            Double.parseDouble(properties.get("atenuacion_694mhz")));
-                    new CoaxialDAO().insert(coaxial);
-                    break;
-                case "derivador":
-                    Derivador derivador = new Derivador();
-                    derivador.setId_componentes(idComponente);
-                    derivador.setAtenuacion_derivacion(
-                            Double.parseDouble(properties.get("atenuacion_derivacion")));
-                    derivador.setAtenuacion_paso(
-                            Double.parseDouble(properties.get("atenuacion_paso")));
-                    derivador.setDirectividad(Double.parseDouble(properties.get("directividad")));
-                    derivador.setDesacoplo(Double.parseDouble(properties.get("desacoplo")));
-                    derivador.setPerdidas_retorno(
-                            Double.parseDouble(properties.get("perdidas_retorno")));
-                    new DerivadorDAO().insert(derivador);
-                    break;
-                case "distribuidor":
-                    Distribuidor distribuidor = new Distribuidor();
-                    distribuidor.setId_componentes(idComponente);
-                    distribuidor
-                            .setNumero_salidas(Integer.parseInt(properties.get("numero_salidas")));
-                    distribuidor.setAtenuacion_distribucion(
-                            Double.parseDouble(properties.get("atenuacion_distribucion")));
-                    distribuidor.setDesacoplo(Double.parseDouble(properties.get("desacoplo")));
-                    distribuidor.setPerdidas_retorno(
-                            Double.parseDouble(properties.get("perdidas_retorno")));
-                    new DistribuidorDAO().insert(distribuidor);
-                    break;
-                case "toma":
-                    Toma toma = new Toma();
-                    toma.setId_componentes(idComponente);
-                    toma.setAtenuacion(Double.parseDouble(properties.get("atenuacion")));
-                    toma.setDesacoplo(Double.parseDouble(properties.get("desacoplo")));
-                    new TomaDAO().insert(toma);
-                    break;
-                default:
-                    response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-                    out.write("{\"error\":\"Tipo de componente no valido\"}");
-                    return;
-            }
+            reloadCatalog();
 
             out.write("{\"success\":\"Componente anadido exitosamente\"}");
+        } catch (IOException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.write("{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
         } catch (SQLException e) {
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             out.write("{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
@@ -390,17 +358,14 @@ public class ComponentServlet extends HttpServlet {
             return;
         }
 
-        // Clean up properties string
-        propertiesJson = propertiesJson.trim();
-        if (!propertiesJson.startsWith("{") || !propertiesJson.endsWith("}")) {
+        Map<String, String> properties;
+        try {
+            properties = readProperties(propertiesJson);
+        } catch (IOException e) {
             sendError(response, out, HttpServletResponse.SC_BAD_REQUEST,
-                    "Formato invalido para properties (debe empezar con { y terminar con })");
+                    "Formato invalido para properties: " + e.getMessage());
             return;
         }
-        // Remove braces for parsing
-        String propertiesContent = propertiesJson.substring(1, propertiesJson.length() - 1);
-        // Split into key-value pairs
-        String[] propertyPairs = propertiesContent.split(",");
 
         try {
             // Find existing component by model
@@ -423,117 +388,115 @@ public class ComponentServlet extends HttpServlet {
                 return;
             }
 
-            // Update base component cost
-            componente.setCosto(costo);
-            // Note: Assuming update takes the ID. The original had (component, id) which
-            // seems redundant if ID is in component.
-            componenteDAO.update(componente, componente.getId_componentes());
+            // The component and its type row are updated together
+            try (UnitOfWork work = UnitOfWork.begin()) {
+                // Update base component cost
+                componente.setCosto(costo);
+                // Note: Assuming update takes the ID. The original had (component, id) which
+                // seems redundant if ID is in component.
+                componenteDAO.update(componente, componente.getId_componentes());
 
-            // Update specific component type properties
-            switch (type.toLowerCase()) {
-                case "coaxial":
-                    CoaxialDAO coaxialDAO = new CoaxialDAO();
-                    Coaxial coaxial = coaxialDAO.findByComponenteId(componente.getId_componentes());
-                    if (coaxial == null)
-                        throw new SQLException(
-                                "Detalles de Coaxial no encontrados para el componente ID: "
-                                        + componente.getId_componentes());
-                    // Manually parse and update properties
-                    for (String pair : propertyPairs) {
-                        String[] keyValue = pair.split(":", 2);
-                        if (keyValue.length != 2)
-                            continue;
-                        String key = keyValue[0].trim().replace("\"", "");
-                        String value = keyValue[1].trim().replace("\"", "");
-                        if (key.equals("atenuacion_470mhz")) {
-                            coaxial.setAtenuacion_470mhz(Double.parseDouble(value));
-                        } else if (key.equals("atenuacion_694mhz")) {
-                            coaxial.setAtenuacion_694mhz(Double.parseDouble(value));
+                // Update specific component type properties
+                switch (type.toLowerCase()) {
+                    case "coaxial":
+                        CoaxialDAO coaxialDAO = new CoaxialDAO();
+                        Coaxial coaxial =
+                                coaxialDAO.findByComponenteId(componente.getId_componentes());
+                        if (coaxial == null)
+                            throw new SQLException(
+                                    "Detalles de Coaxial no encontrados para el componente ID: "
+                                            + componente.getId_componentes());
+                        if (properties.containsKey("atenuacion_470mhz")) {
+                            coaxial.setAtenuacion_470mhz(
+                                    Double.parseDouble(properties.get("atenuacion_470mhz")));
                         }
-                    }
-                    coaxialDAO.update(coaxial, coaxial.getId_coaxiales());
-                    break;
-                case "derivador":
-                    DerivadorDAO derivadorDAO = new DerivadorDAO();
-                    Derivador derivador =
-                            derivadorDAO.findByComponenteId(componente.getId_componentes());
-                    if (derivador == null)
-                        throw new SQLException(
-                                "Detalles de Derivador no encontrados para el componente ID: "
-                                        + componente.getId_componentes());
-                    for (String pair : propertyPairs) {
-                        String[] keyValue = pair.split(":", 2);
-                        if (keyValue.length != 2)
-                            continue;
-                        String key = keyValue[0].trim().replace("\"", "");
-                        String value = keyValue[1].trim().replace("\"", "");
-                        if (key.equals("atenuacion_derivacion")) {
-                            derivador.setAtenuacion_derivacion(Double.parseDouble(value));
-                        } else if (key.equals("atenuacion_paso")) {
-                            derivador.setAtenuacion_paso(Double.parseDouble(value));
-                        } else if (key.equals("directividad")) {
-                            derivador.setDirectividad(Double.parseDouble(value));
-                        } else if (key.equals("desacoplo")) {
-                            derivador.setDesacoplo(Double.parseDouble(value));
-                        } else if (key.equals("perdidas_retorno")) {
-                            derivador.setPerdidas_retorno(Double.parseDouble(value));
+                        if (properties.containsKey("atenuacion_694mhz")) {
+                            coaxial.setAtenuacion_694mhz(
+                                    Double.parseDouble(properties.get("atenuacion_694mhz")));
                         }
-                    }
-                    derivadorDAO.update(derivador, derivador.getId_derivadores());
-                    break;
-                case "distribuidor":
-                    DistribuidorDAO distribuidorDAO = new DistribuidorDAO();
-                    Distribuidor distribuidor =
-                            distribuidorDAO.findByComponenteId(componente.getId_componentes());
-                    if (distribuidor == null)
-                        throw new SQLException(
-                                "Detalles de Distribuidor no encontrados para el componente ID: "
-                                        + componente.getId_componentes());
-                    for (String pair : propertyPairs) {
-                        String[] keyValue = pair.split(":", 2);
-                        if (keyValue.length != 2)
-                            continue;
-                        String key = keyValue[0].trim().replace("\"", "");
-                        String value = keyValue[1].trim().replace("\"", "");
-                        if (key.equals("numero_salidas")) {
-                            distribuidor.setNumero_salidas(Integer.parseInt(value));
-                        } else if (key.equals("atenuacion_distribucion")) {
-                            distribuidor.setAtenuacion_distribucion(Double.parseDouble(value));
-                        } else if (key.equals("desacoplo")) {
-                            distribuidor.setDesacoplo(Double.parseDouble(value));
-                        } else if (key.equals("perdidas_retorno")) {
-                            distribuidor.setPerdidas_retorno(Double.parseDouble(value));
+                        coaxialDAO.update(coaxial, coaxial.getId_coaxiales());
+                        break;
+                    case "derivador":
+                        DerivadorDAO derivadorDAO = new DerivadorDAO();
+                        Derivador derivador =
+                                derivadorDAO.findByComponenteId(componente.getId_componentes());
+                        if (derivador == null)
+                            throw new SQLException(
+                                    "Detalles de Derivador no encontrados para el componente ID: "
+                                            + componente.getId_componentes());
+                        if (properties.containsKey("atenuacion_derivacion")) {
+                            derivador.setAtenuacion_derivacion(
+                                    Double.parseDouble(properties.get("atenuacion_derivacion")));
                         }
-                    }
-                    distribuidorDAO.update(distribuidor, distribuidor.getId_distribuidores());
-                    break;
-                case "toma":
-                    TomaDAO tomaDAO = new TomaDAO();
-                    Toma toma = tomaDAO.findByComponenteId(componente.getId_componentes());
-                    if (toma == null)
-                        throw new SQLException(
-                                "Detalles de Toma no encontrados para el componente ID: "
-                                        + componente.getId_componentes());
-                    for (String pair : propertyPairs) {
-                        String[] keyValue = pair.split(":", 2);
-                        if (keyValue.length != 2)
-                            continue;
-                        String key = keyValue[0].trim().replace("\"", "");
-                        String value = keyValue[1].trim().replace("\"", "");
-                        if (key.equals("atenuacion")) {
-                            toma.setAtenuacion(Double.parseDouble(value));
-                        } else if (key.equals("desacoplo")) {
-                            toma.setDesacoplo(Double.parseDouble(value));
+                        if (properties.containsKey("atenuacion_paso")) {
+                            derivador.setAtenuacion_paso(
+                                    Double.parseDouble(properties.get("atenuacion_paso")));
                         }
-                    }
-                    tomaDAO.update(toma, toma.getId_tomas());
-                    break;
-                default:
-                    response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-                    out.write("{\"error\":\"Tipo de componente no valido\"}");
-                    return;
+                        if (properties.containsKey("directividad")) {
+                            derivador.setDirectividad(
+                                    Double.parseDouble(properties.get("directividad")));
+                        }
+                        if (properties.containsKey("desacoplo")) {
+                            derivador.setDesacoplo(Double.parseDouble(properties.get("desacoplo")));
+                        }
+                        if (properties.containsKey("perdidas_retorno")) {
+                            derivador.setPerdidas_retorno(
+                                    Double.parseDouble(properties.get("perdidas_retorno")));
+                        }
+                        derivadorDAO.update(derivador, derivador.getId_derivadores());
+                        break;
+                    case "distribuidor":
+                        DistribuidorDAO distribuidorDAO = new DistribuidorDAO();
+                        Distribuidor distribuidor =
+                                distribuidorDAO.findByComponenteId(componente.getId_componentes());
+                        if (distribuidor == null)
+                            throw new SQLException(
+                                    "Detalles de Distribuidor no encontrados para el componente"
+                                            + " ID: " + componente.getId_componentes());
+                        if (properties.containsKey("numero_salidas")) {
+                            distribuidor.setNumero_salidas(
+                                    Integer.parseInt(properties.get("numero_salidas")));
+                        }
+                        if (properties.containsKey("atenuacion_distribucion")) {
+                            distribuidor.setAtenuacion_distribucion(
+                                    Double.parseDouble(properties.get("atenuacion_distribucion")));
+                        }
+                        if (properties.containsKey("desacoplo")) {
+                            distribuidor.setDesacoplo(
+                                    Double.parseDouble(properties.get("desacoplo")));
+                        }
+                        if (properties.containsKey("perdidas_retorno")) {
+                            distribuidor.setPerdidas_retorno(
+                                    Double.parseDouble(properties.get("perdidas_retorno")));
+                        }
+                        distribuidorDAO.update(distribuidor, distribuidor.getId_distribuidores());
+                        break;
+                    case "toma":
+                        TomaDAO tomaDAO = new TomaDAO();
+                        Toma toma = tomaDAO.findByComponenteId(componente.getId_componentes());
+                        if (toma == null)
+                            throw new SQLException(
+                                    "Detalles de Toma no encontrados para el componente ID: "
+                                            + componente.getId_componentes());
+                        if (properties.containsKey("atenuacion")) {
+                            toma.setAtenuacion(Double.parseDouble(properties.get("atenuacion")));
+                        }
+                        if (properties.containsKey("desacoplo")) {
+                            toma.setDesacoplo(Double.parseDouble(properties.get("desacoplo")));
+                        }
+                        tomaDAO.update(toma, toma.getId_tomas());
+                        break;
+                    default:
+                        response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                        out.write("{\"error\":\"Tipo de componente no valido\"}");
+                        return;
+                }
+
+                work.commit();
             }
 
+            reloadCatalog();
+
             out.write("{\"success\":\"Componente actualizado exitosamente\", \"modelo\":\""
                     + escapeJson(modelo) + "\"}");
 
@@ -577,46 +540,54 @@ public class ComponentServlet extends HttpServlet {
                 return;
             }
 
-            // Delete specific component type
-            switch (type.toLowerCase()) {
-                case "coaxial":
-                    CoaxialDAO coaxialDAO = new CoaxialDAO();
-                    Coaxial coaxial = coaxialDAO.findByComponenteId(componente.getId_componentes());
-                    if (coaxial != null) {
-                        coaxialDAO.delete(coaxial.getId_coaxiales());
-                    }
-                    break;
-                case "derivador":
-                    DerivadorDAO derivadorDAO = new DerivadorDAO();
-                    Derivador derivador =
-                            derivadorDAO.findByComponenteId(componente.getId_componentes());
-                    if (derivador != null) {
-                        derivadorDAO.delete(derivador.getId_derivadores());
-                    }
-                    break;
-                case "distribuidor":
-                    DistribuidorDAO distribuidorDAO = new DistribuidorDAO();
-                    Distribuidor distribuidor =
-                            distribuidorDAO.findByComponenteId(componente.getId_componentes());
-                    if (distribuidor != null) {
-                        distribuidorDAO.delete(distribuidor.getId_distribuidores());
-                    }
-                    break;
-                case "toma":
-                    TomaDAO tomaDAO = new TomaDAO();
-                    Toma toma = tomaDAO.findByComponenteId(componente.getId_componentes());
-                    if (toma != null) {
-                        tomaDAO.delete(toma.getId_tomas());
-                    }
-                    break;
-                default:
-                    response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-                    out.write("{\"error\":\"Tipo de componente no valido\"}");
-                    return;
+            // The type row and the component are deleted together
+            try (UnitOfWork work = UnitOfWork.begin()) {
+                // Delete specific component type
+                switch (type.toLowerCase()) {
+                    case "coaxial":
+                        CoaxialDAO coaxialDAO = new CoaxialDAO();
+                        Coaxial coaxial =
+                                coaxialDAO.findByComponenteId(componente.getId_componentes());
+                        if (coaxial != null) {
+                            coaxialDAO.delete(coaxial.getId_coaxiales());
+                        }
+                        break;
+                    case "derivador":
+                        DerivadorDAO derivadorDAO = new DerivadorDAO();
+                        Derivador derivador =
+                                derivadorDAO.findByComponenteId(componente.getId_componentes());
+                        if (derivador != null) {
+                            derivadorDAO.delete(derivador.getId_derivadores());
+                        }
+                        break;
+                    case "distribuidor":
+                        DistribuidorDAO distribuidorDAO = new DistribuidorDAO();
+                        Distribuidor distribuidor =
+                                distribuidorDAO.findByComponenteId(componente.getId_componentes());
+                        if (distribuidor != null) {
+                            distribuidorDAO.delete(distribuidor.getId_distribuidores());
+                        }
+                        break;
+                    case "toma":
+                        TomaDAO tomaDAO = new TomaDAO();
+                        Toma toma = tomaDAO.findByComponenteId(componente.getId_componentes());
+                        if (toma != null) {
+                            tomaDAO.delete(toma.getId_tomas());
+                        }
+                        break;
+                    default:
+                        response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                        out.write("{\"error\":\"Tipo de componente no valido\"}");
+                        return;
+                }
+
+                // Finally delete the base component
+                componenteDAO.delete(componente.getId_componentes());
+
+                work.commit();
             }
 
-            // Finally delete the base component
-            componenteDAO.delete(componente.getId_componentes());
+            reloadCatalog();
 
             out.write("{\"success\":\"Componente eliminado exitosamente\"}");
         } catch (SQLException e) {
@@ -625,6 +596,19 @@ public class ComponentServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Publishes the new catalog snapshot for signal calculations. The change is already committed,
+     * so a failed reload does not fail the request: it is logged, and as the snapshot is cleared
+     * the next calculation loads it again.
+     */
+    private void reloadCatalog() {
+        try {
+            ComponentCatalog.reload();
+        } catch (SQLException e) {
+            log("No se pudo recargar el catálogo de componentes", e);
+        }
+    }
+
     /**
      * Retrieves the component type ID based on the type name
      * 
@@ -661,19 +645,26 @@ public class ComponentServlet extends HttpServlet {
     }
 
     /**
-     * Retrieves the component ID based on the model name
-     * 
-     * @param modelo The model name of the component
-     * @return The ID of the component
-     * @throws SQLException If a database error occurs or the component is not found
+     * Reads the properties object of a component. Values are kept as written, numbers included.
+     *
+     * @param propertiesJson The properties as a JSON object
+     * @return The value of each property
+     * @throws IOException if the properties are not a valid JSON object
      */
-    private int getComponenteIdByModelo(String modelo) throws SQLException {
-        ComponenteDAO componenteDAO = new ComponenteDAO();
-        int idComponente = componenteDAO.getIdByModelo(modelo);
-        if (idComponente == -1) {
-            throw new SQLException("No se pudo obtener el ID del componente");
+    private Map<String, String> readProperties(String propertiesJson) throws IOException {
+        Map<String, String> properties = new HashMap<>();
+        JsonReader reader = new JsonReader(new StringReader(propertiesJson));
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonReader.Token.NULL) {
+                reader.skipValue();
+            } else {
+                properties.put(name, reader.nextString());
+            }
         }
-        return idComponente;
+        reader.endObject();
+        return properties;
     }
 
     /**
@@ -683,11 +674,7 @@ public class ComponentServlet extends HttpServlet {
      * @return The escaped string safe for JSON output
      */
     private String escapeJson(String input) {
-        if (input == null)
-            return "";
-        return input.replace("\\", "\\\\").replace("\"", "\\\"").replace("\b", "\\b")
-                .replace("\f", "\\f").replace("\n", "\\n").replace("\r", "\\r")
-                .replace("\t", "\\t");
+        return JsonWriter.escape(input);
     }
 
     /**
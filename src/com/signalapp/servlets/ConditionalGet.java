@@ -0,0 +1,60 @@
+package com.signalapp.servlets;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Conditional GET support for resources that change rarely. The servlet passes the version of the
+ * resource, which must be known without querying the database; the validators are added to the
+ * response and, if the client already has that version, the response is answered with 304 Not
+ * Modified and the servlet skips the body.
+ *
+ * Clients are asked to revalidate every time, so a change is seen on the next request. Only
+ * If-None-Match is honoured: HTTP dates have a resolution of one second, so an If-Modified-Since
+ * could not tell apart two versions written within the same second.
+ */
+final class ConditionalGet {
+
+    private ConditionalGet() {}
+
+    /**
+     * Adds the ETag and Last-Modified headers and checks the If-None-Match precondition
+     *
+     * @param request The GET request
+     * @param response The response
+     * @param tag The version of the resource, without quotes
+     * @param lastModified The time of the last change (ms since the epoch)
+     * @return true if the response was answered with 304 and no body must be written
+     */
+    static boolean notModified(HttpServletRequest request, HttpServletResponse response,
+            String tag, long lastModified) {
+        String etag = "\"" + tag + "\"";
+        response.setHeader("ETag", etag);
+        response.setDateHeader("Last-Modified", lastModified);
+        response.setHeader("Cache-Control", "no-cache");
+
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        boolean notModified = ifNoneMatch != null && matches(ifNoneMatch, etag);
+        if (notModified) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        }
+        return notModified;
+    }
+
+    /**
+     * Checks an If-None-Match header, a list of entity tags or "*", against the current tag. The
+     * weak comparison is used, as allowed for GET.
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
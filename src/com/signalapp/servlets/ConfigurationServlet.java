@@ -6,13 +6,14 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import com.signalapp.dao.*;
+import com.signalapp.engine.ScenarioResolver;
+import com.signalapp.json.JsonWriter;
 import com.signalapp.models.*;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.sql.SQLException;
-import java.util.List;
 import java.net.URLDecoder;
 import java.io.UnsupportedEncodingException;
 
@@ -23,6 +24,9 @@ import java.io.UnsupportedEncodingException;
 public class ConfigurationServlet extends HttpServlet {
     private static final long serialVersionUID = 1L;
 
+    /** Maximum number of floors of a configuration */
+    private static final int MAX_PISOS = ScenarioResolver.MAX_PISOS;
+
     /**
      * Handles GET requests for configuration information Retrieves all configurations from the
      * database and returns them as JSON
@@ -34,35 +38,34 @@ public class ConfigurationServlet extends HttpServlet {
         response.setCharacterEncoding("UTF-8");
         PrintWriter out = response.getWriter();
 
+        TableVersions.Stamp stamp = TableVersions.get("configuraciones");
+        if (ConditionalGet.notModified(request, response, stamp.getTag(),
+                stamp.getLastModified())) {
+            return;
+        }
+
         try {
             ConfiguracionDAO configuracionDAO = new ConfiguracionDAO();
-            List<Configuracion> configuraciones = configuracionDAO.findAll();
 
-            StringBuilder jsonBuilder = new StringBuilder("[");
-            boolean first = true;
-            for (Configuracion config : configuraciones) {
-                if (!first) {
-                    jsonBuilder.append(",");
-                }
-                first = false;
-
-                // Build JSON object with proper escaping
-                jsonBuilder.append("{");
-                jsonBuilder.append("\"id_configuraciones\":").append(config.getId_configuraciones())
-                        .append(",");
-                jsonBuilder.append("\"nombre\":\"").append(escapeJson(config.getNombre()))
-                        .append("\",");
-                jsonBuilder.append("\"nivel_cabecera\":").append(config.getNivel_cabecera())
-                        .append(",");
-                jsonBuilder.append("\"num_pisos\":").append(config.getNum_pisos()).append(",");
-                jsonBuilder.append("\"costo_total\":").append(config.getCosto_total()).append(",");
-                jsonBuilder.append("\"fecha_creacion\":\"")
-                        .append(escapeJson(config.getFecha_creacion())).append("\"");
-                jsonBuilder.append("}");
-            }
-            jsonBuilder.append("]");
-            out.write(jsonBuilder.toString());
+            // Write each configuration as it is read from the database
+            JsonWriter json = new JsonWriter(out);
+            json.beginArray();
+            configuracionDAO.forEach(config -> json.beginObject()
+                    .name("id_configuraciones").value(config.getId_configuraciones())
+                    .name("nombre").value(config.getNombre())
+                    .name("nivel_cabecera").value(config.getNivel_cabecera())
+                    .name("num_pisos").value(config.getNum_pisos())
+                    .name("costo_total").value(config.getCosto_total())
+                    .name("fecha_creacion").value(config.getFecha_creacion())
+                    .endObject());
+            json.endArray();
+            json.flush();
         } catch (SQLException e) {
+            // Part of the list may already be on its way to the client
+            if (response.isCommitted()) {
+                throw new ServletException(e);
+            }
+            response.resetBuffer();
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             out.write("{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
         }
@@ -91,9 +94,10 @@ public class ConfigurationServlet extends HttpServlet {
 
         try {
             int numPisosInt = Integer.parseInt(numPisos);
-            if (numPisosInt < 1 || numPisosInt > 50) {
+            if (numPisosInt < 1 || numPisosInt > MAX_PISOS) {
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-                out.write("{\"error\":\"El número de pisos debe estar entre 1 y 50\"}");
+                out.write("{\"error\":\"El número de pisos debe estar entre 1 y " + MAX_PISOS
+                        + "\"}");
                 return;
             }
 
@@ -119,13 +123,7 @@ public class ConfigurationServlet extends HttpServlet {
             configuracion.setFecha_modificacion(currentDate);
             configuracion.setUsuario_modificacion("admin");
 
-            configuracionDAO.insert(configuracion);
-
-            // Get the generated ID
-            int idConfiguracion = configuracionDAO.getIdByNombre(nombre);
-            if (idConfiguracion == -1) {
-                throw new SQLException("No se pudo obtener el ID de la configuracion");
-            }
+            int idConfiguracion = configuracionDAO.insert(configuracion);
 
             out.write("{\"success\":\"Configuracion creada exitosamente\",\"id\":" + idConfiguracion
                     + "}");
@@ -202,9 +200,10 @@ public class ConfigurationServlet extends HttpServlet {
         try {
             // Validate number of floors
             int numPisosInt = Integer.parseInt(numPisos);
-            if (numPisosInt < 1 || numPisosInt > 50) {
+            if (numPisosInt < 1 || numPisosInt > MAX_PISOS) {
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-                out.write("{\"error\":\"El número de pisos debe estar entre 1 y 50\"}");
+                out.write("{\"error\":\"El número de pisos debe estar entre 1 y " + MAX_PISOS
+                        + "\"}");
                 return;
             }
 
@@ -287,10 +286,6 @@ public class ConfigurationServlet extends HttpServlet {
      * @return The escaped string safe for JSON output
      */
     private String escapeJson(String input) {
-        if (input == null)
-            return "";
-        return input.replace("\\", "\\\\").replace("\"", "\\\"").replace("\b", "\\b")
-                .replace("\f", "\\f").replace("\n", "\\n").replace("\r", "\\r")
-                .replace("\t", "\\t");
+        return JsonWriter.escape(input);
     }
 }
@@ -0,0 +1,65 @@
+package com.signalapp.servlets;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.signalapp.dao.ConnectionPool;
+import com.signalapp.dao.DerbyConnection;
+import com.signalapp.json.JsonWriter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.SQLException;
+
+/**
+ * Servlet to monitor the database connection pool. GET returns its size, the connections in use,
+ * the time requests have waited for one and the hits of the prepared statement caches.
+ */
+public class ConnectionPoolServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Handles GET requests to read the pool counters
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        PrintWriter out = response.getWriter();
+
+        ConnectionPool pool;
+        try {
+            pool = DerbyConnection.getPool();
+        } catch (SQLException e) {
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            out.write("{\"error\":\"" + JsonWriter.escape(e.getMessage()) + "\"}");
+            return;
+        }
+
+        long borrows = pool.getBorrows();
+        StringBuilder jsonBuilder = new StringBuilder("{");
+        jsonBuilder.append("\"max_size\":").append(pool.getMaxSize()).append(",");
+        jsonBuilder.append("\"timeout_ms\":").append(pool.getTimeoutMillis()).append(",");
+        jsonBuilder.append("\"validation_ms\":").append(pool.getValidationMillis()).append(",");
+        jsonBuilder.append("\"active\":").append(pool.getActive()).append(",");
+        jsonBuilder.append("\"idle\":").append(pool.getIdle()).append(",");
+        jsonBuilder.append("\"waiting\":").append(pool.getWaiting()).append(",");
+        jsonBuilder.append("\"opened\":").append(pool.getOpened()).append(",");
+        jsonBuilder.append("\"discarded\":").append(pool.getDiscarded()).append(",");
+        jsonBuilder.append("\"borrows\":").append(borrows).append(",");
+        jsonBuilder.append("\"timeouts\":").append(pool.getTimeouts()).append(",");
+        jsonBuilder.append("\"total_wait_ms\":").append(pool.getTotalWaitMillis()).append(",");
+        jsonBuilder.append("\"mean_wait_ms\":")
+                .append(borrows == 0 ? 0.0 : pool.getTotalWaitMillis() / borrows).append(",");
+        jsonBuilder.append("\"max_wait_ms\":").append(pool.getMaxWaitMillis()).append(",");
+        jsonBuilder.append("\"statement_cache_size\":").append(pool.getStatementCacheSize())
+                .append(",");
+        jsonBuilder.append("\"statement_hits\":").append(pool.getStatementHits()).append(",");
+        jsonBuilder.append("\"statement_misses\":").append(pool.getStatementMisses());
+        jsonBuilder.append("}");
+        out.write(jsonBuilder.toString());
+    }
+}
@@ -0,0 +1,299 @@
+package com.signalapp.servlets;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.signalapp.dao.*;
+import com.signalapp.engine.*;
+import com.signalapp.json.*;
+import com.signalapp.models.*;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Servlet for incremental signal calculations. The first request sends the whole building and
+ * receives a token together with the results of every floor. Later requests send the token and
+ * only the edited floors; the server recalculates from the highest edited floor down and returns
+ * only the floors whose results changed.
+ *
+ * Calculations are kept in memory, the least recently used ones are discarded when there are more
+ * than {@link #MAX_SESSIONS}. If the component catalog changes, the next edit recalculates the
+ * whole building.
+ */
+public class IncrementalCalculationServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+
+    /** Maximum number of calculations kept in memory */
+    private static final int MAX_SESSIONS = 500;
+
+    private final Map<String, Session> sessions =
+            Collections.synchronizedMap(new LinkedHashMap<String, Session>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Session> eldest) {
+                    return size() > MAX_SESSIONS;
+                }
+            });
+
+    /**
+     * Handles POST requests to start or update an incremental calculation
+     */
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        PrintWriter out = response.getWriter();
+
+        try {
+            Request edit = new Request();
+            edit.read(new JsonReader(request.getReader()));
+            edit.requireSingleRiser("El cálculo incremental");
+            String token = edit.token != null ? edit.token : "";
+            ComponentCatalog catalog = ComponentCatalog.getInstance();
+
+            if (token.isEmpty()) {
+                // New calculation with the whole building
+                int numPisos = CalculationRequest.require(edit.getNumPisos(), "num_pisos");
+                double nivelCabecera =
+                        CalculationRequest.require(edit.getNivelCabecera(), "nivel_cabecera");
+                String tipoSenal = edit.getTipoSenal();
+                int frequency = CalculationRequest.require(edit.getFrequency(), "frequency");
+                String selectedCableModel = edit.getSelectedCableModel();
+                List<ComponentConfig> components = edit.getComponents();
+
+                Session session = new Session(tipoSenal, new IncrementalCalculation(catalog,
+                        numPisos, nivelCabecera, components, frequency, selectedCableModel));
+                MargenCalidad margen = new MargenCalidadDAO().findByTipoSenal(tipoSenal);
+
+                token = UUID.randomUUID().toString();
+                sessions.put(token, session);
+                out.write(buildJsonResponse(token, true, session.calculation,
+                        allFloors(numPisos), margen));
+                return;
+            }
+
+            Session session = sessions.get(token);
+            if (session == null) {
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                out.write("{\"error\":\"El cálculo ha caducado, envíe de nuevo el edificio completo\"}");
+                return;
+            }
+
+            // Group the edited floors; listed floors without components are cleared
+            Map<Integer, List<ComponentConfig>> floors = new TreeMap<>();
+            for (int floor : edit.floors) {
+                floors.put(floor, new ArrayList<>());
+            }
+            for (ComponentConfig config : edit.getComponents()) {
+                floors.computeIfAbsent(config.getFloor(), k -> new ArrayList<>()).add(config);
+            }
+            Double nivelCabecera = edit.getNivelCabecera();
+
+            IncrementalCalculation calculation = session.calculation;
+            boolean full;
+            int[] changedFloors;
+            synchronized (calculation) {
+                full = !calculation.isCurrent(catalog);
+                if (full) {
+                    try {
+                        calculation.refresh(catalog);
+                    } catch (SQLException e) {
+                        // A component of the building left the catalog; start over
+                        sessions.remove(token);
+                        response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                        out.write("{\"error\":\"" + escapeJson(e.getMessage())
+                                + ". Envíe de nuevo el edificio completo\"}");
+                        return;
+                    }
+                }
+                changedFloors = calculation.apply(catalog, nivelCabecera, floors);
+                if (full) {
+                    changedFloors = allFloors(calculation.getNumPisos());
+                }
+
+                MargenCalidad margen = new MargenCalidadDAO().findByTipoSenal(session.tipoSenal);
+                out.write(buildJsonResponse(token, full, calculation, changedFloors, margen));
+            }
+        } catch (Exception e) {
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            out.write("{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+        }
+    }
+
+    /**
+     * Handles DELETE requests to discard a calculation
+     */
+    @Override
+    protected void doDelete(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        PrintWriter out = response.getWriter();
+
+        String token = request.getParameter("token");
+        if (token == null || token.trim().isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.write("{\"error\":\"Falta el token\"}");
+            return;
+        }
+
+        sessions.remove(token);
+        out.write("{\"success\":\"Cálculo eliminado correctamente\"}");
+    }
+
+    /**
+     * An incremental calculation and the signal type it is validated against
+     */
+    private static class Session {
+        final String tipoSenal;
+        final IncrementalCalculation calculation;
+
+        Session(String tipoSenal, IncrementalCalculation calculation) {
+            this.tipoSenal = tipoSenal;
+            this.calculation = calculation;
+        }
+    }
+
+    private static int[] allFloors(int numPisos) {
+        int[] floors = new int[numPisos];
+        for (int i = 0; i < numPisos; i++) {
+            floors[i] = i + 1;
+        }
+        return floors;
+    }
+
+    /**
+     * Builds JSON response with the token and the results of the given floors
+     */
+    private String buildJsonResponse(String token, boolean full,
+            IncrementalCalculation calculation, int[] floors, MargenCalidad margen) {
+        Scenario scenario = calculation.getScenario();
+
+        StringBuilder jsonBuilder = new StringBuilder();
+        jsonBuilder.append("{\"token\":\"").append(token).append("\",");
+        jsonBuilder.append("\"full\":").append(full).append(",");
+        jsonBuilder.append("\"signal_levels\":[");
+
+        for (int i = 0; i < floors.length; i++) {
+            if (i > 0)
+                jsonBuilder.append(",");
+
+            int floor = floors[i];
+            double level = calculation.getLevel(floor);
+            String status = (level >= margen.getNivel_minimo()
+                    && level <= margen.getNivel_maximo()) ? "ok" : "error";
+
+            jsonBuilder.append("{");
+            jsonBuilder.append("\"floor\":").append(floor).append(",");
+            jsonBuilder.append("\"level\":").append(level).append(",");
+            jsonBuilder.append("\"status\":\"").append(status).append("\",");
+            jsonBuilder.append("\"floor_cost\":").append(calculation.getFloorCost(floor))
+                    .append(",");
+            jsonBuilder.append("\"components\":[");
+
+            appendComponentEffects(jsonBuilder, scenario, floor);
+
+            jsonBuilder.append("]}");
+        }
+
+        jsonBuilder.append("],\"margins\":{");
+        jsonBuilder.append("\"min\":").append(margen.getNivel_minimo()).append(",");
+        jsonBuilder.append("\"max\":").append(margen.getNivel_maximo());
+        jsonBuilder.append("},\"total_cost\":").append(calculation.getTotalCost());
+        jsonBuilder.append("}");
+
+        return jsonBuilder.toString();
+    }
+
+    /**
+     * Appends the attenuation and cost of every component on a floor to the JSON builder
+     */
+    private void appendComponentEffects(StringBuilder jsonBuilder, Scenario scenario, int floor) {
+        int start = jsonBuilder.length();
+        double cableFactor = scenario.getCableAttenuation() / 100.0;
+
+        if (scenario.getDerivadorModel(floor) != null) {
+            appendComponentEffect(jsonBuilder, start, "derivacion",
+                    scenario.getDerivadorModel(floor), scenario.getDerivacion(floor),
+                    scenario.getDerivadorCost(floor));
+        }
+        if (scenario.hasCable() && scenario.hasComponents(floor)) {
+            appendComponentEffect(jsonBuilder, start, "coaxial_en_planta_15m",
+                    scenario.getCableModel(), cableFactor * SignalEngine.IN_FLOOR_CABLE_METERS,
+                    scenario.getCableCost() * SignalEngine.IN_FLOOR_CABLE_METERS);
+        }
+        if (scenario.getDistribuidorModel(floor) != null) {
+            appendComponentEffect(jsonBuilder, start, "distribuidor",
+                    scenario.getDistribuidorModel(floor), scenario.getDistribucion(floor),
+                    scenario.getDistribuidorCost(floor));
+        }
+        if (scenario.getTomaModel(floor) != null) {
+            appendComponentEffect(jsonBuilder, start, "toma", scenario.getTomaModel(floor),
+                    scenario.getTomaAttenuation(floor), scenario.getTomaCost(floor));
+        }
+        if (scenario.hasCable() && floor > 1) {
+            appendComponentEffect(jsonBuilder, start, "coaxial_entre_pisos_3m",
+                    scenario.getCableModel(), cableFactor * SignalEngine.RISER_CABLE_METERS,
+                    scenario.getCableCost() * SignalEngine.RISER_CABLE_METERS);
+        }
+    }
+
+    /**
+     * Appends a single component effect to the JSON builder
+     */
+    private void appendComponentEffect(StringBuilder jsonBuilder, int start, String type,
+            String model, double attenuation, double cost) {
+        if (jsonBuilder.length() > start)
+            jsonBuilder.append(",");
+
+        jsonBuilder.append("{");
+        jsonBuilder.append("\"type\":\"").append(escapeJson(type)).append("\",");
+        jsonBuilder.append("\"model\":\"").append(escapeJson(model)).append("\",");
+        jsonBuilder.append("\"attenuation\":").append(attenuation).append(",");
+        jsonBuilder.append("\"cost\":").append(cost);
+        jsonBuilder.append("}");
+    }
+
+    /**
+     * Escapes special characters in a string for JSON formatting
+     *
+     * @param input The string to escape
+     * @return The escaped string safe for JSON output
+     */
+    private String escapeJson(String input) {
+        return JsonWriter.escape(input);
+    }
+
+    /**
+     * Body of an incremental request: the whole building, or a token with the edited floors
+     */
+    private static class Request extends CalculationRequest {
+        String token;
+        List<Integer> floors = new ArrayList<>();
+
+        @Override
+        protected boolean readProperty(String name, JsonReader reader) throws IOException {
+            switch (name) {
+                case "token":
+                    token = reader.nextString();
+                    return true;
+                case "floors":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        floors.add(reader.nextInt());
+                    }
+                    reader.endArray();
+                    return true;
+                default:
+                    return super.readProperty(name, reader);
+            }
+        }
+    }
+}
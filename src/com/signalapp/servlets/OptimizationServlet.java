@@ -0,0 +1,196 @@
+package com.signalapp.servlets;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.signalapp.dao.*;
+import com.signalapp.engine.*;
+import com.signalapp.json.*;
+import com.signalapp.models.*;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.*;
+
+/**
+ * Servlet that searches the cheapest combination of catalog components for a building whose
+ * levels stay inside the quality margins of the signal type. The client only gives the number of
+ * tomas on each floor; derivadores, distribuidores, tomas and cable are chosen by
+ * {@link CostOptimizer}.
+ */
+public class OptimizationServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Handles POST requests to optimize a building
+     */
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        PrintWriter out = response.getWriter();
+
+        try {
+            Request optimization = new Request();
+            optimization.read(new JsonReader(request.getReader()));
+            optimization.requireSingleRiser("La optimización");
+
+            int numPisos = CalculationRequest.require(optimization.getNumPisos(), "num_pisos");
+            double nivelCabecera =
+                    CalculationRequest.require(optimization.getNivelCabecera(), "nivel_cabecera");
+            String tipoSenal = optimization.getTipoSenal();
+            int frequency = CalculationRequest.require(optimization.getFrequency(), "frequency");
+            String cableModel = optimization.getSelectedCableModel();
+
+            if (numPisos < 1 || numPisos > ScenarioResolver.MAX_PISOS) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                out.write("{\"error\":\"El número de pisos debe estar entre 1 y "
+                        + ScenarioResolver.MAX_PISOS + "\"}");
+                return;
+            }
+
+            int[] tomasPerFloor = optimization.tomasPerFloor(numPisos);
+            for (int floor = 1; floor <= numPisos; floor++) {
+                int tomas = tomasPerFloor[floor - 1];
+                if (tomas != 0 && tomas != 2 && tomas != 4 && tomas != 6 && tomas != 8) {
+                    response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                    out.write("{\"error\":\"El piso " + floor
+                            + " debe tener 2 o 4 tomas por cada lado\"}");
+                    return;
+                }
+            }
+
+            ComponentCatalog catalog = ComponentCatalog.getInstance();
+            MargenCalidad margen = new MargenCalidadDAO().findByTipoSenal(tipoSenal);
+
+            OptimizedDesign design = CostOptimizer.optimize(catalog, nivelCabecera, frequency,
+                    margen.getNivel_minimo(), margen.getNivel_maximo(), tomasPerFloor, cableModel);
+            if (design == null) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                out.write("{\"error\":\"No existe ninguna combinación de componentes que cumpla "
+                        + "los márgenes de calidad\"}");
+                return;
+            }
+
+            // Evaluate the design with the same engine as /calculate
+            Scenario scenario = ScenarioResolver.resolve(catalog, numPisos, nivelCabecera,
+                    design.getComponents(), frequency, design.getCableModel());
+            SignalResult result = SignalEngine.calculate(scenario);
+
+            out.write(buildJsonResponse(design, result, margen));
+        } catch (Exception e) {
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            out.write("{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+        }
+    }
+
+    /**
+     * Builds the JSON response with the chosen components and the resulting levels
+     */
+    private String buildJsonResponse(OptimizedDesign design, SignalResult result,
+            MargenCalidad margen) {
+        StringBuilder jsonBuilder = new StringBuilder();
+        jsonBuilder.append("{\"selected_cable_model\":\"")
+                .append(escapeJson(design.getCableModel())).append("\",\"components\":[");
+
+        boolean first = true;
+        for (ComponentConfig config : design.getComponents()) {
+            if (!first)
+                jsonBuilder.append(",");
+            first = false;
+            jsonBuilder.append("{\"type\":\"").append(config.getType());
+            jsonBuilder.append("\",\"model\":\"").append(escapeJson(config.getModel()));
+            jsonBuilder.append("\",\"floor\":").append(config.getFloor()).append("}");
+        }
+
+        jsonBuilder.append("],\"signal_levels\":[");
+        for (int floor = 1; floor <= result.getNumPisos(); floor++) {
+            if (floor > 1)
+                jsonBuilder.append(",");
+            double level = result.getLevel(floor);
+            String status = (level >= margen.getNivel_minimo() && level <= margen.getNivel_maximo())
+                    ? "ok" : "error";
+            jsonBuilder.append("{\"floor\":").append(floor);
+            jsonBuilder.append(",\"level\":").append(level);
+            jsonBuilder.append(",\"status\":\"").append(status);
+            jsonBuilder.append("\",\"floor_cost\":").append(result.getFloorCost(floor)).append("}");
+        }
+
+        jsonBuilder.append("],\"margins\":{\"min\":").append(margen.getNivel_minimo());
+        jsonBuilder.append(",\"max\":").append(margen.getNivel_maximo());
+        jsonBuilder.append("},\"total_cost\":").append(result.getTotalCost()).append("}");
+        return jsonBuilder.toString();
+    }
+
+    /**
+     * Escapes special characters in a string for JSON formatting
+     *
+     * @param input The string to escape
+     * @return The escaped string safe for JSON output
+     */
+    private String escapeJson(String input) {
+        return JsonWriter.escape(input);
+    }
+
+    /**
+     * Body of an optimization request: the building and the number of tomas of its floors
+     */
+    private static class Request extends CalculationRequest {
+        Integer tomas;
+        Map<Integer, Integer> layout = new HashMap<>();
+
+        @Override
+        protected boolean readProperty(String name, JsonReader reader) throws IOException {
+            switch (name) {
+                case "tomas":
+                    tomas = reader.nextInt();
+                    return true;
+                case "layout":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        Integer floor = null;
+                        Integer floorTomas = null;
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            String property = reader.nextName();
+                            if ("floor".equals(property)) {
+                                floor = reader.nextInt();
+                            } else if ("tomas".equals(property)) {
+                                floorTomas = reader.nextInt();
+                            } else {
+                                reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                        layout.put(CalculationRequest.require(floor, "floor"),
+                                CalculationRequest.require(floorTomas, "tomas"));
+                    }
+                    reader.endArray();
+                    return true;
+                default:
+                    return super.readProperty(name, reader);
+            }
+        }
+
+        /**
+         * Gets the number of tomas of every floor. "tomas" applies to all floors and entries of
+         * the "layout" array override it for single floors.
+         *
+         * @return The number of tomas per floor, index 0 is floor 1
+         */
+        int[] tomasPerFloor(int numPisos) {
+            int[] tomasPerFloor = new int[numPisos];
+            Arrays.fill(tomasPerFloor, tomas != null ? tomas : 2);
+            for (Map.Entry<Integer, Integer> entry : layout.entrySet()) {
+                int floor = entry.getKey();
+                if (floor >= 1 && floor <= numPisos) {
+                    tomasPerFloor[floor - 1] = entry.getValue();
+                }
+            }
+            return tomasPerFloor;
+        }
+    }
+}
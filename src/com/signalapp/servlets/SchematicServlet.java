@@ -6,12 +6,12 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import com.signalapp.dao.*;
+import com.signalapp.json.JsonWriter;
 import com.signalapp.models.*;
 
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.sql.SQLException;
-import java.util.List;
 
 /**
  * Servlet for handling schematic component operations (GET, POST, PUT, DELETE). Provides endpoints
@@ -40,39 +40,29 @@ public class SchematicServlet extends HttpServlet {
 
         try {
             EsquematicoDAO esquematicoDAO = new EsquematicoDAO();
-            List<Esquematico> componentes =
-                    esquematicoDAO.getBySimulacion(Integer.parseInt(idSimulacion));
-
-            StringBuilder jsonBuilder = new StringBuilder("[");
-            boolean first = true;
-            for (Esquematico componente : componentes) {
-                if (!first) {
-                    jsonBuilder.append(",");
-                }
-                first = false;
-
-                // Build JSON object with proper escaping
-                jsonBuilder.append("{");
-                jsonBuilder.append("\"id_esquematicos\":").append(componente.getId_esquematicos())
-                        .append(",");
-                jsonBuilder.append("\"id_simulaciones\":").append(componente.getId_simulaciones())
-                        .append(",");
-                jsonBuilder.append("\"piso\":").append(componente.getPiso()).append(",");
-                jsonBuilder.append("\"tipo_componente\":\"")
-                        .append(escapeJson(componente.getTipo_componente())).append("\",");
-                jsonBuilder.append("\"modelo_componente\":\"")
-                        .append(escapeJson(componente.getModelo_componente())).append("\",");
-                jsonBuilder.append("\"posicion_x\":").append(componente.getPosicion_x())
-                        .append(",");
-                jsonBuilder.append("\"posicion_y\":").append(componente.getPosicion_y())
-                        .append(",");
-                jsonBuilder.append("\"cable_tipo\":\"")
-                        .append(escapeJson(componente.getCable_tipo())).append("\"");
-                jsonBuilder.append("}");
-            }
-            jsonBuilder.append("]");
-            out.write(jsonBuilder.toString());
+            int id = Integer.parseInt(idSimulacion);
+
+            // Write each component as it is read from the database
+            JsonWriter json = new JsonWriter(out);
+            json.beginArray();
+            esquematicoDAO.forEachBySimulacion(id, componente -> json.beginObject()
+                    .name("id_esquematicos").value(componente.getId_esquematicos())
+                    .name("id_simulaciones").value(componente.getId_simulaciones())
+                    .name("piso").value(componente.getPiso())
+                    .name("tipo_componente").value(componente.getTipo_componente())
+                    .name("modelo_componente").value(componente.getModelo_componente())
+                    .name("posicion_x").value(componente.getPosicion_x())
+                    .name("posicion_y").value(componente.getPosicion_y())
+                    .name("cable_tipo").value(componente.getCable_tipo())
+                    .endObject());
+            json.endArray();
+            json.flush();
         } catch (SQLException e) {
+            // Part of the list may already be on its way to the client
+            if (response.isCommitted()) {
+                throw new ServletException(e);
+            }
+            response.resetBuffer();
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             out.write("{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
         }
@@ -117,13 +107,7 @@ public class SchematicServlet extends HttpServlet {
             componente.setCable_tipo(cableTipo); // Can be null
 
             EsquematicoDAO esquematicoDAO = new EsquematicoDAO();
-            esquematicoDAO.insert(componente);
-
-            // Get the generated ID
-            int idEsquematico = componente.getId_esquematicos();
-            if (idEsquematico == -1) {
-                throw new SQLException("No se pudo obtener el ID del componente");
-            }
+            int idEsquematico = esquematicoDAO.insert(componente);
 
             out.write("{\"success\":\"Componente guardado exitosamente\",\"id\":" + idEsquematico
                     + "}");
@@ -215,10 +199,6 @@ public class SchematicServlet extends HttpServlet {
      * @return The escaped string safe for JSON output
      */
     private String escapeJson(String input) {
-        if (input == null)
-            return "";
-        return input.replace("\\", "\\\\").replace("\"", "\\\"").replace("\b", "\\b")
-                .replace("\f", "\\f").replace("\n", "\\n").replace("\r", "\\r")
-                .replace("\t", "\\t");
+        return JsonWriter.escape(input);
     }
 }
@@ -6,549 +6,328 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import com.signalapp.dao.*;
+import com.signalapp.engine.*;
+import com.signalapp.json.*;
 import com.signalapp.models.*;
 
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Servlet to handle signal calculations and validation for building configurations. Provides an
- * endpoint to calculate signal levels and validate them against quality margins.
+ * endpoint to calculate signal levels and validate them against quality margins. The calculation
+ * itself is done by {@link SignalEngine}; this servlet only parses the request, resolves the
+ * components against the {@link ComponentCatalog} and writes the response.
  */
 public class SignalCalculationServlet extends HttpServlet {
     private static final long serialVersionUID = 1L;
 
     /**
-     * Handles POST requests to calculate signal levels and validate against margins
+     * Handles POST requests to calculate signal levels and validate against margins. Responses
+     * are kept in the {@link CalculationCache}, so repeating a request returns the stored bytes.
      */
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
         response.setContentType("application/json");
         response.setCharacterEncoding("UTF-8");
-        PrintWriter out = response.getWriter();
 
+        byte[] body;
         try {
             // Parse request body
-            String json = readRequestBody(request);
+            Request calculation = new Request();
+            calculation.read(new JsonReader(request.getReader()));
 
             // Extract parameters
-            int numPisos = extractIntValue(json, "num_pisos");
-            double nivelCabecera = extractDoubleValue(json, "nivel_cabecera");
-            String tipoSenal = extractStringValue(json, "tipo_senal");
-            int frequency = extractIntValue(json, "frequency");
-            String selectedCableModel = extractStringValue(json, "selected_cable_model");
-            List<ComponentConfig> components = extractComponents(json);
-
-            // Validate configuration
-            validateConfiguration(components);
-
-            // Calculate signal levels and validate against margins
-            Map<Integer, FloorSignalInfo> signalLevels = calculateSignalLevels(numPisos,
-                    nivelCabecera, components, frequency, selectedCableModel);
-            MargenCalidad margen = getMargenCalidad(tipoSenal);
-
-            // Build and send response
-            String jsonResponse =
-                    buildJsonResponse(signalLevels, margen, calculateTotalCost(signalLevels));
-            out.write(jsonResponse);
-
+            int numPisos = CalculationRequest.require(calculation.getNumPisos(), "num_pisos");
+            double nivelCabecera =
+                    CalculationRequest.require(calculation.getNivelCabecera(), "nivel_cabecera");
+            String tipoSenal = calculation.getTipoSenal();
+            boolean sweep = "sweep".equals(calculation.mode);
+            int[] frequencies = sweep ? sweepFrequencies(calculation) : null;
+            int frequency = (sweep && calculation.getFrequency() == null) ? frequencies[0]
+                    : CalculationRequest.require(calculation.getFrequency(), "frequency");
+            String selectedCableModel = calculation.getSelectedCableModel();
+            int numRisers = calculation.getRisers() != null ? calculation.getRisers() : 1;
+            String splitterModel = calculation.getRiserSplitter();
+            List<ComponentConfig> components = calculation.getComponents();
+
+            // Same design on the same catalog, same response
+            ComponentCatalog catalog = ComponentCatalog.getInstance();
+            CalculationCache cache = CalculationCache.getInstance();
+            String key = cacheKey(catalog, numPisos, nivelCabecera, tipoSenal, sweep, frequencies,
+                    frequency, selectedCableModel, numRisers, splitterModel, components);
+            body = cache.get(key);
+            if (body != null) {
+                response.setHeader("X-Cache", "HIT");
+            } else {
+                body = calculate(catalog, numPisos, nivelCabecera, tipoSenal, sweep, frequencies,
+                        frequency, selectedCableModel, numRisers, splitterModel, components)
+                                .getBytes(StandardCharsets.UTF_8);
+                cache.put(key, body);
+                response.setHeader("X-Cache", "MISS");
+            }
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-            out.write("{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+            response.getWriter().write("{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+            return;
         }
-    }
 
-    /**
-     * Reads the complete request body into a string
-     */
-    private String readRequestBody(HttpServletRequest request) throws IOException {
-        StringBuilder body = new StringBuilder();
-        String line;
-        while ((line = request.getReader().readLine()) != null) {
-            body.append(line);
-        }
-        return body.toString();
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
     }
 
     /**
-     * Gets margin quality settings for signal type
+     * Validates and calculates the building and builds the JSON response
      */
-    private MargenCalidad getMargenCalidad(String tipoSenal) throws SQLException {
-        MargenCalidadDAO margenDAO = new MargenCalidadDAO();
-        List<MargenCalidad> margenes = margenDAO.findAll();
-        return margenes.stream().filter(m -> m.getTipo_senal().equals(tipoSenal)).findFirst()
-                .orElseThrow(() -> new SQLException(
-                        "No se encontraron márgenes de calidad para el tipo de señal: "
-                                + tipoSenal));
-    }
+    private String calculate(ComponentCatalog catalog, int numPisos, double nivelCabecera,
+            String tipoSenal, boolean sweep, int[] frequencies, int frequency,
+            String selectedCableModel, int numRisers, String splitterModel,
+            List<ComponentConfig> components) throws SQLException {
+        // Validate configuration
+        ScenarioResolver.validate(components);
+        MargenCalidad margen = new MargenCalidadDAO().findByTipoSenal(tipoSenal);
+
+        if (!sweep) {
+            return calculateBuilding(catalog, numPisos, nivelCabecera, components, frequency,
+                    selectedCableModel, numRisers, splitterModel, margen).getBody();
+        }
+        if (numRisers > 1 || !splitterModel.isEmpty()) {
+            throw new SQLException("El barrido de frecuencias no admite varios montantes");
+        }
 
-    /**
-     * Calculates total cost from all floor costs
-     */
-    private double calculateTotalCost(Map<Integer, FloorSignalInfo> signalLevels) {
-        return signalLevels.values().stream().mapToDouble(info -> info.floorCost).sum();
+        // Resolve components and calculate signal levels at every frequency
+        Scenario scenario = ScenarioResolver.resolve(catalog, numPisos, nivelCabecera,
+                components, frequency, selectedCableModel);
+        SignalResult result = SignalEngine.calculate(scenario);
+        SweepResult sweepResult = SignalEngine.sweep(scenario, frequencies,
+                ScenarioResolver.cableAttenuations(catalog, selectedCableModel, frequencies));
+        return buildSweepJsonResponse(sweepResult, result, margen);
     }
 
     /**
-     * Builds JSON response with signal levels, margins and costs
+     * Calculates a validated building and builds its JSON response. Buildings with several risers
+     * or a headend splitter are calculated riser by riser; the others as a single scenario, with
+     * the response of a single riser. Shared by POST /calculate and POST /simulate so both give
+     * the same result.
+     *
+     * @param catalog The component catalog snapshot
+     * @param numPisos The number of floors of every riser
+     * @param nivelCabecera The signal level at the headend (dBµV)
+     * @param components The components of the building
+     * @param frequency The signal frequency (MHz)
+     * @param cableModel The selected cable model, or empty for no cable losses
+     * @param numRisers The number of risers
+     * @param splitterModel The headend splitter, or empty if there is none
+     * @param margen The quality margins of the signal type
+     * @return The result of every riser, the total cost and the response
+     * @throws SQLException if the building cannot be resolved against the catalog
      */
-    private String buildJsonResponse(Map<Integer, FloorSignalInfo> signalLevels,
-            MargenCalidad margen, double totalCost) {
-        StringBuilder jsonBuilder = new StringBuilder();
-        jsonBuilder.append("{\"signal_levels\":[");
-
-        boolean first = true;
-        for (Map.Entry<Integer, FloorSignalInfo> entry : signalLevels.entrySet()) {
-            if (!first)
-                jsonBuilder.append(",");
-            first = false;
-
-            FloorSignalInfo info = entry.getValue();
-            String status = (info.finalLevel >= margen.getNivel_minimo()
-                    && info.finalLevel <= margen.getNivel_maximo()) ? "ok" : "error";
-
-            // Build JSON object with proper escaping
-            jsonBuilder.append("{");
-            jsonBuilder.append("\"floor\":").append(entry.getKey()).append(",");
-            jsonBuilder.append("\"level\":").append(info.finalLevel).append(",");
-            jsonBuilder.append("\"status\":\"").append(status).append("\",");
-            jsonBuilder.append("\"floor_cost\":").append(info.floorCost).append(",");
-            jsonBuilder.append("\"components\":[");
-
-            appendComponentEffects(jsonBuilder, info.componentEffects);
-
-            jsonBuilder.append("]}");
+    static Calculation calculateBuilding(ComponentCatalog catalog, int numPisos,
+            double nivelCabecera, List<ComponentConfig> components, int frequency,
+            String cableModel, int numRisers, String splitterModel, MargenCalidad margen)
+            throws SQLException {
+        if (numRisers > 1 || !splitterModel.isEmpty()) {
+            Building building = ScenarioResolver.resolveBuilding(catalog, numPisos,
+                    nivelCabecera, components, frequency, cableModel, numRisers, splitterModel);
+            BuildingResult result = SignalEngine.calculate(building);
+            SignalResult[] risers = new SignalResult[result.getNumRisers()];
+            for (int riser = 1; riser <= risers.length; riser++) {
+                risers[riser - 1] = result.getRiser(riser);
+            }
+            return new Calculation(risers, result.getTotalCost(),
+                    CalculationResponse.buildBuilding(building, result, margen));
         }
 
-        jsonBuilder.append("],\"margins\":{");
-        jsonBuilder.append("\"min\":").append(margen.getNivel_minimo()).append(",");
-        jsonBuilder.append("\"max\":").append(margen.getNivel_maximo());
-        jsonBuilder.append("},\"total_cost\":").append(totalCost);
-        jsonBuilder.append("}");
-
-        return jsonBuilder.toString();
+        Scenario scenario = ScenarioResolver.resolve(catalog, numPisos, nivelCabecera,
+                components, frequency, cableModel);
+        SignalResult result = SignalEngine.calculate(scenario);
+        return new Calculation(new SignalResult[] {result}, result.getTotalCost(),
+                CalculationResponse.build(scenario, result, margen));
     }
 
     /**
-     * Appends component effects to JSON builder
+     * Builds the cache key of a request: every parameter that affects the response, with the
+     * components sorted by riser and floor, plus the versions of the catalog and of the quality
+     * margins, which decide the status of every floor. Components of the same floor keep their
+     * order because only the first of each type attenuates the signal.
      */
-    private void appendComponentEffects(StringBuilder jsonBuilder, List<ComponentEffect> effects) {
-        boolean first = true;
-        for (ComponentEffect effect : effects) {
-            if (!first)
-                jsonBuilder.append(",");
-            first = false;
-
-            // Build JSON object with proper escaping
-            jsonBuilder.append("{");
-            jsonBuilder.append("\"type\":\"").append(escapeJson(effect.type)).append("\",");
-            jsonBuilder.append("\"model\":\"").append(escapeJson(effect.model)).append("\",");
-            jsonBuilder.append("\"attenuation\":").append(effect.attenuation).append(",");
-            jsonBuilder.append("\"cost\":").append(effect.cost);
-            jsonBuilder.append("}");
+    private String cacheKey(ComponentCatalog catalog, int numPisos, double nivelCabecera,
+            String tipoSenal, boolean sweep, int[] frequencies, int frequency,
+            String selectedCableModel, int numRisers, String splitterModel,
+            List<ComponentConfig> components) {
+        List<ComponentConfig> sorted = new ArrayList<>(components);
+        sorted.sort(Comparator.comparingInt(ComponentConfig::getRiser)
+                .thenComparingInt(ComponentConfig::getFloor));
+
+        StringBuilder canonical = new StringBuilder();
+        canonical.append(catalog.getVersion()).append('\n')
+                .append(TableVersions.get("margenes_calidad").getVersion()).append('\n')
+                .append(numPisos).append('\n')
+                .append(nivelCabecera).append('\n').append(tipoSenal).append('\n')
+                .append(sweep ? Arrays.toString(frequencies) : String.valueOf(frequency))
+                .append('\n').append(selectedCableModel).append('\n').append(numRisers)
+                .append('\n').append(splitterModel).append('\n');
+        for (ComponentConfig config : sorted) {
+            canonical.append(config.getRiser()).append('\t').append(config.getFloor())
+                    .append('\t').append(config.getType()).append('\t')
+                    .append(config.getModel()).append('\n');
         }
+        return CalculationCache.key(canonical.toString());
     }
 
     /**
-     * Validates the component configuration for logical errors
+     * Gets the frequencies of a sweep. By default the centre frequencies of UHF channels 21 to 48
+     * (474-690 MHz, 8 MHz raster).
      */
-    private void validateConfiguration(List<ComponentConfig> components) throws SQLException {
-        Map<Integer, List<ComponentConfig>> componentsByFloor = new HashMap<>();
-        for (ComponentConfig config : components) {
-            componentsByFloor.computeIfAbsent(config.floor, k -> new ArrayList<>()).add(config);
+    private int[] sweepFrequencies(Request calculation) throws SQLException {
+        int startFrequency = calculation.sweepStart != null ? calculation.sweepStart : 474;
+        int endFrequency = calculation.sweepEnd != null ? calculation.sweepEnd : 690;
+        int stepFrequency = calculation.sweepStep != null ? calculation.sweepStep : 8;
+
+        if (startFrequency < 470 || endFrequency > 694 || startFrequency > endFrequency
+                || stepFrequency < 1) {
+            throw new SQLException(
+                    "El barrido debe estar entre 470 y 694 MHz con un paso de al menos 1 MHz");
         }
 
-        for (Map.Entry<Integer, List<ComponentConfig>> entry : componentsByFloor.entrySet()) {
-            List<ComponentConfig> floorComponents = entry.getValue();
-            int floorNum = entry.getKey();
-
-            // Count components by type
-            long derivadores = floorComponents.stream()
-                    .filter(c -> c.type.equalsIgnoreCase("derivador")).count();
-            long distribuidores = floorComponents.stream()
-                    .filter(c -> c.type.equalsIgnoreCase("distribuidor")).count();
-            long tomas =
-                    floorComponents.stream().filter(c -> c.type.equalsIgnoreCase("toma")).count();
-
-            // Check component limits
-            if (derivadores > 1) {
-                throw new SQLException("No se permite más de un derivador en el piso " + floorNum);
-            }
-            if (distribuidores > 2) {
-                throw new SQLException(
-                        "No se permite más de un distribuidor en el piso " + floorNum);
-            }
-            if (tomas != 2 && tomas != 4 && tomas != 6 && tomas != 8) {
-                throw new SQLException(
-                        "El piso " + floorNum + " debe tener 2 o 4 tomas por cada lado");
-            }
-
-            // Check component hierarchy
-            boolean hasDerivador = derivadores > 0;
-            boolean hasDistribuidor = distribuidores > 0;
-            boolean hasTomas = tomas > 0;
-
-            // Validate component relationships
-            if (hasTomas && !hasDistribuidor) {
-                throw new SQLException("El piso " + floorNum
-                        + " tiene tomas pero no tiene distribuidor. Debe añadir un distribuidor antes de añadir tomas.");
-            }
-
-            if (hasDistribuidor && !hasDerivador) {
-                throw new SQLException("El piso " + floorNum
-                        + " tiene distribuidor pero no tiene derivador. Debe añadir un derivador antes de añadir distribuidores.");
-            }
-
-            if (hasDistribuidor && !hasTomas) {
-                throw new SQLException("El piso " + floorNum
-                        + " tiene distribuidor pero no tiene tomas. Debe añadir tomas cuando hay un distribuidor.");
-            }
-
-            if (hasDerivador && !hasDistribuidor && !hasTomas) {
-                throw new SQLException("El piso " + floorNum
-                        + " tiene solo un derivador. Debe añadir al menos un distribuidor o tomas.");
-            }
+        int[] frequencies = new int[(endFrequency - startFrequency) / stepFrequency + 1];
+        for (int k = 0; k < frequencies.length; k++) {
+            frequencies[k] = startFrequency + k * stepFrequency;
         }
+        return frequencies;
     }
 
     /**
-     * Calculates signal levels for each floor based on components and initial level
+     * Builds JSON response of a frequency sweep with the levels of every floor at every
+     * frequency and the worst floor/frequency pair
      */
-    private Map<Integer, FloorSignalInfo> calculateSignalLevels(int numPisos, double nivelCabecera,
-            List<ComponentConfig> components, int frequency, String selectedCableModel)
-            throws SQLException {
-        Map<Integer, FloorSignalInfo> levels = new HashMap<>();
-        ComponenteDAO componenteDAO = new ComponenteDAO();
+    private String buildSweepJsonResponse(SweepResult sweep, SignalResult result,
+            MargenCalidad margen) {
+        int[] frequencies = sweep.getFrequencies();
 
-        // Group components by floor
-        Map<Integer, List<ComponentConfig>> componentsByFloor = new HashMap<>();
-        for (ComponentConfig config : components) {
-            componentsByFloor.computeIfAbsent(config.floor, k -> new ArrayList<>()).add(config);
+        StringBuilder jsonBuilder = new StringBuilder();
+        jsonBuilder.append("{\"frequencies\":[");
+        for (int k = 0; k < frequencies.length; k++) {
+            if (k > 0)
+                jsonBuilder.append(",");
+            jsonBuilder.append(frequencies[k]);
         }
 
-        double signalDownward = nivelCabecera;
-
-        // Process floors from top to bottom
-        for (int floor = numPisos; floor >= 1; floor--) {
-            List<ComponentConfig> floorComponents =
-                    componentsByFloor.getOrDefault(floor, new ArrayList<>());
-            FloorSignalInfo info = new FloorSignalInfo(signalDownward);
-            double floorCost = 0.0;
-            double signalToStay = signalDownward;
-
-            // Find derivador if present
-            Optional<ComponentConfig> derivadorOpt = floorComponents.stream()
-                    .filter(c -> c.type.equalsIgnoreCase("derivador")).findFirst();
-
-            // Apply derivación attenuation (signal staying in this floor)
-            if (derivadorOpt.isPresent()) {
-                ComponentInfo derivacionInfo = getComponentInfo(derivadorOpt.get(), frequency);
-                signalToStay -= derivacionInfo.attenuation;
-                floorCost += derivacionInfo.cost;
-                info.componentEffects.add(new ComponentEffect("derivacion",
-                        derivadorOpt.get().model, derivacionInfo.attenuation, derivacionInfo.cost));
-            }
-
-            // Apply 15m coaxial attenuation within floor using the selected cable model
-            if (selectedCableModel != null && !selectedCableModel.isEmpty()
-                    && !floorComponents.isEmpty()) {
-                ComponentConfig cableConfig =
-                        new ComponentConfig("coaxial", selectedCableModel, floor);
-                ComponentInfo coaxInfo = getCoaxialInfoByFrequency(cableConfig, frequency);
-                double atenuacion15m = (coaxInfo.attenuation / 100.0) * 15.0; // 15m of cable
-                signalToStay -= atenuacion15m;
-                double cableCost15m = coaxInfo.cost * 15.0; // Cost per meter * 15 meters
-                floorCost += cableCost15m;
-                info.componentEffects.add(new ComponentEffect("coaxial_en_planta_15m",
-                        selectedCableModel, atenuacion15m, cableCost15m));
-            }
-
-            // Apply distribuidor attenuation first
-            List<ComponentConfig> distribuidores =
-                    floorComponents.stream().filter(c -> c.type.equalsIgnoreCase("distribuidor"))
-                            .collect(Collectors.toList());
-
-            double signalAfterDistribuidor = signalToStay;
-
-            // Apply attenuation only from first distributor
-            if (!distribuidores.isEmpty()) {
-                ComponentConfig firstDistribuidor = distribuidores.get(0);
-                ComponentInfo distribInfo = getComponentInfo(firstDistribuidor, frequency);
-                signalAfterDistribuidor -= distribInfo.attenuation;
-                info.componentEffects.add(new ComponentEffect("distribuidor",
-                        firstDistribuidor.model, distribInfo.attenuation, distribInfo.cost));
-            }
-
-            // Count costs for all distributors
-            for (ComponentConfig distribuidor : distribuidores) {
-                ComponentInfo distribInfo = getComponentInfo(distribuidor, frequency);
-                floorCost += distribInfo.cost;
-            }
-
-            // Apply toma attenuation (only once per floor since all tomas have same model)
-            double signalAfterToma = signalAfterDistribuidor;
-            Optional<ComponentConfig> firstToma = floorComponents.stream()
-                    .filter(c -> c.type.equalsIgnoreCase("toma")).findFirst();
-
-            if (firstToma.isPresent()) {
-                ComponentInfo tomaInfo = getComponentInfo(firstToma.get(), frequency);
-                signalAfterToma -= tomaInfo.attenuation;
-                info.componentEffects.add(new ComponentEffect("toma", firstToma.get().model,
-                        tomaInfo.attenuation, tomaInfo.cost));
-            }
+        jsonBuilder.append("],\"signal_levels\":[");
+        for (int floor = 1; floor <= sweep.getNumPisos(); floor++) {
+            if (floor > 1)
+                jsonBuilder.append(",");
 
-            // Calculate total cost for all tomas
-            double tomaCosts = floorComponents.stream().filter(c -> c.type.equalsIgnoreCase("toma"))
-                    .mapToDouble(toma -> {
-                        try {
-                            return getComponentInfo(toma, frequency).cost;
-                        } catch (SQLException e) {
-                            throw new RuntimeException("Error calculating toma cost", e);
-                        }
-                    }).sum();
-            floorCost += tomaCosts;
-
-            info.finalLevel = signalAfterToma;
-            info.floorCost = floorCost;
-            levels.put(floor, info);
-
-            // Calculate signal for next floor down
-            if (floor > 1) {
-                double nextSignal = signalDownward;
-
-                // Apply paso attenuation if derivador present
-                if (derivadorOpt.isPresent()) {
-                    DerivadorDAO derivadorDAO = new DerivadorDAO();
-                    Derivador derivador = derivadorDAO.findByComponenteId(componenteDAO
-                            .findByModelo(derivadorOpt.get().model).getId_componentes());
-                    nextSignal -= derivador.getAtenuacion_paso();
-                }
-
-                // Apply 3m coaxial attenuation between floors using the selected cable model
-                if (selectedCableModel != null && !selectedCableModel.isEmpty()) {
-                    ComponentConfig cableConfig =
-                            new ComponentConfig("coaxial", selectedCableModel, floor);
-                    ComponentInfo coaxInfo = getCoaxialInfoByFrequency(cableConfig, frequency);
-                    double atenuacion3m = (coaxInfo.attenuation / 100.0) * 3.0; // 3m between floors
-                    nextSignal -= atenuacion3m;
-                    double cableCost3m = coaxInfo.cost * 3.0; // Cost per meter * 3 meters
-                    floorCost += cableCost3m;
-                    info.componentEffects.add(new ComponentEffect("coaxial_entre_pisos_3m",
-                            selectedCableModel, atenuacion3m, cableCost3m));
-                }
-
-                signalDownward = nextSignal;
+            jsonBuilder.append("{\"floor\":").append(floor);
+            jsonBuilder.append(",\"floor_cost\":").append(result.getFloorCost(floor));
+            jsonBuilder.append(",\"levels\":[");
+            for (int k = 0; k < frequencies.length; k++) {
+                if (k > 0)
+                    jsonBuilder.append(",");
+                jsonBuilder.append(sweep.getLevel(k, floor));
             }
+            jsonBuilder.append("]}");
+        }
+        jsonBuilder.append("]");
+
+        int worst = sweep.findWorst(margen.getNivel_minimo(), margen.getNivel_maximo());
+        if (worst >= 0) {
+            int frequencyIndex = worst / sweep.getNumPisos();
+            int floor = worst % sweep.getNumPisos() + 1;
+            double level = sweep.getLevel(frequencyIndex, floor);
+            String status = (level >= margen.getNivel_minimo()
+                    && level <= margen.getNivel_maximo()) ? "ok" : "error";
+            jsonBuilder.append(",\"worst\":{");
+            jsonBuilder.append("\"floor\":").append(floor).append(",");
+            jsonBuilder.append("\"frequency\":").append(frequencies[frequencyIndex]).append(",");
+            jsonBuilder.append("\"level\":").append(level).append(",");
+            jsonBuilder.append("\"status\":\"").append(status).append("\"}");
         }
 
-        return levels;
+        jsonBuilder.append(",\"margins\":{");
+        jsonBuilder.append("\"min\":").append(margen.getNivel_minimo()).append(",");
+        jsonBuilder.append("\"max\":").append(margen.getNivel_maximo()).append("},");
+        jsonBuilder.append("\"total_cost\":").append(result.getTotalCost()).append("}");
+        return jsonBuilder.toString();
     }
 
     /**
-     * Gets component information with interpolated attenuation for coaxial cables
+     * Escapes special characters in a string for JSON formatting
+     *
+     * @param input The string to escape
+     * @return The escaped string safe for JSON output
      */
-    private ComponentInfo getCoaxialInfoByFrequency(ComponentConfig config, int frequency)
-            throws SQLException {
-        ComponenteDAO componenteDAO = new ComponenteDAO();
-        Componente componente = componenteDAO.findByModelo(config.model);
-        if (componente == null) {
-            throw new SQLException("No se encontró el componente: " + config.model);
-        }
-        CoaxialDAO coaxialDAO = new CoaxialDAO();
-        Coaxial coaxial = coaxialDAO.findByComponenteId(componente.getId_componentes());
-
-        // Logarithmic interpolation between 470 MHz and 694 MHz
-        double f1 = 470.0;
-        double f2 = 694.0;
-        double a1 = coaxial.getAtenuacion_470mhz();
-        double a2 = coaxial.getAtenuacion_694mhz();
-
-        double logf1 = Math.log10(f1);
-        double logf2 = Math.log10(f2);
-        double logf = Math.log10(frequency);
-
-        double atenuacionInterpolada = a1 + ((a2 - a1) * (logf - logf1)) / (logf2 - logf1);
-
-        return new ComponentInfo(atenuacionInterpolada, componente.getCosto());
+    private static String escapeJson(String input) {
+        return JsonWriter.escape(input);
     }
 
     /**
-     * Gets component information for non-coaxial components
+     * Body of a calculation request, with the frequency sweep parameters
      */
-    private ComponentInfo getComponentInfo(ComponentConfig config, int frequency)
-            throws SQLException {
-        if (config.type.equalsIgnoreCase("coaxial")) {
-            return getCoaxialInfoByFrequency(config, frequency);
-        }
-
-        ComponenteDAO componenteDAO = new ComponenteDAO();
-        Componente componente = componenteDAO.findByModelo(config.model);
-
-        if (componente == null) {
-            throw new SQLException("No se encontró el componente: " + config.model);
-        }
-
-        double attenuation;
-        switch (config.type.toLowerCase()) {
-            case "derivador":
-                DerivadorDAO derivadorDAO = new DerivadorDAO();
-                Derivador derivador =
-                        derivadorDAO.findByComponenteId(componente.getId_componentes());
-                attenuation = derivador.getAtenuacion_derivacion();
-                break;
-
-            case "distribuidor":
-                DistribuidorDAO distribuidorDAO = new DistribuidorDAO();
-                Distribuidor distribuidor =
-                        distribuidorDAO.findByComponenteId(componente.getId_componentes());
-                attenuation = distribuidor.getAtenuacion_distribucion();
-                break;
-
-            case "toma":
-                TomaDAO tomaDAO = new TomaDAO();
-                Toma toma = tomaDAO.findByComponenteId(componente.getId_componentes());
-                attenuation = toma.getAtenuacion();
-                break;
-
-            default:
-                throw new SQLException("Tipo de componente no válido: " + config.type);
-        }
-
-        return new ComponentInfo(attenuation, componente.getCosto());
-    }
-
-    // Helper classes
-    private static class ComponentInfo {
-        double attenuation;
-        double cost;
-
-        ComponentInfo(double attenuation, double cost) {
-            this.attenuation = attenuation;
-            this.cost = cost;
-        }
-    }
-
-    private static class ComponentConfig {
-        String type;
-        String model;
-        int floor;
-
-        ComponentConfig(String type, String model, int floor) {
-            this.type = type;
-            this.model = model;
-            this.floor = floor;
+    private static class Request extends CalculationRequest {
+        String mode;
+        Integer sweepStart;
+        Integer sweepEnd;
+        Integer sweepStep;
+
+        @Override
+        protected boolean readProperty(String name, JsonReader reader) throws IOException {
+            switch (name) {
+                case "mode":
+                    mode = reader.nextString();
+                    return true;
+                case "sweep_start":
+                    sweepStart = reader.nextInt();
+                    return true;
+                case "sweep_end":
+                    sweepEnd = reader.nextInt();
+                    return true;
+                case "sweep_step":
+                    sweepStep = reader.nextInt();
+                    return true;
+                default:
+                    return super.readProperty(name, reader);
+            }
         }
     }
 
-    private static class FloorSignalInfo {
-        double finalLevel;
-        double floorCost;
-        List<ComponentEffect> componentEffects;
-
-        FloorSignalInfo(double initialLevel) {
-            this.finalLevel = initialLevel;
-            this.floorCost = 0.0;
-            this.componentEffects = new ArrayList<>();
+    /**
+     * A calculated building: the result of every riser, the total cost and the JSON response
+     */
+    static final class Calculation {
+        private final SignalResult[] risers;
+        private final double totalCost;
+        private final String body;
+
+        Calculation(SignalResult[] risers, double totalCost, String body) {
+            this.risers = risers;
+            this.totalCost = totalCost;
+            this.body = body;
         }
-    }
 
-    private static class ComponentEffect {
-        String type;
-        String model;
-        double attenuation;
-        double cost;
-
-        ComponentEffect(String type, String model, double attenuation, double cost) {
-            this.type = type;
-            this.model = model;
-            this.attenuation = attenuation;
-            this.cost = cost;
+        int getNumRisers() {
+            return risers.length;
         }
-    }
-
-    // JSON parsing helper methods
-    private int extractIntValue(String json, String key) {
-        String value = extractStringValue(json, key);
-        return Integer.parseInt(value);
-    }
-
-    private double extractDoubleValue(String json, String key) {
-        String value = extractStringValue(json, key);
-        return Double.parseDouble(value);
-    }
 
-    private String extractStringValue(String json, String key) {
-        int start = json.indexOf("\"" + key + "\"");
-        if (start == -1) {
-            // Return empty string if key not found
-            return "";
+        /**
+         * Gets the result of one riser
+         *
+         * @param riser The riser number, from 1
+         * @return The levels and costs of its floors
+         */
+        SignalResult getRiser(int riser) {
+            return risers[riser - 1];
         }
 
-        start = json.indexOf(":", start) + 1;
-        while (start < json.length() && Character.isWhitespace(json.charAt(start)))
-            start++;
-
-        boolean isString = json.charAt(start) == '"';
-        if (isString)
-            start++;
-
-        int end = start;
-        if (isString) {
-            end = json.indexOf("\"", start);
-        } else {
-            while (end < json.length()
-                    && (Character.isDigit(json.charAt(end)) || json.charAt(end) == '.'))
-                end++;
+        double getTotalCost() {
+            return totalCost;
         }
 
-        return json.substring(start, end);
-    }
-
-    private List<ComponentConfig> extractComponents(String json) {
-        List<ComponentConfig> components = new ArrayList<>();
-
-        int start = json.indexOf("\"components\"");
-        if (start == -1)
-            return components;
-
-        start = json.indexOf("[", start);
-        int end = json.indexOf("]", start);
-        String componentsArray = json.substring(start + 1, end);
-
-        int depth = 0;
-        StringBuilder component = new StringBuilder();
-
-        for (char c : componentsArray.toCharArray()) {
-            if (c == '{')
-                depth++;
-            else if (c == '}')
-                depth--;
-
-            component.append(c);
-
-            if (depth == 0 && component.length() > 0) {
-                String componentJson = component.toString().trim();
-                if (componentJson.startsWith("{") && componentJson.endsWith("}")) {
-                    components.add(new ComponentConfig(extractStringValue(componentJson, "type"),
-                            extractStringValue(componentJson, "model"),
-                            extractIntValue(componentJson, "floor")));
-                }
-                component = new StringBuilder();
-            }
+        String getBody() {
+            return body;
         }
-
-        return components;
-    }
-
-    private String escapeJson(String input) {
-        if (input == null)
-            return "";
-        return input.replace("\\", "\\\\").replace("\"", "\\\"").replace("\b", "\\b")
-                .replace("\f", "\\f").replace("\n", "\\n").replace("\r", "\\r")
-                .replace("\t", "\\t");
     }
 }
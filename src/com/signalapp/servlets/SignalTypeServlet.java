@@ -6,6 +6,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import com.signalapp.dao.*;
+import com.signalapp.json.JsonWriter;
 import com.signalapp.models.*;
 
 import java.io.IOException;
@@ -29,6 +30,12 @@ public class SignalTypeServlet extends HttpServlet {
         response.setCharacterEncoding("UTF-8");
         PrintWriter out = response.getWriter();
 
+        TableVersions.Stamp stamp = TableVersions.get("margenes_calidad");
+        if (ConditionalGet.notModified(request, response, stamp.getTag(),
+                stamp.getLastModified())) {
+            return;
+        }
+
         try {
             MargenCalidadDAO margenCalidadDAO = new MargenCalidadDAO();
             List<MargenCalidad> margenes = margenCalidadDAO.findAll();
@@ -79,10 +86,6 @@ public class SignalTypeServlet extends HttpServlet {
      * @return The escaped string safe for JSON output
      */
     private String escapeJson(String input) {
-        if (input == null)
-            return "";
-        return input.replace("\\", "\\\\").replace("\"", "\\\"").replace("\b", "\\b")
-                .replace("\f", "\\f").replace("\n", "\\n").replace("\r", "\\r")
-                .replace("\t", "\\t");
+        return JsonWriter.escape(input);
     }
 }
@@ -6,23 +6,38 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import com.signalapp.dao.*;
+import com.signalapp.json.JsonReader;
+import com.signalapp.json.JsonWriter;
 import com.signalapp.models.*;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 
 /**
  * Servlet for handling simulation history operations (GET, POST, DELETE). Provides endpoints to
- * retrieve, create, and delete simulation history records for a given configuration.
+ * retrieve, create, and delete simulation history records for a given configuration. The history
+ * is returned in pages, with keyset pagination on the date and ID of the simulations.
  */
 public class SimulationHistoryServlet extends HttpServlet {
     private static final long serialVersionUID = 1L;
 
+    /** Number of simulations per page when the request does not say */
+    private static final int DEFAULT_LIMIT = 100;
+    /** Maximum number of simulations per page */
+    private static final int MAX_LIMIT = 1000;
+
     /**
-     * Handles GET requests for simulation history Retrieves all simulations for a specific
-     * configuration and returns them as JSON
+     * Handles GET requests for simulation history Retrieves one page of the simulations of a
+     * configuration, newest first, optionally filtered by status, signal type and date. The link
+     * to the next page, if any, is sent in the Link header.
      */
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
@@ -38,50 +53,146 @@ public class SimulationHistoryServlet extends HttpServlet {
             return;
         }
 
+        int id;
+        int limit;
+        SimulacionDAO.HistoryQuery query = new SimulacionDAO.HistoryQuery();
         try {
-            SimulacionDAO simulacionDAO = new SimulacionDAO();
-            List<Simulacion> simulaciones =
-                    simulacionDAO.getByConfiguracion(Integer.parseInt(idConfiguracion));
-
-            StringBuilder jsonBuilder = new StringBuilder("[");
-            boolean first = true;
-            for (Simulacion simulacion : simulaciones) {
-                if (!first) {
-                    jsonBuilder.append(",");
+            id = Integer.parseInt(idConfiguracion);
+            limit = parseLimit(request.getParameter("limit"));
+            query.estado(emptyToNull(request.getParameter("estado")))
+                    .tipoSenal(emptyToNull(request.getParameter("tipo_senal")))
+                    .between(parseDate(request.getParameter("from"), false),
+                            parseDate(request.getParameter("to"), true))
+                    // One more than the page, to know whether there is a next one
+                    .limit(limit + 1);
+            String after = request.getParameter("after");
+            if (after != null && !after.isEmpty()) {
+                String[] position = decodeCursor(after);
+                query.after(Timestamp.valueOf(position[0]), Integer.parseInt(position[1]));
+            }
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.write("{\"error\":\"Parametro no valido: " + escapeJson(e.getMessage()) + "\"}");
+            return;
+        }
+
+        try {
+            // At most one page and one more simulation are held in memory
+            List<Simulacion> page;
+            try (Cursor<Simulacion> cursor = new SimulacionDAO().openHistory(id, query)) {
+                page = new ArrayList<>();
+                while (page.size() <= limit && cursor.next()) {
+                    page.add(cursor.get());
                 }
-                first = false;
-
-                // Build JSON object with proper escaping
-                jsonBuilder.append("{");
-                jsonBuilder.append("\"id_simulaciones\":").append(simulacion.getId_simulaciones())
-                        .append(",");
-                jsonBuilder.append("\"id_configuraciones\":")
-                        .append(simulacion.getId_configuraciones()).append(",");
-                jsonBuilder.append("\"frecuencia\":").append(simulacion.getFrecuencia())
-                        .append(",");
-                jsonBuilder.append("\"tipo_senal\":\"")
-                        .append(escapeJson(simulacion.getTipo_senal())).append("\",");
-                jsonBuilder.append("\"costo_total\":").append(simulacion.getCosto_total())
-                        .append(",");
-                jsonBuilder.append("\"estado\":\"").append(escapeJson(simulacion.getEstado()))
-                        .append("\",");
-                jsonBuilder.append("\"fecha_simulacion\":\"")
-                        .append(escapeJson(simulacion.getFecha_simulacion())).append("\",");
-                jsonBuilder.append("\"nombre_edificio\":\"")
-                        .append(escapeJson(simulacion.getNombre_edificio())).append("\",");
-                jsonBuilder.append("\"nivel_cabecera\":").append(simulacion.getNivel_cabecera())
-                        .append(",");
-                jsonBuilder.append("\"num_pisos\":").append(simulacion.getNum_pisos());
-                jsonBuilder.append("}");
             }
-            jsonBuilder.append("]");
-            out.write(jsonBuilder.toString());
+            if (page.size() > limit) {
+                page.remove(limit);
+                Simulacion last = page.get(limit - 1);
+                response.setHeader("Link", "<" + nextPageUrl(request, last) + ">; rel=\"next\"");
+            }
+
+            JsonWriter json = new JsonWriter(out);
+            json.beginArray();
+            for (Simulacion simulacion : page) {
+                json.beginObject()
+                        .name("id_simulaciones").value(simulacion.getId_simulaciones())
+                        .name("id_configuraciones").value(simulacion.getId_configuraciones())
+                        .name("frecuencia").value(simulacion.getFrecuencia())
+                        .name("tipo_senal").value(simulacion.getTipo_senal())
+                        .name("costo_total").value(simulacion.getCosto_total())
+                        .name("estado").value(simulacion.getEstado())
+                        .name("fecha_simulacion").value(simulacion.getFecha_simulacion())
+                        .name("nombre_edificio").value(simulacion.getNombre_edificio())
+                        .name("nivel_cabecera").value(simulacion.getNivel_cabecera())
+                        .name("num_pisos").value(simulacion.getNum_pisos())
+                        .endObject();
+            }
+            json.endArray();
+            json.flush();
         } catch (SQLException e) {
+            // Part of the list may already be on its way to the client
+            if (response.isCommitted()) {
+                throw new ServletException(e);
+            }
+            response.resetBuffer();
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             out.write("{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
         }
     }
 
+    /**
+     * Reads the page size, DEFAULT_LIMIT if it is not given
+     */
+    private int parseLimit(String value) {
+        if (value == null || value.isEmpty()) {
+            return DEFAULT_LIMIT;
+        }
+        int limit = Integer.parseInt(value);
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit debe estar entre 1 y " + MAX_LIMIT);
+        }
+        return limit;
+    }
+
+    /**
+     * Reads a date, yyyy-MM-dd or yyyy-MM-dd HH:mm:ss. The end of a period is returned as the
+     * first instant after it, so the whole day or second is included.
+     */
+    private Timestamp parseDate(String value, boolean end) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        Timestamp date;
+        if (value.length() == 10) {
+            date = Timestamp.valueOf(value + " 00:00:00");
+            if (end) {
+                date = Timestamp.valueOf(date.toLocalDateTime().plusDays(1));
+            }
+        } else {
+            date = Timestamp.valueOf(value);
+            if (end) {
+                date = Timestamp.valueOf(date.toLocalDateTime().plusSeconds(1));
+            }
+        }
+        return date;
+    }
+
+    private String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Builds the URL of the page after a simulation, with the same filters and page size
+     */
+    private String nextPageUrl(HttpServletRequest request, Simulacion last)
+            throws UnsupportedEncodingException {
+        StringBuilder url = new StringBuilder("history?");
+        for (String name : new String[] {"id_configuraciones", "limit", "estado", "tipo_senal",
+                "from", "to"}) {
+            String value = request.getParameter(name);
+            if (value != null && !value.isEmpty()) {
+                url.append(name).append('=').append(URLEncoder.encode(value, "UTF-8"))
+                        .append('&');
+            }
+        }
+        String position = Timestamp.valueOf(last.getFecha_simulacion()) + ","
+                + last.getId_simulaciones();
+        return url.append("after=").append(Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(position.getBytes(StandardCharsets.UTF_8))).toString();
+    }
+
+    /**
+     * Reads the date and ID of the last simulation of the previous page from the after parameter
+     */
+    private String[] decodeCursor(String after) {
+        String position = new String(Base64.getUrlDecoder().decode(after), StandardCharsets.UTF_8);
+        String[] parts = position.split(",");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("after");
+        }
+        return parts;
+    }
+
     /**
      * Handles POST requests to create new simulation history entries Creates a new simulation
      * record with the specified parameters
@@ -94,33 +205,57 @@ public class SimulationHistoryServlet extends HttpServlet {
         PrintWriter out = response.getWriter();
 
         try {
-            // Read request body
-            StringBuilder body = new StringBuilder();
-            String line;
-            while ((line = request.getReader().readLine()) != null) {
-                body.append(line);
-            }
-            String json = body.toString();
+            // Read the parameters straight from the request body
+            Integer idConfiguracion = null;
+            Integer frecuencia = null;
+            String tipoSenal = null;
+            Double costoTotal = null;
+            String estado = null;
 
-            // Extract parameters from JSON
-            String idConfiguracion = extractStringValue(json, "id_configuraciones");
-            String frecuencia = extractStringValue(json, "frecuencia");
-            String tipoSenal = extractStringValue(json, "tipo_senal");
-            String costoTotal = extractStringValue(json, "costo_total");
-            String estado = extractStringValue(json, "estado");
+            JsonReader reader = new JsonReader(request.getReader());
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonReader.Token.NULL) {
+                    reader.skipValue();
+                    continue;
+                }
+                switch (name) {
+                    case "id_configuraciones":
+                        idConfiguracion = reader.nextInt();
+                        break;
+                    case "frecuencia":
+                        frecuencia = reader.nextInt();
+                        break;
+                    case "tipo_senal":
+                        tipoSenal = reader.nextString();
+                        break;
+                    case "costo_total":
+                        costoTotal = reader.nextDouble();
+                        break;
+                    case "estado":
+                        estado = reader.nextString();
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
 
-            if (idConfiguracion.isEmpty() || frecuencia.isEmpty() || tipoSenal.isEmpty()
-                    || costoTotal.isEmpty() || estado.isEmpty()) {
+            if (idConfiguracion == null || frecuencia == null || tipoSenal == null
+                    || tipoSenal.isEmpty() || costoTotal == null || estado == null
+                    || estado.isEmpty()) {
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                 out.write("{\"error\":\"Faltan parametros requeridos\"}");
                 return;
             }
 
             Simulacion simulacion = new Simulacion();
-            simulacion.setId_configuraciones(Integer.parseInt(idConfiguracion));
-            simulacion.setFrecuencia(Integer.parseInt(frecuencia));
+            simulacion.setId_configuraciones(idConfiguracion);
+            simulacion.setFrecuencia(frecuencia);
             simulacion.setTipo_senal(tipoSenal);
-            simulacion.setCosto_total(Double.parseDouble(costoTotal));
+            simulacion.setCosto_total(costoTotal);
             simulacion.setEstado(estado);
 
             // Add current date
@@ -129,53 +264,19 @@ public class SimulationHistoryServlet extends HttpServlet {
             simulacion.setFecha_simulacion(currentDate);
 
             SimulacionDAO simulacionDAO = new SimulacionDAO();
-            simulacionDAO.insert(simulacion);
-
-            // Get the generated ID
-            int idSimulacion =
-                    simulacionDAO.getLatestByConfiguracion(Integer.parseInt(idConfiguracion))
-                            .getId_simulaciones();
-            if (idSimulacion == -1) {
-                throw new SQLException("No se pudo obtener el ID de la simulacion");
-            }
+            int idSimulacion = simulacionDAO.insert(simulacion);
 
             out.write("{\"success\":\"Simulacion guardada exitosamente\",\"id\":" + idSimulacion
                     + "}");
+        } catch (IOException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.write("{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
         } catch (SQLException e) {
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             out.write("{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
         }
     }
 
-    /**
-     * Extracts a string value from JSON
-     */
-    private String extractStringValue(String json, String key) {
-        int start = json.indexOf("\"" + key + "\"");
-        if (start == -1) {
-            return "";
-        }
-
-        start = json.indexOf(":", start) + 1;
-        while (start < json.length() && Character.isWhitespace(json.charAt(start)))
-            start++;
-
-        boolean isString = json.charAt(start) == '"';
-        if (isString)
-            start++;
-
-        int end = start;
-        if (isString) {
-            end = json.indexOf("\"", start);
-        } else {
-            while (end < json.length()
-                    && (Character.isDigit(json.charAt(end)) || json.charAt(end) == '.'))
-                end++;
-        }
-
-        return json.substring(start, end);
-    }
-
     /**
      * Handles DELETE requests to remove simulation history entries Deletes a simulation with the
      * specified ID
@@ -195,13 +296,18 @@ public class SimulationHistoryServlet extends HttpServlet {
         }
 
         try {
-            // First delete all schematic components associated with this simulation
-            EsquematicoDAO esquematicoDAO = new EsquematicoDAO();
-            esquematicoDAO.deleteBySimulacion(Integer.parseInt(idSimulacion));
+            // The schematic and the simulation are deleted together
+            try (UnitOfWork work = UnitOfWork.begin()) {
+                // First delete all schematic components associated with this simulation
+                EsquematicoDAO esquematicoDAO = new EsquematicoDAO();
+                esquematicoDAO.deleteBySimulacion(Integer.parseInt(idSimulacion));
 
-            // Then delete the simulation itself
-            SimulacionDAO simulacionDAO = new SimulacionDAO();
-            simulacionDAO.delete(Integer.parseInt(idSimulacion));
+                // Then delete the simulation itself
+                SimulacionDAO simulacionDAO = new SimulacionDAO();
+                simulacionDAO.delete(Integer.parseInt(idSimulacion));
+
+                work.commit();
+            }
 
             out.write("{\"success\":\"Simulacion eliminada exitosamente\"}");
         } catch (SQLException e) {
@@ -217,10 +323,6 @@ public class SimulationHistoryServlet extends HttpServlet {
      * @return The escaped string safe for JSON output
      */
     private String escapeJson(String input) {
-        if (input == null)
-            return "";
-        return input.replace("\\", "\\\\").replace("\"", "\\\"").replace("\b", "\\b")
-                .replace("\f", "\\f").replace("\n", "\\n").replace("\r", "\\r")
-                .replace("\t", "\\t");
+        return JsonWriter.escape(input);
     }
 }
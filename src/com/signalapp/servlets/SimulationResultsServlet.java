@@ -6,11 +6,14 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import com.signalapp.dao.*;
+import com.signalapp.json.JsonReader;
+import com.signalapp.json.JsonWriter;
 import com.signalapp.models.*;
 
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -40,33 +43,28 @@ public class SimulationResultsServlet extends HttpServlet {
 
         try {
             ResultadoSimulacionDAO resultadoDAO = new ResultadoSimulacionDAO();
-            List<ResultadoSimulacion> resultados =
-                    resultadoDAO.findBySimulacionId(Integer.parseInt(idSimulacion));
-
-            StringBuilder jsonBuilder = new StringBuilder("[");
-            boolean first = true;
-            for (ResultadoSimulacion resultado : resultados) {
-                if (!first) {
-                    jsonBuilder.append(",");
-                }
-                first = false;
-
-                jsonBuilder.append("{");
-                jsonBuilder.append("\"id_resultados_simulacion\":")
-                        .append(resultado.getId_resultados_simulacion()).append(",");
-                jsonBuilder.append("\"id_simulaciones\":").append(resultado.getId_simulaciones())
-                        .append(",");
-                jsonBuilder.append("\"piso\":").append(resultado.getPiso()).append(",");
-                jsonBuilder.append("\"nivel_senal\":").append(resultado.getNivel_senal())
-                        .append(",");
-                jsonBuilder.append("\"costo_piso\":").append(resultado.getCosto_piso()).append(",");
-                jsonBuilder.append("\"estado\":\"").append(escapeJson(resultado.getEstado()))
-                        .append("\"");
-                jsonBuilder.append("}");
-            }
-            jsonBuilder.append("]");
-            out.write(jsonBuilder.toString());
+            int id = Integer.parseInt(idSimulacion);
+
+            // Write each result as it is read from the database
+            JsonWriter json = new JsonWriter(out);
+            json.beginArray();
+            resultadoDAO.forEachBySimulacionId(id, resultado -> json.beginObject()
+                    .name("id_resultados_simulacion").value(resultado.getId_resultados_simulacion())
+                    .name("id_simulaciones").value(resultado.getId_simulaciones())
+                    .name("piso").value(resultado.getPiso())
+                    .name("montante").value(resultado.getMontante())
+                    .name("nivel_senal").value(resultado.getNivel_senal())
+                    .name("costo_piso").value(resultado.getCosto_piso())
+                    .name("estado").value(resultado.getEstado())
+                    .endObject());
+            json.endArray();
+            json.flush();
         } catch (SQLException e) {
+            // Part of the list may already be on its way to the client
+            if (response.isCommitted()) {
+                throw new ServletException(e);
+            }
+            response.resetBuffer();
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             out.write("{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
         }
@@ -83,49 +81,47 @@ public class SimulationResultsServlet extends HttpServlet {
         PrintWriter out = response.getWriter();
 
         try {
-            // Read request body
-            StringBuilder body = new StringBuilder();
-            String line;
-            while ((line = request.getReader().readLine()) != null) {
-                body.append(line);
+            // Read the simulation ID and results straight from the request body
+            Integer idSimulacion = null;
+            List<ResultadoSimulacion> resultados = null;
+
+            JsonReader reader = new JsonReader(request.getReader());
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("id_simulaciones".equals(name) && reader.peek() != JsonReader.Token.NULL) {
+                    idSimulacion = reader.nextInt();
+                } else if ("results".equals(name)
+                        && reader.peek() == JsonReader.Token.BEGIN_OBJECT) {
+                    resultados = readResultColumns(reader);
+                } else if ("results".equals(name) && reader.peek() != JsonReader.Token.NULL) {
+                    resultados = readResults(reader);
+                } else {
+                    reader.skipValue();
+                }
             }
-            String json = body.toString();
+            reader.endObject();
 
-            // Extract simulation ID
-            String idSimulacion = extractStringValue(json, "id_simulaciones");
-            if (idSimulacion.isEmpty()) {
+            if (idSimulacion == null) {
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                 out.write("{\"error\":\"Falta el ID de la simulación\"}");
                 return;
             }
 
-            // Extract results array
-            String resultsStr = extractArrayValue(json, "results");
-            if (resultsStr.isEmpty()) {
+            if (resultados == null || resultados.isEmpty()) {
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                 out.write("{\"error\":\"Faltan los resultados de la simulación\"}");
                 return;
             }
 
+            // Save all results in one batch and one transaction
             ResultadoSimulacionDAO resultadoDAO = new ResultadoSimulacionDAO();
-
-            // Parse and save each result
-            String[] resultItems = resultsStr.split("\\},\\{");
-            for (String item : resultItems) {
-                // Clean up the item string
-                item = item.replace("[{", "").replace("}]", "");
-
-                ResultadoSimulacion resultado = new ResultadoSimulacion();
-                resultado.setId_simulaciones(Integer.parseInt(idSimulacion));
-                resultado.setPiso(Integer.parseInt(extractStringValue(item, "floor")));
-                resultado.setNivel_senal(Double.parseDouble(extractStringValue(item, "level")));
-                resultado.setCosto_piso(Double.parseDouble(extractStringValue(item, "floor_cost")));
-                resultado.setEstado(extractStringValue(item, "status"));
-
-                resultadoDAO.insert(resultado);
-            }
+            resultadoDAO.insertBySimulacionId(idSimulacion, resultados);
 
             out.write("{\"success\":\"Resultados guardados exitosamente\"}");
+        } catch (IOException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.write("{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
         } catch (SQLException e) {
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             out.write("{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
@@ -161,69 +157,146 @@ public class SimulationResultsServlet extends HttpServlet {
     }
 
     /**
-     * Extracts a string value from JSON
+     * Reads the results array, one result per floor. Other properties of each floor, such as its
+     * components, are skipped.
      */
-    private String extractStringValue(String json, String key) {
-        int start = json.indexOf("\"" + key + "\"");
-        if (start == -1) {
-            return "";
-        }
-
-        start = json.indexOf(":", start) + 1;
-        while (start < json.length() && Character.isWhitespace(json.charAt(start)))
-            start++;
-
-        boolean isString = json.charAt(start) == '"';
-        if (isString)
-            start++;
-
-        int end = start;
-        if (isString) {
-            end = json.indexOf("\"", start);
-        } else {
-            while (end < json.length()
-                    && (Character.isDigit(json.charAt(end)) || json.charAt(end) == '.'))
-                end++;
+    private List<ResultadoSimulacion> readResults(JsonReader reader) throws IOException {
+        List<ResultadoSimulacion> resultados = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            ResultadoSimulacion resultado = new ResultadoSimulacion();
+            boolean hasFloor = false;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonReader.Token.NULL) {
+                    reader.skipValue();
+                    continue;
+                }
+                switch (name) {
+                    case "floor":
+                        resultado.setPiso(reader.nextInt());
+                        hasFloor = true;
+                        break;
+                    case "riser":
+                        resultado.setMontante(reader.nextInt());
+                        break;
+                    case "level":
+                        resultado.setNivel_senal(reader.nextDouble());
+                        break;
+                    case "floor_cost":
+                        resultado.setCosto_piso(reader.nextDouble());
+                        break;
+                    case "status":
+                        resultado.setEstado(reader.nextString());
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+            if (!hasFloor) {
+                throw new IOException("Falta el campo floor");
+            }
+            resultados.add(resultado);
         }
-
-        return json.substring(start, end);
+        reader.endArray();
+        return resultados;
     }
 
     /**
-     * Extracts an array value from JSON
+     * Reads the results in the compact format: an object with one array per field, where the
+     * result of each floor is at the same index in every array. The riser array may be left out
+     * when every floor hangs from the first riser.
      */
-    private String extractArrayValue(String json, String key) {
-        int start = json.indexOf("\"" + key + "\"");
-        if (start == -1) {
-            return "";
-        }
+    private List<ResultadoSimulacion> readResultColumns(JsonReader reader) throws IOException {
+        List<Integer> floors = null;
+        List<Integer> risers = null;
+        List<Double> levels = new ArrayList<>();
+        List<Double> costs = new ArrayList<>();
+        List<String> statuses = new ArrayList<>();
 
-        start = json.indexOf("[", start);
-        if (start == -1) {
-            return "";
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonReader.Token.NULL) {
+                reader.skipValue();
+                continue;
+            }
+            switch (name) {
+                case "floor":
+                    floors = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        floors.add(reader.nextInt());
+                    }
+                    reader.endArray();
+                    break;
+                case "riser":
+                    risers = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        risers.add(reader.nextInt());
+                    }
+                    reader.endArray();
+                    break;
+                case "level":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        levels.add(reader.nextDouble());
+                    }
+                    reader.endArray();
+                    break;
+                case "floor_cost":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        costs.add(reader.nextDouble());
+                    }
+                    reader.endArray();
+                    break;
+                case "status":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        statuses.add(reader.nextString());
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
         }
+        reader.endObject();
 
-        int end = start + 1;
-        int depth = 1;
-        while (end < json.length() && depth > 0) {
-            if (json.charAt(end) == '[')
-                depth++;
-            if (json.charAt(end) == ']')
-                depth--;
-            end++;
+        if (floors == null) {
+            throw new IOException("Falta el campo floor");
+        }
+        int count = floors.size();
+        if (levels.size() != count || costs.size() != count || statuses.size() != count
+                || (risers != null && risers.size() != count)) {
+            throw new IOException("Las columnas de los resultados no tienen la misma longitud");
         }
 
-        return json.substring(start, end);
+        List<ResultadoSimulacion> resultados = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ResultadoSimulacion resultado = new ResultadoSimulacion();
+            resultado.setPiso(floors.get(i));
+            if (risers != null) {
+                resultado.setMontante(risers.get(i));
+            }
+            resultado.setNivel_senal(levels.get(i));
+            resultado.setCosto_piso(costs.get(i));
+            resultado.setEstado(statuses.get(i));
+            resultados.add(resultado);
+        }
+        return resultados;
     }
 
     /**
      * Escapes special characters in a string for JSON formatting
      */
     private String escapeJson(String input) {
-        if (input == null)
-            return "";
-        return input.replace("\\", "\\\\").replace("\"", "\\\"").replace("\b", "\\b")
-                .replace("\f", "\\f").replace("\n", "\\n").replace("\r", "\\r")
-                .replace("\t", "\\t");
+        return JsonWriter.escape(input);
     }
 }
@@ -0,0 +1,175 @@
+package com.signalapp.servlets;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.signalapp.dao.*;
+import com.signalapp.engine.*;
+import com.signalapp.json.*;
+import com.signalapp.models.*;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Servlet to run a simulation and save it in one request. The building is calculated as in POST
+ * /calculate, and the simulation, the result of every floor and the schematic are saved in a
+ * single transaction, so the client needs one round trip instead of one per table.
+ */
+public class SimulationRunServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+
+    /** Maximum number of schematic components accepted in a single request */
+    private static final int MAX_COMPONENTS = 20000;
+
+    /**
+     * Handles POST requests to calculate a building and save the simulation
+     */
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        PrintWriter out = response.getWriter();
+
+        RunRequest run = new RunRequest();
+        int numPisos;
+        double nivelCabecera;
+        int frequency;
+        try {
+            run.read(new JsonReader(request.getReader()));
+            numPisos = CalculationRequest.require(run.getNumPisos(), "num_pisos");
+            nivelCabecera = CalculationRequest.require(run.getNivelCabecera(), "nivel_cabecera");
+            frequency = CalculationRequest.require(run.getFrequency(), "frequency");
+            CalculationRequest.require(run.idConfiguracion, "id_configuraciones");
+        } catch (IOException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.write("{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+            return;
+        }
+
+        List<Esquematico> esquematicos =
+                run.esquematicos != null ? run.esquematicos : new ArrayList<>();
+        if (esquematicos.size() > MAX_COMPONENTS) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.write("{\"error\":\"El número de componentes no puede ser mayor que "
+                    + MAX_COMPONENTS + "\"}");
+            return;
+        }
+
+        try {
+            if (new ConfiguracionDAO().findById(run.idConfiguracion) == null) {
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                out.write("{\"error\":\"Configuracion no encontrada\"}");
+                return;
+            }
+
+            String tipoSenal = run.getTipoSenal();
+            String selectedCableModel = run.getSelectedCableModel();
+            int numRisers = run.getRisers() != null ? run.getRisers() : 1;
+            String splitterModel = run.getRiserSplitter();
+            List<ComponentConfig> components = run.getComponents();
+
+            ScenarioResolver.validate(components);
+            ComponentCatalog catalog = ComponentCatalog.getInstance();
+            MargenCalidad margen = new MargenCalidadDAO().findByTipoSenal(tipoSenal);
+
+            // Calculate the building as POST /calculate and collect the result of every floor,
+            // riser by riser
+            SignalCalculationServlet.Calculation calculation =
+                    SignalCalculationServlet.calculateBuilding(catalog, numPisos, nivelCabecera,
+                            components, frequency, selectedCableModel, numRisers, splitterModel,
+                            margen);
+            List<ResultadoSimulacion> resultados = new ArrayList<>();
+            for (int riser = 1; riser <= calculation.getNumRisers(); riser++) {
+                addResults(resultados, calculation.getRiser(riser), margen, riser);
+            }
+            double totalCost = calculation.getTotalCost();
+            String body = calculation.getBody();
+
+            String estado = "ok";
+            for (ResultadoSimulacion resultado : resultados) {
+                if (!"ok".equals(resultado.getEstado())) {
+                    estado = "error";
+                    break;
+                }
+            }
+
+            Simulacion simulacion = new Simulacion();
+            simulacion.setId_configuraciones(run.idConfiguracion);
+            simulacion.setFrecuencia(frequency);
+            simulacion.setTipo_senal(tipoSenal);
+            simulacion.setCosto_total(totalCost);
+            simulacion.setEstado(estado);
+            java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+            simulacion.setFecha_simulacion(sdf.format(new java.util.Date()));
+
+            int idSimulacion =
+                    new SimulacionDAO().insertWithResults(simulacion, resultados, esquematicos);
+
+            // Same body as POST /calculate, with the ID of the saved simulation first
+            out.write("{\"id_simulaciones\":" + idSimulacion + ",");
+            out.write(body, 1, body.length() - 1);
+        } catch (SQLException e) {
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            out.write("{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+        }
+    }
+
+    /**
+     * Adds the result of every floor of a riser to the list
+     */
+    private void addResults(List<ResultadoSimulacion> resultados, SignalResult result,
+            MargenCalidad margen, int riser) {
+        for (int floor = 1; floor <= result.getNumPisos(); floor++) {
+            double level = result.getLevel(floor);
+            ResultadoSimulacion resultado = new ResultadoSimulacion();
+            resultado.setMontante(riser);
+            resultado.setPiso(floor);
+            resultado.setNivel_senal(level);
+            resultado.setCosto_piso(result.getFloorCost(floor));
+            resultado.setEstado(
+                    level >= margen.getNivel_minimo() && level <= margen.getNivel_maximo() ? "ok"
+                            : "error");
+            resultados.add(resultado);
+        }
+    }
+
+    /**
+     * Escapes special characters in a string for JSON formatting
+     *
+     * @param input The string to escape
+     * @return The escaped string safe for JSON output
+     */
+    private String escapeJson(String input) {
+        return JsonWriter.escape(input);
+    }
+
+    /**
+     * Body of a run request: a calculation request plus the configuration the simulation belongs
+     * to and, optionally, the schematic to save with it
+     */
+    private static class RunRequest extends CalculationRequest {
+        Integer idConfiguracion;
+        List<Esquematico> esquematicos;
+
+        @Override
+        protected boolean readProperty(String name, JsonReader reader) throws IOException {
+            switch (name) {
+                case "id_configuraciones":
+                    idConfiguracion = reader.nextInt();
+                    return true;
+                case "schematic":
+                    esquematicos = BulkSchematicServlet.readComponents(reader);
+                    return true;
+                default:
+                    return super.readProperty(name, reader);
+            }
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.signalapp.servlets;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.signalapp.dao.*;
+import com.signalapp.engine.*;
+import com.signalapp.json.*;
+import com.signalapp.models.*;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Servlet for Monte Carlo tolerance analysis of a building. Takes the same body as the signal
+ * calculation plus the tolerances of each component type, and streams the results as
+ * newline-delimited JSON: one line with the accumulated statistics after every round of trials,
+ * so the client can show them while they converge.
+ *
+ * The trials run on a pool owned by the servlet, one thread per available processor, and only a
+ * few analyses run at the same time; the others are refused until one finishes.
+ */
+public class ToleranceAnalysisServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+
+    private static final int DEFAULT_TRIALS = 100000;
+    private static final int MAX_TRIALS = 1000000;
+    /** Maximum number of trials times floors of an analysis */
+    private static final long MAX_FLOOR_TRIALS = 100000000L;
+    /** Maximum number of analyses running at the same time */
+    private static final int MAX_CONCURRENT_ANALYSES = 2;
+
+    /** Tolerance fields of the request, none of them may be negative */
+    private static final String[] TOLERANCES = {"tolerance_derivador", "tolerance_distribuidor",
+            "tolerance_toma", "tolerance_coaxial"};
+
+    /** Number of progress lines sent while the trials run */
+    private static final int ROUNDS = 10;
+
+    private transient ForkJoinPool pool;
+    private final transient Semaphore running = new Semaphore(MAX_CONCURRENT_ANALYSES);
+
+    /**
+     * Creates the pool the trials run on, one thread per available processor
+     */
+    @Override
+    public void init() throws ServletException {
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), forkJoinPool -> {
+            ForkJoinWorkerThread thread =
+                    ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("signal-tolerance-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Shuts down the pool
+     */
+    @Override
+    public void destroy() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Handles POST requests to run a tolerance analysis
+     */
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setCharacterEncoding("UTF-8");
+        PrintWriter out = response.getWriter();
+
+        ToleranceAnalysis analysis;
+        MargenCalidad margen;
+        int trials;
+        double precision;
+        SplittableRandom random;
+        try {
+            Request tolerance = new Request();
+            tolerance.read(new JsonReader(request.getReader()));
+            tolerance.requireSingleRiser("El análisis de tolerancias");
+
+            int numPisos = CalculationRequest.require(tolerance.getNumPisos(), "num_pisos");
+            double nivelCabecera =
+                    CalculationRequest.require(tolerance.getNivelCabecera(), "nivel_cabecera");
+            String tipoSenal = tolerance.getTipoSenal();
+            int frequency = CalculationRequest.require(tolerance.getFrequency(), "frequency");
+            String selectedCableModel = tolerance.getSelectedCableModel();
+            List<ComponentConfig> components = tolerance.getComponents();
+
+            trials = (int) tolerance.value("trials", DEFAULT_TRIALS);
+            if (trials < 1 || trials > MAX_TRIALS) {
+                response.setContentType("application/json");
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                out.write("{\"error\":\"El número de pruebas debe estar entre 1 y " + MAX_TRIALS
+                        + "\"}");
+                return;
+            }
+            if ((long) trials * numPisos > MAX_FLOOR_TRIALS) {
+                response.setContentType("application/json");
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                out.write("{\"error\":\"Un edificio de " + numPisos
+                        + " pisos admite como máximo " + MAX_FLOOR_TRIALS / numPisos
+                        + " pruebas\"}");
+                return;
+            }
+            for (String name : TOLERANCES) {
+                if (tolerance.value(name, 0.0) < 0.0) {
+                    response.setContentType("application/json");
+                    response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                    out.write("{\"error\":\"La tolerancia " + name
+                            + " no puede ser negativa\"}");
+                    return;
+                }
+            }
+            precision = tolerance.value("precision", 0.0);
+            random = tolerance.seed == null ? new SplittableRandom()
+                    : new SplittableRandom(Long.parseLong(tolerance.seed));
+
+            ToleranceAnalysis.Distribution distribution =
+                    "uniform".equalsIgnoreCase(tolerance.distribution)
+                            ? ToleranceAnalysis.Distribution.UNIFORM
+                            : ToleranceAnalysis.Distribution.NORMAL;
+
+            ScenarioResolver.validate(components);
+            Scenario scenario = ScenarioResolver.resolve(ComponentCatalog.getInstance(), numPisos,
+                    nivelCabecera, components, frequency, selectedCableModel);
+            margen = new MargenCalidadDAO().findByTipoSenal(tipoSenal);
+
+            analysis = new ToleranceAnalysis(scenario, margen.getNivel_minimo(),
+                    margen.getNivel_maximo(), distribution,
+                    tolerance.value("tolerance_derivador", 1.0),
+                    tolerance.value("tolerance_distribuidor", 1.0),
+                    tolerance.value("tolerance_toma", 1.0),
+                    tolerance.value("tolerance_coaxial", 0.0));
+        } catch (Exception e) {
+            response.setContentType("application/json");
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            out.write("{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+            return;
+        }
+
+        if (!running.tryAcquire()) {
+            response.setContentType("application/json");
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            out.write("{\"error\":\"Hay demasiados análisis de tolerancias en curso, "
+                    + "inténtelo de nuevo más tarde\"}");
+            return;
+        }
+
+        // Stream one line per round of trials
+        response.setContentType("application/x-ndjson");
+        ToleranceStats stats = analysis.newStats();
+        int rounds = Math.min(ROUNDS, trials);
+        try {
+            for (int round = 0; round < rounds; round++) {
+                int roundTrials = trials / rounds + (round < trials % rounds ? 1 : 0);
+                stats.merge(analysis.run(pool, roundTrials, random));
+
+                double maxError = 0.0;
+                for (int floor = 1; floor <= stats.getNumPisos(); floor++) {
+                    maxError = Math.max(maxError, stats.getStandardError(floor));
+                }
+                boolean done = round == rounds - 1 || maxError < precision;
+
+                out.write(buildJsonLine(stats, margen, maxError, done));
+                out.write("\n");
+                out.flush();
+                if (done) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            out.write("{\"error\":\"" + escapeJson(e.getMessage()) + "\"}\n");
+        } finally {
+            running.release();
+        }
+    }
+
+    /**
+     * Builds one progress line with the statistics accumulated so far
+     */
+    private String buildJsonLine(ToleranceStats stats, MargenCalidad margen, double maxError,
+            boolean done) {
+        StringBuilder jsonBuilder = new StringBuilder();
+        jsonBuilder.append("{\"trials\":").append(stats.getTrials());
+        jsonBuilder.append(",\"done\":").append(done);
+        jsonBuilder.append(",\"max_std_error\":").append(maxError);
+        jsonBuilder.append(",\"margins\":{\"min\":").append(margen.getNivel_minimo());
+        jsonBuilder.append(",\"max\":").append(margen.getNivel_maximo());
+        jsonBuilder.append("},\"floors\":[");
+
+        for (int floor = 1; floor <= stats.getNumPisos(); floor++) {
+            if (floor > 1)
+                jsonBuilder.append(",");
+            jsonBuilder.append("{\"floor\":").append(floor);
+            jsonBuilder.append(",\"pass_probability\":").append(stats.getPassProbability(floor));
+            jsonBuilder.append(",\"mean\":").append(stats.getMeanLevel(floor));
+            jsonBuilder.append(",\"p5\":").append(stats.getPercentile(floor, 5));
+            jsonBuilder.append(",\"p50\":").append(stats.getPercentile(floor, 50));
+            jsonBuilder.append(",\"p95\":").append(stats.getPercentile(floor, 95));
+            jsonBuilder.append(",\"outside_range\":").append(stats.getOutsideRange(floor));
+            jsonBuilder.append("}");
+        }
+
+        jsonBuilder.append("]}");
+        return jsonBuilder.toString();
+    }
+
+    /**
+     * Escapes special characters in a string for JSON formatting
+     *
+     * @param input The string to escape
+     * @return The escaped string safe for JSON output
+     */
+    private String escapeJson(String input) {
+        return JsonWriter.escape(input);
+    }
+
+    /**
+     * Body of a tolerance analysis request: the building, the trials and the tolerances
+     */
+    private static class Request extends CalculationRequest {
+        String seed;
+        String distribution;
+        final Map<String, Double> values = new HashMap<>();
+
+        @Override
+        protected boolean readProperty(String name, JsonReader reader) throws IOException {
+            switch (name) {
+                case "seed":
+                    seed = reader.nextString();
+                    return true;
+                case "distribution":
+                    distribution = reader.nextString();
+                    return true;
+                case "trials":
+                case "precision":
+                case "tolerance_derivador":
+                case "tolerance_distribuidor":
+                case "tolerance_toma":
+                case "tolerance_coaxial":
+                    values.put(name, reader.nextDouble());
+                    return true;
+                default:
+                    return super.readProperty(name, reader);
+            }
+        }
+
+        double value(String name, double defaultValue) {
+            Double value = values.get(name);
+            return value != null ? value : defaultValue;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.signalapp.tests;
+
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.signalapp.dao.ComponentCatalog;
+import com.signalapp.dao.ConfiguracionDAO;
+import com.signalapp.dao.MargenCalidadDAO;
+import com.signalapp.dao.ResultadoSimulacionDAO;
+import com.signalapp.dao.SimulacionDAO;
+import com.signalapp.engine.Building;
+import com.signalapp.engine.BuildingResult;
+import com.signalapp.engine.ComponentConfig;
+import com.signalapp.engine.ScenarioResolver;
+import com.signalapp.engine.SignalEngine;
+import com.signalapp.engine.SignalResult;
+import com.signalapp.models.Configuracion;
+import com.signalapp.models.MargenCalidad;
+import com.signalapp.models.ResultadoSimulacion;
+import com.signalapp.models.Simulacion;
+import com.signalapp.servlets.CalculationResponse;
+
+/**
+ * Scale benchmark of multi-riser buildings up to 10000 floors. For each size it times the
+ * calculation, the JSON response and the insertion of the results, and measures the memory they
+ * allocate, then checks that the cost per floor does not grow with the size of the building.
+ *
+ * Uses the components of insertar_datos_derby.sql. The configuration and simulation it creates
+ * are deleted at the end.
+ */
+public class ScaleBenchmark {
+    private static final int[] FLOORS = {1000, 2500, 5000, 10000};
+    private static final int RISERS = 4;
+    private static final String SPLITTER = "FI-473";
+    private static final String CABLE = "CE-752";
+    private static final String[] DERIVADORES = {"FP-414", "FP-420", "FP-426"};
+    private static final double NIVEL_CABECERA = 110.0;
+    private static final int FREQUENCY = 600;
+    private static final String TIPO_SENAL = "TDT";
+
+    /** Runs of each measurement; the fastest one is kept */
+    private static final int RUNS = 20;
+    private static final int DATABASE_RUNS = 3;
+    /**
+     * Largest cost per floor accepted, relative to that of the smallest building. Quadratic
+     * growth would be 10 times larger at 10 times the floors.
+     */
+    private static final double MAX_GROWTH = 3.0;
+
+    public static void main(String[] args) {
+        System.out.println("Benchmarking buildings of " + RISERS + " risers...\n");
+
+        int idConfiguracion = 0;
+        int idSimulacion = 0;
+        boolean linear = true;
+        try {
+            ComponentCatalog catalog = ComponentCatalog.getInstance();
+            MargenCalidad margen = new MargenCalidadDAO().findByTipoSenal(TIPO_SENAL);
+            idConfiguracion = createConfiguracion();
+            idSimulacion = createSimulacion(idConfiguracion);
+
+            // Warm up the JIT and the statement cache with the largest building
+            measure(catalog, margen, FLOORS[FLOORS.length - 1], idSimulacion, RUNS);
+
+            System.out.println("Floors  Calculate(ms)  JSON(ms)  Insert(ms)  Allocated(KB)");
+            System.out.println("---------------------------------------------------------");
+            double[][] perFloor = new double[FLOORS.length][];
+            for (int i = 0; i < FLOORS.length; i++) {
+                double[] measured = measure(catalog, margen, FLOORS[i], idSimulacion, RUNS);
+                System.out.println(String.format("%6d  %13.2f  %8.2f  %10.2f  %13d", FLOORS[i],
+                        measured[0], measured[1], measured[2], (long) measured[3] / 1024));
+                perFloor[i] = new double[measured.length];
+                for (int k = 0; k < measured.length; k++) {
+                    perFloor[i][k] = measured[k] / FLOORS[i];
+                }
+            }
+
+            // Linear growth keeps the cost per floor about the same at every size
+            String[] names = {"Calculate", "JSON", "Insert", "Allocated"};
+            System.out.println();
+            for (int k = 0; k < names.length; k++) {
+                double growth = perFloor[FLOORS.length - 1][k] / perFloor[0][k];
+                boolean ok = growth <= MAX_GROWTH;
+                linear &= ok;
+                System.out.println(String.format("%-9s cost per floor at %d vs %d floors: x%.2f %s",
+                        names[k], FLOORS[FLOORS.length - 1], FLOORS[0], growth,
+                        ok ? "OK" : "NO LINEAL"));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error running the benchmark: " + e.getMessage());
+            e.printStackTrace();
+            linear = false;
+        } finally {
+            cleanUp(idConfiguracion, idSimulacion);
+        }
+
+        if (!linear) {
+            System.err.println("\nEl coste por piso crece con el tamaño del edificio");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Measures a building of the given number of floors
+     *
+     * @return The fastest times of the calculation, the JSON response and the insertion (ms),
+     *         and the memory allocated for them without the insertion (bytes)
+     */
+    private static double[] measure(ComponentCatalog catalog, MargenCalidad margen, int floors,
+            int idSimulacion, int runs) throws SQLException {
+        List<ComponentConfig> components = components(floors / RISERS);
+        ResultadoSimulacionDAO resultadoDAO = new ResultadoSimulacionDAO();
+        double calculate = Double.MAX_VALUE;
+        double json = Double.MAX_VALUE;
+        double insert = Double.MAX_VALUE;
+
+        for (int run = 0; run < runs; run++) {
+            long start = System.nanoTime();
+            Building building = ScenarioResolver.resolveBuilding(catalog, floors / RISERS,
+                    NIVEL_CABECERA, components, FREQUENCY, CABLE, RISERS, SPLITTER);
+            BuildingResult result = SignalEngine.calculate(building);
+            calculate = Math.min(calculate, (System.nanoTime() - start) / 1e6);
+
+            start = System.nanoTime();
+            String body = CalculationResponse.buildBuilding(building, result, margen);
+            json = Math.min(json, (System.nanoTime() - start) / 1e6);
+            if (body.isEmpty()) {
+                throw new IllegalStateException("Respuesta vacía para " + floors + " pisos");
+            }
+
+            if (run < DATABASE_RUNS) {
+                List<ResultadoSimulacion> resultados = resultados(result, margen, idSimulacion);
+                start = System.nanoTime();
+                resultadoDAO.insertAll(resultados);
+                insert = Math.min(insert, (System.nanoTime() - start) / 1e6);
+                resultadoDAO.deleteBySimulacionId(idSimulacion);
+            }
+        }
+        return new double[] {calculate, json, insert, memory(catalog, margen, floors, components)};
+    }
+
+    /**
+     * Measures the memory allocated to calculate a building, build the response and the results
+     */
+    private static long memory(ComponentCatalog catalog, MargenCalidad margen, int floors,
+            List<ComponentConfig> components) throws SQLException {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        Building building = ScenarioResolver.resolveBuilding(catalog, floors / RISERS,
+                NIVEL_CABECERA, components, FREQUENCY, CABLE, RISERS, SPLITTER);
+        BuildingResult result = SignalEngine.calculate(building);
+        String body = CalculationResponse.buildBuilding(building, result, margen);
+        List<ResultadoSimulacion> resultados = resultados(result, margen, 0);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        if (body.isEmpty() || resultados.size() != floors) {
+            throw new IllegalStateException("Resultado incompleto para " + floors + " pisos");
+        }
+        return allocated;
+    }
+
+    /**
+     * Builds the components of every riser: a derivador, a distribuidor and two tomas per floor
+     */
+    private static List<ComponentConfig> components(int floorsPerRiser) {
+        List<ComponentConfig> components = new ArrayList<>();
+        for (int riser = 1; riser <= RISERS; riser++) {
+            for (int floor = 1; floor <= floorsPerRiser; floor++) {
+                components.add(new ComponentConfig(ComponentCatalog.DERIVADOR,
+                        DERIVADORES[floor % DERIVADORES.length], floor, riser));
+                components.add(new ComponentConfig(ComponentCatalog.DISTRIBUIDOR, "FI-243", floor,
+                        riser));
+                components.add(new ComponentConfig(ComponentCatalog.TOMA, "BS-100", floor, riser));
+                components.add(new ComponentConfig(ComponentCatalog.TOMA, "BS-110", floor, riser));
+            }
+        }
+        return components;
+    }
+
+    /**
+     * Builds the result of every floor, as saved by POST /simulate
+     */
+    private static List<ResultadoSimulacion> resultados(BuildingResult result,
+            MargenCalidad margen, int idSimulacion) {
+        List<ResultadoSimulacion> resultados = new ArrayList<>();
+        for (int riser = 1; riser <= result.getNumRisers(); riser++) {
+            SignalResult riserResult = result.getRiser(riser);
+            for (int floor = 1; floor <= riserResult.getNumPisos(); floor++) {
+                double level = riserResult.getLevel(floor);
+                ResultadoSimulacion resultado = new ResultadoSimulacion();
+                resultado.setId_simulaciones(idSimulacion);
+                resultado.setMontante(riser);
+                resultado.setPiso(floor);
+                resultado.setNivel_senal(level);
+                resultado.setCosto_piso(riserResult.getFloorCost(floor));
+                resultado.setEstado(level >= margen.getNivel_minimo()
+                        && level <= margen.getNivel_maximo() ? "ok" : "error");
+                resultados.add(resultado);
+            }
+        }
+        return resultados;
+    }
+
+    private static int createConfiguracion() throws SQLException {
+        String currentDate = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss")
+                .format(new java.util.Date());
+        Configuracion configuracion = new Configuracion();
+        configuracion.setNombre("ScaleBenchmark " + System.currentTimeMillis());
+        configuracion.setNivel_cabecera(NIVEL_CABECERA);
+        configuracion.setNum_pisos(FLOORS[FLOORS.length - 1] / RISERS);
+        configuracion.setCosto_total(0.0);
+        configuracion.setFecha_creacion(currentDate);
+        configuracion.setUsuario_creacion("benchmark");
+        configuracion.setFecha_modificacion(currentDate);
+        configuracion.setUsuario_modificacion("benchmark");
+        return new ConfiguracionDAO().insert(configuracion);
+    }
+
+    private static int createSimulacion(int idConfiguracion) throws SQLException {
+        Simulacion simulacion = new Simulacion();
+        simulacion.setId_configuraciones(idConfiguracion);
+        simulacion.setFrecuencia(FREQUENCY);
+        simulacion.setTipo_senal(TIPO_SENAL);
+        simulacion.setCosto_total(0.0);
+        simulacion.setEstado("ok");
+        simulacion.setFecha_simulacion(new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss")
+                .format(new java.util.Date()));
+        return new SimulacionDAO().insert(simulacion);
+    }
+
+    private static void cleanUp(int idConfiguracion, int idSimulacion) {
+        try {
+            if (idSimulacion > 0) {
+                new ResultadoSimulacionDAO().deleteBySimulacionId(idSimulacion);
+                new SimulacionDAO().delete(idSimulacion);
+            }
+            if (idConfiguracion > 0) {
+                new ConfiguracionDAO().delete(idConfiguracion);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error deleting the benchmark data: " + e.getMessage());
+        }
+    }
+}
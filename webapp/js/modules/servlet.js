@@ -130,56 +130,73 @@ export async function fetchSignalTypes() {
 }
 
 // --- Component API Calls ---
+
+// Pending or completed request for the component catalog, shared by every caller until a
+// component is added, modified or deleted
+let catalogRequest = null;
+
+function invalidateComponentCatalog() {
+  catalogRequest = null;
+}
+
+// Fetches every component of every type, with its attributes, in a single request:
+// { version, components: { coaxial: [...], derivador: [...], distribuidor: [...], toma: [...] } }
 export async function fetchComponents() {
-  const types = ['coaxial', 'derivador', 'distribuidor', 'toma'];
-  try {
-    await Promise.all(types.map((type) => fetchComponentsByType(type)));
-  } catch (error) {
-    console.error('Error in fetchComponents:', error);
-    displayError('Error al cargar algunos componentes. Por favor, intente actualizar la página.');
+  if (!catalogRequest) {
+    catalogRequest = loadComponentCatalog().catch((error) => {
+      catalogRequest = null;
+      throw error;
+    });
   }
+  return catalogRequest;
 }
 
-export async function fetchComponentsByType(type, idConfiguracion = null) {
+async function loadComponentCatalog() {
   try {
-    const url = new URL('components', window.location.href);
-    url.searchParams.append('type', type);
-    if (idConfiguracion) {
-      url.searchParams.append('id_configuraciones', idConfiguracion);
-    }
-    const response = await fetch(url);
+    const response = await fetch('components/catalog');
     if (!response.ok) {
-      console.error(`Error fetching ${type} components:`, `HTTP error! status: ${response.status}`);
-      displayError(`Error al cargar los componentes de tipo ${type}. Por favor, intente de nuevo.`);
+      console.error('Error fetching component catalog:', `HTTP error! status: ${response.status}`);
+      displayError('Error al cargar los componentes. Por favor, intente actualizar la página.');
       throw new Error(`HTTP error! status: ${response.status}`);
     }
-    const data = await response.json();
-    if (!Array.isArray(data)) {
-      console.error(`Error fetching ${type} components: Invalid response format`);
-      displayError(`Error en el formato de los componentes de tipo ${type} recibidos.`);
-      throw new Error('Invalid response format: expected array');
+    const catalog = await response.json();
+    if (!catalog || typeof catalog.components !== 'object') {
+      console.error('Error fetching component catalog: Invalid response format');
+      displayError('Error en el formato de los componentes recibidos.');
+      throw new Error('Invalid response format: expected component catalog');
     }
-    return data;
+    return catalog;
   } catch (error) {
-    console.error(`Error fetching ${type} components:`, error);
-    displayError(`Error al cargar los componentes de tipo ${type}. Por favor, intente de nuevo.`);
+    console.error('Error in fetchComponents:', error);
     throw error;
   }
 }
 
-export async function fetchComponentDetails(idConfiguracion) {
+// Returns the model names of a component type, taken from the catalog
+export async function fetchComponentsByType(type) {
   try {
-    const types = ['coaxial', 'derivador', 'distribuidor', 'toma'];
-    await Promise.all(types.map((type) => fetchComponentsByType(type, idConfiguracion)));
+    const catalog = await fetchComponents();
+    const components = catalog.components[type];
+    if (!Array.isArray(components)) {
+      console.error(`Error fetching ${type} components: Invalid response format`);
+      displayError(`Error en el formato de los componentes de tipo ${type} recibidos.`);
+      throw new Error('Invalid response format: expected array');
+    }
+    return components.map((component) => component.modelo);
   } catch (error) {
-    console.error('Error fetching component details:', error);
-    displayError('Error al cargar los detalles de los componentes. Por favor, intente de nuevo.');
+    console.error(`Error fetching ${type} components:`, error);
+    displayError(`Error al cargar los componentes de tipo ${type}. Por favor, intente de nuevo.`);
     throw error;
   }
 }
 
 export async function fetchComponentsByModel(type, model) {
   try {
+    const catalog = await fetchComponents().catch(() => null);
+    const component = catalog?.components[type]?.find((c) => c.modelo === model);
+    if (component) {
+      return component;
+    }
     const url = new URL('components', window.location.href);
     url.searchParams.append('type', type);
     url.searchParams.append('model', model);
@@ -252,6 +269,7 @@ export async function submitComponent(formData) {
       displayError(errorData.error);
       throw new Error(errorData.error);
     }
+    invalidateComponentCatalog();
     return await response.json();
   } catch (error) {
     console.error('Error submitting component:', error);
@@ -288,6 +306,32 @@ export async function runSimulation(simulationData) {
   }
 }
 
+// Calculates a simulation and saves it with its results and schematic in one request
+export async function runAndSaveSimulation(simulationData) {
+  try {
+    const response = await fetch('simulate', {
+      method: 'POST',
+      headers: {
+        'Content-Type': 'application/json',
+      },
+      body: JSON.stringify(simulationData),
+    });
+    if (!response.ok) {
+      const errorData = await response.json();
+      console.error('Error during simulation:', errorData.error);
+      displayError(
+        'Error al ejecutar la simulación. Por favor, revise los datos e intente de nuevo.',
+      );
+      throw new Error(errorData.error || `HTTP error! status: ${response.status}`);
+    }
+    return await response.json();
+  } catch (error) {
+    console.error('Error during simulation:', error);
+    displayError('Error al ejecutar la simulación. Por favor, intente de nuevo.');
+    throw error;
+  }
+}
+
 export async function deleteComponent(type, model) {
   try {
     const url = new URL('components', window.location.href);
@@ -300,6 +344,7 @@ export async function deleteComponent(type, model) {
       displayError(`Error al eliminar el componente ${model}: ${errorData.error}`);
       throw new Error(errorData.error);
     }
+    invalidateComponentCatalog();
     const result = await response.json();
     return result;
   } catch (error) {
@@ -361,6 +406,7 @@ export async function updateComponent(type, model, formData) {
       displayError(`Error al actualizar el componente ${model}: ${errorData.error}`);
       throw new Error(errorData.error);
     }
+    invalidateComponentCatalog();
     return await response.json();
   } catch (error) {
     console.error(`Error updating ${type} ${model}:`, error);
@@ -370,10 +416,15 @@ export async function updateComponent(type, model, formData) {
 }
 
 // --- Simulation History API Calls ---
-export async function fetchSimulationHistory(idConfiguracion) {
+// Loads one page of the history of a configuration, newest first. Pass the `next` URL returned
+// with a page to load the one after it.
+export async function fetchSimulationHistory(idConfiguracion, { next = null, limit = null } = {}) {
   try {
-    const url = new URL('history', window.location.href);
-    url.searchParams.append('id_configuraciones', idConfiguracion);
+    const url = new URL(next || 'history', window.location.href);
+    if (!next) {
+      url.searchParams.append('id_configuraciones', idConfiguracion);
+      if (limit) url.searchParams.append('limit', limit);
+    }
     const response = await fetch(url);
     if (!response.ok) {
       const errorData = await response.json();
@@ -381,7 +432,10 @@ export async function fetchSimulationHistory(idConfiguracion) {
       displayError(`Error al cargar el historial de simulaciones: ${errorData.error}`);
       throw new Error(errorData.error || 'Error al cargar el historial de simulaciones');
     }
-    return await response.json();
+    const simulations = await response.json();
+    // The Link header points to the next page, if there is one
+    const link = /<([^>]+)>;\s*rel="next"/.exec(response.headers.get('Link') || '');
+    return { simulations, next: link ? new URL(link[1], url).href : null };
   } catch (error) {
     console.error('Error fetching simulation history:', error);
     displayError('Error al cargar el historial de simulaciones. Por favor, intente de nuevo.');
@@ -450,6 +504,28 @@ export async function saveSchematicComponent(componentData) {
   }
 }
 
+// Replaces the whole schematic of a simulation in one request and returns the new IDs
+export async function saveSchematic(idSimulacion, components) {
+  try {
+    const response = await fetch('schematic/bulk', {
+      method: 'POST',
+      headers: { 'Content-Type': 'application/json' },
+      body: JSON.stringify({ id_simulaciones: idSimulacion, components }),
+    });
+    if (!response.ok) {
+      const errorData = await response.json();
+      console.error('Error saving schematic:', errorData.error);
+      displayError(`Error al guardar el esquemático: ${errorData.error}`);
+      throw new Error(errorData.error);
+    }
+    return await response.json();
+  } catch (error) {
+    console.error('Error saving schematic:', error);
+    displayError('Error al guardar el esquemático. Por favor, intente de nuevo.');
+    throw error;
+  }
+}
+
 export async function loadSchematic(idSimulacion) {
   try {
     const url = new URL('schematic', window.location.href);
@@ -491,6 +567,16 @@ export async function deleteSchematicComponent(idEsquematico) {
 // --- Results API Calls ---
 export async function saveSimulationResults(simulationId, results) {
   try {
+    // Compact format: one array per field instead of one object per floor
+    const columns = {
+      floor: results.map((r) => r.floor),
+      level: results.map((r) => r.level),
+      floor_cost: results.map((r) => r.floor_cost),
+      status: results.map((r) => r.status),
+    };
+    if (results.some((r) => r.riser !== undefined)) {
+      columns.riser = results.map((r) => r.riser ?? 1);
+    }
     const response = await fetch('results', {
       method: 'POST',
       headers: {
@@ -498,7 +584,7 @@ export async function saveSimulationResults(simulationId, results) {
       },
       body: JSON.stringify({
         id_simulaciones: simulationId,
-        results: results,
+        results: columns,
       }),
     });
     if (!response.ok) {
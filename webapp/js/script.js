@@ -5,18 +5,16 @@ import { updateComponentForm } from './modules/forms.js';
 import {
   fetchConfigurations,
   fetchSignalTypes,
+  fetchComponents,
   fetchComponentsByType,
   submitComponent,
-  runSimulation,
+  runAndSaveSimulation,
   fetchSimulationHistory,
   deleteSimulationHistory,
-  saveSchematicComponent,
   loadSchematic,
   deleteSchematicComponent,
-  saveSimulationHistory,
   updateConfiguration,
   deleteConfiguration,
-  saveSimulationResults,
   loadSimulationResults,
   deleteSimulationResults,
 } from './modules/servlet.js';
@@ -98,12 +96,12 @@ document.addEventListener('DOMContentLoaded', async () => {
   // Fetches component models for schematic and UI
   async function loadComponentModels() {
     try {
-      const types = ['coaxial', 'derivador', 'distribuidor', 'toma'];
-      const results = await Promise.all(types.map(fetchComponentsByType));
-      componentModels.coaxial = results[0] || [];
-      componentModels.derivador = results[1] || [];
-      componentModels.distribuidor = results[2] || [];
-      componentModels.toma = results[3] || [];
+      const catalog = await fetchComponents();
+      const models = (type) => (catalog.components[type] || []).map((c) => c.modelo);
+      componentModels.coaxial = models('coaxial');
+      componentModels.derivador = models('derivador');
+      componentModels.distribuidor = models('distribuidor');
+      componentModels.toma = models('toma');
 
       // Update cable selector in Simulation tab
       if (cableSelect) {
@@ -276,7 +274,7 @@ document.addEventListener('DOMContentLoaded', async () => {
       );
       if (!selectedConfig) return;
       try {
-        const simulations = await fetchSimulationHistory(selectedConfigId);
+        const { simulations } = await fetchSimulationHistory(selectedConfigId, { limit: 1 });
         if (simulations && simulations.length > 0) {
           displayError(
             'No se puede eliminar esta configuración porque tiene simulaciones asociadas. Por favor, elimine primero las simulaciones.',
@@ -529,52 +527,12 @@ document.addEventListener('DOMContentLoaded', async () => {
             });
           }
         });
-        const simulationPayload = {
-          num_pisos: selectedConfigData.num_pisos,
-          nivel_cabecera: selectedConfigData.nivel_cabecera,
-          tipo_senal: selectedSignalType,
-          frequency: frequency,
-          selected_cable_model: cableSelect.value,
-          components: apiComponents,
-        };
-        const results = await runSimulation(simulationPayload);
-        results.nivel_cabecera = selectedConfigData.nivel_cabecera;
-        // Save simulation history
-        const simulationHistoryData = {
-          id_configuraciones: selectedConfigId,
-          frecuencia: frequency,
-          tipo_senal: selectedSignalType,
-          costo_total: results.total_cost,
-          estado: results.signal_levels.every((f) => f.status === 'ok') ? 'ok' : 'error',
-        };
-        const simulationResponse = await saveSimulationHistory(simulationHistoryData);
-        const idSimulacion = simulationResponse.id;
-        // Save simulation results
-        try {
-          await saveSimulationResults(
-            idSimulacion,
-            results.signal_levels.map((level) => ({
-              floor: level.floor,
-              level: level.level,
-              floor_cost: level.floor_cost,
-              status: level.status,
-            })),
-          );
-        } catch (error) {
-          console.error('Error saving simulation results:', error);
-          displayError(
-            `Error al guardar los resultados: ${error.message || 'Error desconocido'}`,
-            errorMessageElement,
-            successMessageElement,
-          );
-        }
-        // Save schematic components
+        // Schematic saved with the simulation
         const schematicComponents = [];
         Object.entries(componentsData.floors).forEach(([floorStr, floorComps]) => {
           const floorNum = parseInt(floorStr);
           if (floorComps.derivador) {
             schematicComponents.push({
-              id_simulaciones: idSimulacion,
               tipo: 'derivador',
               modelo: floorComps.derivador,
               piso: floorNum,
@@ -585,7 +543,6 @@ document.addEventListener('DOMContentLoaded', async () => {
           }
           if (Array.isArray(floorComps.distribuidores) && floorComps.distribuidores[1]) {
             schematicComponents.push({
-              id_simulaciones: idSimulacion,
               tipo: 'distribuidor',
               modelo: floorComps.distribuidores[1],
               piso: floorNum,
@@ -598,7 +555,6 @@ document.addEventListener('DOMContentLoaded', async () => {
             floorComps.tomasRight.forEach((toma, index) => {
               if (toma) {
                 schematicComponents.push({
-                  id_simulaciones: idSimulacion,
                   tipo: 'toma',
                   modelo: toma,
                   piso: floorNum,
@@ -609,18 +565,19 @@ document.addEventListener('DOMContentLoaded', async () => {
             });
           }
         });
-        for (const component of schematicComponents) {
-          try {
-            await saveSchematicComponent(component);
-          } catch (error) {
-            console.error('Error saving schematic component:', error);
-            displayError(
-              `Error al guardar componente: ${error.message || 'Error desconocido'}`,
-              errorMessageElement,
-              successMessageElement,
-            );
-          }
-        }
+        // Calculate and save simulation, results and schematic in one request
+        const simulationPayload = {
+          id_configuraciones: selectedConfigId,
+          num_pisos: selectedConfigData.num_pisos,
+          nivel_cabecera: selectedConfigData.nivel_cabecera,
+          tipo_senal: selectedSignalType,
+          frequency: frequency,
+          selected_cable_model: cableSelect.value,
+          components: apiComponents,
+          schematic: schematicComponents,
+        };
+        const results = await runAndSaveSimulation(simulationPayload);
+        results.nivel_cabecera = selectedConfigData.nivel_cabecera;
         switchTab('results-tab');
         updateSimulationResults(results);
         displaySuccess(
@@ -665,7 +622,12 @@ document.addEventListener('DOMContentLoaded', async () => {
     });
   });
 
-  // Loads simulation history and updates the table
+  // Simulations shown in the history, and the next page of each configuration still to load
+  let historySimulations = [];
+  let historyPages = [];
+  const loadMoreHistoryButton = document.getElementById('load-more-history');
+
+  // Loads the first page of the history of every configuration and updates the table
   async function loadSimulationHistory() {
     try {
       const configurations = await fetchConfigurations();
@@ -677,32 +639,14 @@ document.addEventListener('DOMContentLoaded', async () => {
         );
         return;
       }
-      const allSimulations = [];
-      for (const config of configurations) {
-        try {
-          const configSimulations = await fetchSimulationHistory(
-            config.id_configuraciones || config.id,
-          );
-          if (configSimulations && configSimulations.length > 0) {
-            const simulationsWithConfig = configSimulations.map((sim) => ({
-              ...sim,
-              config_name: config.nombre_edificio || config.nombre,
-            }));
-            allSimulations.push(...simulationsWithConfig);
-          }
-        } catch (error) {
-          console.error(
-            `Error fetching history for config ${config.id_configuraciones || config.id}:`,
-            error,
-          );
-        }
-      }
-      allSimulations.sort((a, b) => {
-        const configCompare = (a.config_name || '').localeCompare(b.config_name || '');
-        if (configCompare !== 0) return configCompare;
-        return new Date(b.fecha_creacion) - new Date(a.fecha_creacion);
-      });
-      updateSimulationHistoryTable(allSimulations);
+      historySimulations = [];
+      historyPages = configurations.map((config) => ({
+        id: config.id_configuraciones || config.id,
+        name: config.nombre_edificio || config.nombre,
+        next: null,
+      }));
+      await Promise.all(historyPages.map((page) => loadHistoryPage(page)));
+      showSimulationHistory();
     } catch (error) {
       console.error('Error loading simulation history:', error);
       displayError(
@@ -713,6 +657,37 @@ document.addEventListener('DOMContentLoaded', async () => {
     }
   }
 
+  // Loads the next page of every configuration that has more simulations
+  async function loadMoreSimulationHistory() {
+    const pending = historyPages.filter((page) => page.next);
+    await Promise.all(pending.map((page) => loadHistoryPage(page)));
+    showSimulationHistory();
+  }
+
+  // Loads a page of the history of one configuration: the first one, or the one after the last
+  async function loadHistoryPage(page) {
+    try {
+      const { simulations, next } = await fetchSimulationHistory(page.id, { next: page.next });
+      page.next = next;
+      historySimulations.push(...simulations.map((sim) => ({ ...sim, config_name: page.name })));
+    } catch (error) {
+      page.next = null;
+      console.error(`Error fetching history for config ${page.id}:`, error);
+    }
+  }
+
+  function showSimulationHistory() {
+    historySimulations.sort((a, b) => {
+      const configCompare = (a.config_name || '').localeCompare(b.config_name || '');
+      if (configCompare !== 0) return configCompare;
+      return new Date(b.fecha_simulacion) - new Date(a.fecha_simulacion);
+    });
+    updateSimulationHistoryTable(historySimulations);
+    loadMoreHistoryButton?.classList.toggle('hidden', !historyPages.some((page) => page.next));
+  }
+
+  loadMoreHistoryButton?.addEventListener('click', loadMoreSimulationHistory);
+
   // Simulation history table event handlers
   const simulationHistoryTable = document.getElementById('simulation-history-table');
   if (simulationHistoryTable) {